@@ -0,0 +1,198 @@
+package struct;
+
+import arc.struct.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the arc.struct maps with java.util.HashMap. To compare with another implementation of the arc maps, run the
+ * benchmark on both revisions; it only uses their public API.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapBenchmark{
+    @Param({"16", "1024", "65536"})
+    public int size;
+
+    /** Keys in the maps, in random order. */
+    String[] strings;
+    long[] longs;
+    int[] ints;
+    /** Keys that aren't in the maps. */
+    String[] missingStrings;
+    long[] missingLongs;
+
+    ObjectMap<String, Integer> objectMap;
+    HashMap<String, Integer> hashMap;
+    LongMap<Integer> longMap;
+    HashMap<Long, Integer> longHashMap;
+    IntIntMap intIntMap;
+
+    int index;
+
+    @Setup
+    public void setup(){
+        Random random = new Random(0);
+        strings = new String[size];
+        longs = new long[size];
+        ints = new int[size];
+        missingStrings = new String[size];
+        missingLongs = new long[size];
+
+        objectMap = new ObjectMap<>();
+        hashMap = new HashMap<>();
+        longMap = new LongMap<>();
+        longHashMap = new HashMap<>();
+        intIntMap = new IntIntMap();
+
+        for(int i = 0; i < size; i++){
+            strings[i] = "key" + i;
+            missingStrings[i] = "missing" + i;
+            //packed grid coordinates, like GridMap uses
+            longs[i] = (long)random.nextInt(4096) << 32 | random.nextInt(4096);
+            missingLongs[i] = -longs[i] - 1;
+            ints[i] = random.nextInt();
+
+            objectMap.put(strings[i], i);
+            hashMap.put(strings[i], i);
+            longMap.put(longs[i], i);
+            longHashMap.put(longs[i], i);
+            intIntMap.put(ints[i], i);
+        }
+    }
+
+    private int next(){
+        int i = index;
+        index = i + 1 == size ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public Integer objectGet(){
+        return objectMap.get(strings[next()]);
+    }
+
+    @Benchmark
+    public Integer hashMapGet(){
+        return hashMap.get(strings[next()]);
+    }
+
+    @Benchmark
+    public Integer objectGetMissing(){
+        return objectMap.get(missingStrings[next()]);
+    }
+
+    @Benchmark
+    public Integer hashMapGetMissing(){
+        return hashMap.get(missingStrings[next()]);
+    }
+
+    @Benchmark
+    public Integer longGet(){
+        return longMap.get(longs[next()]);
+    }
+
+    @Benchmark
+    public Integer longHashMapGet(){
+        return longHashMap.get(longs[next()]);
+    }
+
+    @Benchmark
+    public Integer longGetMissing(){
+        return longMap.get(missingLongs[next()]);
+    }
+
+    @Benchmark
+    public int intIntGet(){
+        return intIntMap.get(ints[next()], -1);
+    }
+
+    /** Removes a key and puts it back, so the map stays the same size. */
+    @Benchmark
+    public Integer objectRemovePut(){
+        String key = strings[next()];
+        Integer value = objectMap.remove(key);
+        objectMap.put(key, value);
+        return value;
+    }
+
+    @Benchmark
+    public Integer hashMapRemovePut(){
+        String key = strings[next()];
+        Integer value = hashMap.remove(key);
+        hashMap.put(key, value);
+        return value;
+    }
+
+    @Benchmark
+    public Integer longRemovePut(){
+        long key = longs[next()];
+        Integer value = longMap.remove(key);
+        longMap.put(key, value);
+        return value;
+    }
+
+    @Benchmark
+    public int intIntRemovePut(){
+        int key = ints[next()];
+        int value = intIntMap.remove(key, -1);
+        intIntMap.put(key, value);
+        return value;
+    }
+
+    /** Fills a new map, including every resize on the way. */
+    @Benchmark
+    public ObjectMap<String, Integer> objectFill(){
+        ObjectMap<String, Integer> map = new ObjectMap<>();
+        for(int i = 0; i < size; i++) map.put(strings[i], i);
+        return map;
+    }
+
+    @Benchmark
+    public HashMap<String, Integer> hashMapFill(){
+        HashMap<String, Integer> map = new HashMap<>();
+        for(int i = 0; i < size; i++) map.put(strings[i], i);
+        return map;
+    }
+
+    @Benchmark
+    public LongMap<Integer> longFill(){
+        LongMap<Integer> map = new LongMap<>();
+        for(int i = 0; i < size; i++) map.put(longs[i], i);
+        return map;
+    }
+
+    @Benchmark
+    public IntIntMap intIntFill(){
+        IntIntMap map = new IntIntMap();
+        for(int i = 0; i < size; i++) map.put(ints[i], i);
+        return map;
+    }
+
+    @Benchmark
+    public void objectIterate(Blackhole hole){
+        for(ObjectMap.Entry<String, Integer> entry : objectMap.entries()) hole.consume(entry.value);
+    }
+
+    @Benchmark
+    public void hashMapIterate(Blackhole hole){
+        for(Map.Entry<String, Integer> entry : hashMap.entrySet()) hole.consume(entry.getValue());
+    }
+
+    @Benchmark
+    public void longIterate(Blackhole hole){
+        for(LongMap.Entry<Integer> entry : longMap.entries()) hole.consume(entry.value);
+    }
+
+    @Benchmark
+    public void intIntIterate(Blackhole hole){
+        for(IntIntMap.Entry entry : intIntMap.entries()) hole.consume(entry.value);
+    }
+}
@@ -1,20 +1,49 @@
 package arc;
 
 
-import arc.struct.Array;
 import arc.struct.ObjectMap;
 import arc.func.Cons;
 
+/**
+ * Global event bus. Listeners are registered either for a class, in which case they receive every fired object of
+ * exactly that class, or for a specific object such as an enum constant.
+ * <p>
+ * Listeners are stored in copy-on-write arrays, so registering and removing them is relatively expensive, but firing
+ * only does a single map lookup per key and a plain indexed loop. Registration is synchronized, and events may be fired
+ * from any thread; listeners run on the thread that fires. Use {@link #post(Object)} to fire an event on the main thread.
+ */
 @SuppressWarnings("unchecked")
 public class Events{
-    private static ObjectMap<Object, Array<Cons<?>>> events = new ObjectMap<>();
+    private static final Object lock = new Object();
+    /** Never modified after being published; replaced on every registration. */
+    private static volatile ObjectMap<Object, Listeners> events = new ObjectMap<>();
 
     public static <T> void on(Class<T> type, Cons<T> listener){
-        events.getOr(type, Array::new).add(listener);
+        on(type, 0, listener);
+    }
+
+    /** @param priority Listeners with a higher priority are called first. Listeners of the same priority are called in the order they were added. */
+    public static <T> void on(Class<T> type, int priority, Cons<T> listener){
+        add(type, listener, false, priority);
     }
 
     public static void on(Object type, Runnable listener){
-        events.getOr(type, Array::new).add(e -> listener.run());
+        on(type, 0, listener);
+    }
+
+    /** @param priority Listeners with a higher priority are called first. Listeners of the same priority are called in the order they were added. */
+    public static void on(Object type, int priority, Runnable listener){
+        add(type, listener, true, priority);
+    }
+
+    /** @return whether the listener was registered for this type. */
+    public static <T> boolean remove(Class<T> type, Cons<T> listener){
+        return removeListener(type, listener);
+    }
+
+    /** @return whether the listener was registered for this object. */
+    public static boolean remove(Object type, Runnable listener){
+        return removeListener(type, listener);
     }
 
     public static <T> void fire(T type){
@@ -22,11 +51,123 @@ public class Events{
     }
 
     public static <T> void fire(Class<?> ctype, T type){
-        if(events.get(type) != null) events.get(type).each(e -> ((Cons<T>)e).get(type));
-        if(events.get(ctype) != null) events.get(ctype).each(e -> ((Cons<T>)e).get(type));
+        ObjectMap<Object, Listeners> events = Events.events;
+
+        Listeners listeners = events.get(type);
+        if(listeners != null) listeners.fire(type);
+
+        listeners = events.get(ctype);
+        if(listeners != null) listeners.fire(type);
+    }
+
+    /** Fires an event on the main thread, during the next frame. Can be called from any thread. */
+    public static void post(Object type){
+        Core.app.post(() -> fire(type));
     }
 
     public static void dispose(){
-        events.clear();
+        synchronized(lock){
+            events = new ObjectMap<>();
+        }
+    }
+
+    private static void add(Object type, Object listener, boolean runnable, int priority){
+        synchronized(lock){
+            ObjectMap<Object, Listeners> copy = new ObjectMap<>(events);
+            Listeners listeners = copy.get(type);
+            copy.put(type, listeners == null ? new Listeners(listener, runnable, priority) : listeners.with(listener, runnable, priority));
+            events = copy;
+        }
+    }
+
+    private static boolean removeListener(Object type, Object listener){
+        synchronized(lock){
+            Listeners listeners = events.get(type);
+            if(listeners == null) return false;
+            int index = listeners.indexOf(listener);
+            if(index == -1) return false;
+
+            ObjectMap<Object, Listeners> copy = new ObjectMap<>(events);
+            if(listeners.listeners.length == 1){
+                copy.remove(type);
+            }else{
+                copy.put(type, listeners.without(index));
+            }
+            events = copy;
+            return true;
+        }
+    }
+
+    /**
+     * An immutable, priority-sorted list of listeners. Each listener is either a {@link Cons} or a {@link Runnable},
+     * stored as registered so that firing doesn't go through a wrapper.
+     */
+    private static class Listeners{
+        final Object[] listeners;
+        /** Whether each listener is called as a Runnable, since an object may implement both interfaces. */
+        final boolean[] runnables;
+        final int[] priorities;
+
+        Listeners(Object listener, boolean runnable, int priority){
+            this(new Object[]{listener}, new boolean[]{runnable}, new int[]{priority});
+        }
+
+        Listeners(Object[] listeners, boolean[] runnables, int[] priorities){
+            this.listeners = listeners;
+            this.runnables = runnables;
+            this.priorities = priorities;
+        }
+
+        void fire(Object event){
+            Object[] listeners = this.listeners;
+            boolean[] runnables = this.runnables;
+            for(int i = 0; i < listeners.length; i++){
+                if(runnables[i]){
+                    ((Runnable)listeners[i]).run();
+                }else{
+                    ((Cons)listeners[i]).get(event);
+                }
+            }
+        }
+
+        int indexOf(Object listener){
+            for(int i = 0; i < listeners.length; i++){
+                if(listeners[i] == listener) return i;
+            }
+            return -1;
+        }
+
+        Listeners with(Object listener, boolean runnable, int priority){
+            int size = listeners.length, index = size;
+            while(index > 0 && priorities[index - 1] < priority) index--;
+
+            Object[] newListeners = new Object[size + 1];
+            boolean[] newRunnables = new boolean[size + 1];
+            int[] newPriorities = new int[size + 1];
+            System.arraycopy(listeners, 0, newListeners, 0, index);
+            System.arraycopy(listeners, index, newListeners, index + 1, size - index);
+            System.arraycopy(runnables, 0, newRunnables, 0, index);
+            System.arraycopy(runnables, index, newRunnables, index + 1, size - index);
+            System.arraycopy(priorities, 0, newPriorities, 0, index);
+            System.arraycopy(priorities, index, newPriorities, index + 1, size - index);
+            newListeners[index] = listener;
+            newRunnables[index] = runnable;
+            newPriorities[index] = priority;
+            return new Listeners(newListeners, newRunnables, newPriorities);
+        }
+
+        Listeners without(int index){
+            int size = listeners.length;
+            Object[] newListeners = new Object[size - 1];
+            boolean[] newRunnables = new boolean[size - 1];
+            int[] newPriorities = new int[size - 1];
+            System.arraycopy(listeners, 0, newListeners, 0, index);
+            System.arraycopy(listeners, index + 1, newListeners, index, size - index - 1);
+            System.arraycopy(runnables, 0, newRunnables, 0, index);
+            System.arraycopy(runnables, index + 1, newRunnables, index, size - index - 1);
+            System.arraycopy(priorities, 0, newPriorities, 0, index);
+            System.arraycopy(priorities, index + 1, newPriorities, index, size - index - 1);
+            return new Listeners(newListeners, newRunnables, newPriorities);
+        }
     }
 }
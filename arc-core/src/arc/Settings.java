@@ -5,17 +5,20 @@ import arc.struct.ObjectMap.*;
 import arc.files.*;
 import arc.func.*;
 import arc.util.*;
+import arc.util.async.*;
 import arc.util.io.*;
 import arc.util.io.Streams.*;
 import arc.util.serialization.*;
 
 import java.io.*;
+import java.nio.file.*;
+import java.util.concurrent.atomic.*;
 
 import static arc.Core.keybinds;
 
 @SuppressWarnings("unchecked")
 public class Settings{
-    protected final static byte TYPE_BOOL = 0, TYPE_INT = 1, TYPE_LONG = 2, TYPE_FLOAT = 3, TYPE_STRING = 4, TYPE_BINARY = 5;
+    protected final static byte TYPE_BOOL = 0, TYPE_INT = 1, TYPE_LONG = 2, TYPE_FLOAT = 3, TYPE_STRING = 4, TYPE_BINARY = 5, TYPE_REMOVED = -1;
 
     //general state data
     protected Fi dataDirectory;
@@ -25,6 +28,23 @@ public class Settings{
     protected Cons<Throwable> errorHandler;
     protected boolean hasErrored;
 
+    //persistence state
+    /** Keys changed or removed since the last save. */
+    protected ObjectSet<String> dirty = new ObjectSet<>();
+    /** Whether anything changed since the last save; if not, saving does nothing. */
+    protected boolean modified;
+    /** Guards {@link #requireFullSave}, {@link #journalSize} and {@link #writtenGeneration}, which the async writer also changes. */
+    protected final Object saveLock = new Object();
+    /** Set when the journal can't be used for the next save, e.g. after clear() or a failed write. */
+    protected boolean requireFullSave = true;
+    protected boolean async, journal;
+    protected long journalCompactSize = 64 * 1024;
+    protected long journalSize;
+    protected AsyncExecutor executor;
+    protected long saveGeneration;
+    protected long writtenGeneration;
+    protected final AtomicReference<PendingSave> pendingSave = new AtomicReference<>();
+
     //IO utility objects
     protected ByteArrayOutputStream byteStream = new OptimizedByteArrayOutputStream(16);
     protected ReusableByteInStream byteInputStream = new ReusableByteInStream();
@@ -85,6 +105,35 @@ public class Settings{
         errorHandler = handler;
     }
 
+    /**
+     * If true, {@link #saveValues()} only takes a snapshot of the changed values on the calling thread and writes them to
+     * disk on a background thread. Several full saves queued at once are coalesced into one write.
+     * Use {@link #finishSaving()} to wait for pending writes, e.g. before exiting.
+     */
+    public void setAsync(boolean async){
+        this.async = async;
+    }
+
+    /**
+     * If true, saving appends only the entries changed since the last save to a journal file, which is replayed on load.
+     * The full settings file is rewritten, and the journal deleted, once the journal grows beyond the compaction size.
+     */
+    public void setJournal(boolean journal){
+        this.journal = journal;
+    }
+
+    /** Sets the journal size in bytes after which the next save rewrites the full settings file. */
+    public void setJournalCompactSize(long bytes){
+        this.journalCompactSize = bytes;
+    }
+
+    /** Blocks until all pending asynchronous writes have completed. */
+    public void finishSaving(){
+        if(executor != null){
+            executor.submit(() -> {}).get();
+        }
+    }
+
     /** Loads all values and keybinds. */
     public void load(){
         try{
@@ -124,9 +173,13 @@ public class Settings{
 
         try{
             loadValues(getSettingsFile());
+            loadJournal(getJournalFile());
 
             //back up the save file, as the values have now been loaded successfully
             getSettingsFile().copyTo(getBackupSettingsFile());
+            synchronized(saveLock){
+                requireFullSave = false;
+            }
         }catch(Exception e){
             Log.err("Failed to load base settings file, attempting to load backup.", e);
             try{
@@ -147,74 +200,227 @@ public class Settings{
             for(int i = 0; i < amount; i++){
                 String key = stream.readUTF();
                 byte type = stream.readByte();
+                Object value = readValue(stream, type);
+                if(value != null) values.put(key, value);
+            }
+        }
+    }
 
-                switch(type){
-                    case TYPE_BOOL:
-                        values.put(key, stream.readBoolean());
-                        break;
-                    case TYPE_INT:
-                        values.put(key, stream.readInt());
-                        break;
-                    case TYPE_LONG:
-                        values.put(key, stream.readLong());
-                        break;
-                    case TYPE_FLOAT:
-                        values.put(key, stream.readFloat());
-                        break;
-                    case TYPE_STRING:
-                        values.put(key, stream.readUTF());
-                        break;
-                    case TYPE_BINARY:
-                        int length = stream.readInt();
-                        byte[] bytes = new byte[length];
-                        stream.read(bytes);
-                        values.put(key, bytes);
+    /** Replays the changes recorded in a journal file. A record cut off by a crash ends the journal. */
+    public void loadJournal(Fi file) throws IOException{
+        synchronized(saveLock){
+            journalSize = file.exists() ? file.length() : 0;
+        }
+        if(!file.exists()) return;
+
+        try(DataInputStream stream = new DataInputStream(file.read(8192))){
+            while(true){
+                String key;
+                byte type;
+                try{
+                    key = stream.readUTF();
+                    type = stream.readByte();
+                }catch(EOFException e){
+                    break;
+                }
+
+                if(type == TYPE_REMOVED){
+                    values.remove(key);
+                }else{
+                    try{
+                        Object value = readValue(stream, type);
+                        if(value != null) values.put(key, value);
+                    }catch(EOFException e){
                         break;
+                    }
                 }
             }
         }
     }
 
-    /** Saves all entries from {@link #values} into the correct location. */
+    /** @return the value of the specified type read from the stream, or null for an unknown type. */
+    protected Object readValue(DataInputStream stream, byte type) throws IOException{
+        switch(type){
+            case TYPE_BOOL:
+                return stream.readBoolean();
+            case TYPE_INT:
+                return stream.readInt();
+            case TYPE_LONG:
+                return stream.readLong();
+            case TYPE_FLOAT:
+                return stream.readFloat();
+            case TYPE_STRING:
+                return stream.readUTF();
+            case TYPE_BINARY:
+                int length = stream.readInt();
+                byte[] bytes = new byte[length];
+                stream.readFully(bytes);
+                return bytes;
+            default:
+                return null;
+        }
+    }
+
+    /** Writes the type and value of an entry. */
+    protected void writeValue(DataOutputStream stream, Object value) throws IOException{
+        if(value instanceof Boolean){
+            stream.writeByte(TYPE_BOOL);
+            stream.writeBoolean((Boolean)value);
+        }else if(value instanceof Integer){
+            stream.writeByte(TYPE_INT);
+            stream.writeInt((Integer)value);
+        }else if(value instanceof Long){
+            stream.writeByte(TYPE_LONG);
+            stream.writeLong((Long)value);
+        }else if(value instanceof Float){
+            stream.writeByte(TYPE_FLOAT);
+            stream.writeFloat((Float)value);
+        }else if(value instanceof String){
+            stream.writeByte(TYPE_STRING);
+            stream.writeUTF((String)value);
+        }else if(value instanceof byte[]){
+            stream.writeByte(TYPE_BINARY);
+            stream.writeInt(((byte[])value).length);
+            stream.write((byte[])value);
+        }
+    }
+
+    /**
+     * Saves all entries from {@link #values} into the correct location. Does nothing if no values changed since the last save.
+     * With a {@link #setJournal(boolean) journal}, only changed entries are appended to it; otherwise the whole file is
+     * rewritten to a temporary file that then replaces the settings file, so a failed write never loses the previous values.
+     */
     public void saveValues(){
-        Fi file = getSettingsFile();
+        boolean full;
+        synchronized(saveLock){
+            if(!modified && !requireFullSave) return;
+
+            //cleared together with the check, so that a failure reported by the writer in between isn't lost
+            full = !journal || requireFullSave || journalSize >= journalCompactSize;
+            requireFullSave = false;
+        }
 
-        try(DataOutputStream stream = new DataOutputStream(file.write(false, 8192))){
-            stream.writeInt(values.size);
+        long generation = ++saveGeneration;
+        if(full){
+            PendingSave save = new PendingSave(new ObjectMap<>(values), generation);
+            if(async){
+                //only the latest snapshot queued is written
+                pendingSave.set(save);
+                executor().submit(() -> writeAsync(() -> {
+                    PendingSave latest = pendingSave.getAndSet(null);
+                    if(latest != null) writeValues(latest);
+                }));
+            }else{
+                writeValues(save);
+            }
+        }else{
+            Array<String> keys = new Array<>(dirty.size);
+            Array<Object> changed = new Array<>(dirty.size);
+            for(String key : dirty){
+                keys.add(key);
+                changed.add(values.get(key));
+            }
 
-            for(Entry<String, Object> entry : values.entries()){
+            if(async){
+                executor().submit(() -> writeAsync(() -> appendJournal(keys, changed, generation)));
+            }else{
+                appendJournal(keys, changed, generation);
+            }
+        }
+
+        dirty.clear();
+        modified = false;
+    }
+
+    protected void writeValues(PendingSave save){
+        Fi file = getSettingsFile(), temp = file.sibling(file.name() + ".tmp");
+
+        try(DataOutputStream stream = new DataOutputStream(temp.write(false, 8192))){
+            stream.writeInt(save.values.size);
+
+            for(Entry<String, Object> entry : save.values.entries()){
                 stream.writeUTF(entry.key);
+                writeValue(stream, entry.value);
+            }
+        }catch(Throwable e){
+            //the temporary file is now corrupt, but the settings file is untouched
+            temp.delete();
+            markFullSave();
+            throw new RuntimeException("Error writing preferences: " + file, e);
+        }
+
+        replace(temp, file);
+        getJournalFile().delete();
+        synchronized(saveLock){
+            journalSize = 0;
+            writtenGeneration = save.generation;
+        }
+    }
+
+    /** Makes the next save rewrite the whole file, after a write that may have left the files inconsistent. */
+    private void markFullSave(){
+        synchronized(saveLock){
+            requireFullSave = true;
+        }
+    }
+
+    /** Replaces the file with the temporary file, atomically wherever the file system supports it. */
+    private void replace(Fi temp, Fi file){
+        try{
+            java.nio.file.Files.move(temp.file().toPath(), file.file().toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }catch(AtomicMoveNotSupportedException | NoClassDefFoundError e){
+            //no atomic rename on this file system, or no java.nio.file on older Android
+            temp.moveTo(file);
+        }catch(IOException e){
+            //the settings file is untouched
+            markFullSave();
+            throw new RuntimeException("Error replacing preferences: " + file, e);
+        }
+    }
 
-                Object value = entry.value;
-
-                if(value instanceof Boolean){
-                    stream.writeByte(TYPE_BOOL);
-                    stream.writeBoolean((Boolean)value);
-                }else if(value instanceof Integer){
-                    stream.writeByte(TYPE_INT);
-                    stream.writeInt((Integer)value);
-                }else if(value instanceof Long){
-                    stream.writeByte(TYPE_LONG);
-                    stream.writeLong((Long)value);
-                }else if(value instanceof Float){
-                    stream.writeByte(TYPE_FLOAT);
-                    stream.writeFloat((Float)value);
-                }else if(value instanceof String){
-                    stream.writeByte(TYPE_STRING);
-                    stream.writeUTF((String)value);
-                }else if(value instanceof byte[]){
-                    stream.writeByte(TYPE_BINARY);
-                    stream.writeInt(((byte[])value).length);
-                    stream.write((byte[])value);
+    protected void appendJournal(Array<String> keys, Array<Object> changed, long generation){
+        //a later full save already contains these changes
+        synchronized(saveLock){
+            if(generation < writtenGeneration) return;
+        }
+
+        Fi file = getJournalFile();
+        try(DataOutputStream stream = new DataOutputStream(file.write(true, 8192))){
+            for(int i = 0; i < keys.size; i++){
+                stream.writeUTF(keys.get(i));
+                Object value = changed.get(i);
+                if(value == null){
+                    stream.writeByte(TYPE_REMOVED);
+                }else{
+                    writeValue(stream, value);
                 }
             }
+            synchronized(saveLock){
+                journalSize += stream.size();
+            }
         }catch(Throwable e){
-            //file is now corrupt, delete it
-            file.delete();
-            throw new RuntimeException("Error writing preferences: " + file, e);
+            markFullSave();
+            throw new RuntimeException("Error writing preferences journal: " + file, e);
+        }
+    }
+
+    private void writeAsync(Runnable write){
+        try{
+            write.run();
+        }catch(Throwable error){
+            if(errorHandler != null && Core.app != null){
+                Core.app.post(() -> errorHandler.get(error));
+            }else{
+                Log.err(error);
+            }
         }
     }
 
+    private AsyncExecutor executor(){
+        if(executor == null) executor = new AsyncExecutor(1);
+        return executor;
+    }
+
     /** Returns the file used for writing settings to. Not available on all platforms! */
     public Fi getSettingsFile(){
         return getDataDirectory().child("settings.bin");
@@ -224,6 +430,11 @@ public class Settings{
         return getDataDirectory().child("settings_backup.bin");
     }
 
+    /** Returns the file that changes are appended to when the journal is enabled. */
+    public Fi getJournalFile(){
+        return getDataDirectory().child("settings_journal.bin");
+    }
+
     /** Returns the directory where all settings and data is placed. */
     public Fi getDataDirectory(){
         return dataDirectory == null ? Core.files.absolute(OS.getAppDataDirectoryString(appName)) : dataDirectory;
@@ -247,6 +458,9 @@ public class Settings{
     /** Clears all prefence values. */
     public void clear(){
         values.clear();
+        dirty.clear();
+        modified = true;
+        markFullSave();
     }
 
     public Object getDefault(String name){
@@ -374,20 +588,40 @@ public class Settings{
     public void put(String name, Object object){
         if(object instanceof Float || object instanceof Integer || object instanceof Boolean || object instanceof Long
         || object instanceof String || object instanceof byte[]){
-            values.put(name, object);
+            Object previous = values.put(name, object);
+            //arrays are compared by identity, and the caller may have changed the contents of the same array
+            if(object instanceof byte[] || !object.equals(previous)){
+                dirty.add(name);
+                modified = true;
+            }
         }else{
             throw new IllegalArgumentException("Invalid object stored: " + (object == null ? null : object.getClass()) + ". Use putObject() for serialization.");
         }
     }
 
     public void remove(String name){
-        values.remove(name);
+        if(values.containsKey(name)){
+            values.remove(name);
+            dirty.add(name);
+            modified = true;
+        }
     }
 
     public Iterable<String> keys(){
         return values.keys();
     }
 
+    /** A snapshot of all values to be written. */
+    protected static class PendingSave{
+        public final ObjectMap<String, Object> values;
+        public final long generation;
+
+        public PendingSave(ObjectMap<String, Object> values, long generation){
+            this.values = values;
+            this.generation = generation;
+        }
+    }
+
     public interface TypeSerializer<T>{
         void write(DataOutput stream, T object) throws IOException;
         T read(DataInput stream) throws IOException;
@@ -4,75 +4,105 @@ import arc.Files.*;
 import arc.struct.*;
 import arc.util.*;
 import arc.util.ArcAnnotate.*;
+import arc.util.io.*;
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
 import java.util.*;
 import java.util.zip.*;
 
-/** A FileHandle meant for easily representing and reading the contents of a zip/jar file.*/
+/**
+ * A FileHandle meant for easily representing and reading the contents of a zip/jar file.
+ * The directory tree is built in a single pass over the entries, and uncompressed entries of up to
+ * {@link #maxDirectRead} bytes are read from the archive file directly instead of going through {@link ZipFile}.
+ * Deleting the root closes the archive.
+ */
 public class ZipFi extends Fi{
-    private ZipFi[] children = {};
+    /** The size of the largest uncompressed entry that is read in one go; larger ones are streamed by {@link ZipFile}. */
+    public static final int maxDirectRead = 1 << 20;
+
+    private @Nullable Array<ZipFi> childList;
+    private @Nullable ZipFi[] children;
     private ZipFi parent;
 
-    private final @Nullable ZipEntry entry;
+    private @Nullable ZipEntry entry;
     private final @NonNull ZipFile zip;
+    private final Archive archive;
+    /** The path of this file within the archive, without a trailing slash. The root is empty. */
+    private final String key;
 
     public ZipFi(Fi zipFileLoc){
         super(new File(""), FileType.absolute);
         entry = null;
+        key = "";
 
         try{
             zip = new ZipFile(zipFileLoc.file());
+            archive = new Archive(zip, zipFileLoc);
+            archive.nodes.put(key, this);
 
-            Array<String> names = Array.with(Collections.list(zip.entries())).map(ZipEntry::getName);
-            ObjectSet<String> paths = new ObjectSet<>();
-
-            for(String path : names){
-                paths.add(path);
-                while(path.contains("/") && !path.equals("/") && path.substring(0, path.length() - 1).contains("/")){
-                    int index = path.endsWith("/") ? path.substring(0, path.length() - 1).lastIndexOf('/') : path.lastIndexOf('/');
-                    path = path.substring(0, index);
-                    paths.add(path.endsWith("/") ? path : path + "/");
+            for(Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements();){
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if(name.equals("/")){
+                    file = new File("/");
+                    continue;
                 }
-            }
 
-            if(paths.contains("/")){
-                file = new File("/");
-                paths.remove("/");
+                String path = name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+                ZipFi node = archive.nodes.get(path);
+                if(node == null){
+                    node = new ZipFi(path, entry, archive);
+                    archive.nodes.put(path, node);
+                    link(node);
+                }else if(node.entry == null){
+                    //a directory that was created for one of its children earlier
+                    node.entry = entry;
+                }
             }
 
-            Array<ZipFi> files = Array.with(paths).map(s -> zip.getEntry(s) != null ?
-                new ZipFi(zip.getEntry(s), zip) : new ZipFi(s, zip));
-
-            files.add(this);
-
-            //find parents
-            files.each(file -> file.parent = files.find(other -> other.isDirectory() && other != file
-                && file.path().startsWith(other.path()) && !file.path().substring(1 + other.path().length()).contains("/")));
-            //transform parents into children
-            files.each(file -> file.children = files.select(f -> f.parent == file).toArray(ZipFi.class));
-
             parent = null;
         }catch(IOException e){
             throw new ArcRuntimeException(e);
         }
     }
 
-    private ZipFi(ZipEntry entry, ZipFile file){
-        super(new File(entry.getName()), FileType.absolute);
+    private ZipFi(String path, @Nullable ZipEntry entry, Archive archive){
+        super(new File(path), FileType.absolute);
+        this.key = path;
         this.entry = entry;
-        this.zip = file;
+        this.zip = archive.zip;
+        this.archive = archive;
     }
 
-    private ZipFi(String path, ZipFile file){
-        super(new File(path), FileType.absolute);
-        this.entry = null;
-        this.zip = file;
+    /** Attaches a new node to its parent directory, creating missing directories up the tree. */
+    private void link(ZipFi node){
+        while(true){
+            int index = node.key.lastIndexOf('/');
+            String parentKey = index == -1 ? "" : node.key.substring(0, index);
+
+            ZipFi parent = archive.nodes.get(parentKey);
+            boolean created = parent == null;
+            if(created){
+                parent = new ZipFi(parentKey, null, archive);
+                archive.nodes.put(parentKey, parent);
+            }
+
+            node.parent = parent;
+            if(parent.childList == null) parent.childList = new Array<>(ZipFi.class);
+            parent.childList.add(node);
+
+            if(!created) return;
+            node = parent;
+        }
     }
 
     @Override
     public boolean delete(){
         try{
+            archive.close();
             zip.close();
         }catch(IOException e){
             Log.err(e);
@@ -89,10 +119,9 @@ public class ZipFi extends Fi{
 
     @Override
     public Fi child(String name){
-        for(ZipFi child : children){
-            if(child.name().equals(name)){
-                return child;
-            }
+        ZipFi child = archive.nodes.get(key.isEmpty() ? name : key + "/" + name);
+        if(child != null && child.parent == this){
+            return child;
         }
         return new Fi(new File(file, name)){
             @Override
@@ -114,6 +143,9 @@ public class ZipFi extends Fi{
 
     @Override
     public Fi[] list(){
+        if(children == null){
+            children = childList == null ? new ZipFi[0] : childList.toArray();
+        }
         return children;
     }
 
@@ -125,6 +157,10 @@ public class ZipFi extends Fi{
     @Override
     public InputStream read(){
         if(entry == null) throw new RuntimeException("Not permitted.");
+
+        ByteBuffer data = archive.storedData(entry);
+        if(data != null) return new BufferStream(data);
+
         try{
             return zip.getInputStream(entry);
         }catch(IOException e){
@@ -132,8 +168,168 @@ public class ZipFi extends Fi{
         }
     }
 
+    @Override
+    public byte[] readBytes(){
+        if(entry != null){
+            ByteBuffer data = archive.storedData(entry);
+            if(data != null){
+                byte[] bytes = new byte[data.remaining()];
+                data.get(bytes);
+                return bytes;
+            }
+        }
+        return super.readBytes();
+    }
+
     @Override
     public long length(){
         return isDirectory() ? 0 : entry.getSize();
     }
-}
\ No newline at end of file
+
+    /** State shared by all files of one archive. */
+    private static class Archive{
+        static final int localHeader = 0x04034b50, centralHeader = 0x02014b50, endHeader = 0x06054b50;
+
+        final ZipFile zip;
+        final Fi source;
+        final ObjectMap<String, ZipFi> nodes = new ObjectMap<>();
+        /** Local header offsets of uncompressed entries. */
+        final ObjectIntMap<String> offsets = new ObjectIntMap<>();
+        /** The archive file, opened on the first read of an uncompressed entry; null if it can't be read directly. */
+        @Nullable FileChannel channel;
+        boolean opened;
+
+        Archive(ZipFile zip, Fi source){
+            this.zip = zip;
+            this.source = source;
+        }
+
+        /** @return the data of an uncompressed entry, or null if it is compressed, too large or can't be read directly. */
+        synchronized @Nullable ByteBuffer storedData(ZipEntry entry){
+            if(entry.getMethod() != ZipEntry.STORED || entry.isDirectory() || entry.getCompressedSize() > maxDirectRead) return null;
+
+            if(!opened){
+                opened = true;
+                try{
+                    channel = new RandomAccessFile(source.file(), "r").getChannel();
+                    readCentralDirectory();
+                }catch(Throwable e){
+                    //zip64 or otherwise unreadable; fall back to ZipFile
+                    close();
+                }
+            }
+
+            int offset = offsets.get(entry.getName(), -1);
+            if(channel == null || offset < 0) return null;
+
+            try{
+                ByteBuffer header = read(offset, 30);
+                if(header.getInt(0) != localHeader) return null;
+
+                int start = offset + 30 + (header.getShort(26) & 0xffff) + (header.getShort(28) & 0xffff);
+                return read(start, (int)entry.getCompressedSize());
+            }catch(IOException e){
+                return null;
+            }
+        }
+
+        /** Closes the archive file. Later reads of uncompressed entries go through {@link ZipFile}. */
+        synchronized void close(){
+            if(channel != null){
+                Streams.close(channel);
+                channel = null;
+            }
+            opened = true;
+        }
+
+        /** @return a little-endian buffer holding the bytes of the archive at the position. */
+        private ByteBuffer read(long position, int length) throws IOException{
+            ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+            while(buffer.hasRemaining()){
+                if(channel.read(buffer, position + buffer.position()) < 0) throw new EOFException();
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        private void readCentralDirectory() throws IOException{
+            long size = channel.size();
+            long tailStart = Math.max(0, size - 22 - 0xffff);
+            ByteBuffer tail = read(tailStart, (int)(size - tailStart));
+
+            int end = -1;
+            for(int i = tail.limit() - 22; i >= 0; i--){
+                if(tail.getInt(i) == endHeader){
+                    end = i;
+                    break;
+                }
+            }
+            if(end == -1) throw new ArcRuntimeException("No end of central directory found.");
+
+            int count = tail.getShort(end + 10) & 0xffff;
+            long length = tail.getInt(end + 12) & 0xffffffffL;
+            long directory = tail.getInt(end + 16) & 0xffffffffL;
+            if(count == 0xffff || directory == 0xffffffffL || length > Integer.MAX_VALUE){
+                throw new ArcRuntimeException("Zip64 archives are not read directly.");
+            }
+
+            ByteBuffer entries = read(directory, (int)length);
+            int position = 0;
+            byte[] name = new byte[256];
+            for(int i = 0; i < count; i++){
+                if(entries.getInt(position) != centralHeader) throw new ArcRuntimeException("Invalid central directory.");
+
+                int method = entries.getShort(position + 10) & 0xffff;
+                int nameLength = entries.getShort(position + 28) & 0xffff;
+                int extraLength = entries.getShort(position + 30) & 0xffff;
+                int commentLength = entries.getShort(position + 32) & 0xffff;
+                long offset = entries.getInt(position + 42) & 0xffffffffL;
+
+                if(method == ZipEntry.STORED && offset < Integer.MAX_VALUE){
+                    if(name.length < nameLength) name = new byte[nameLength];
+                    for(int j = 0; j < nameLength; j++){
+                        name[j] = entries.get(position + 46 + j);
+                    }
+                    offsets.put(new String(name, 0, nameLength, StandardCharsets.UTF_8), (int)offset);
+                }
+
+                position += 46 + nameLength + extraLength + commentLength;
+            }
+        }
+    }
+
+    /** An input stream over the remaining bytes of a buffer. */
+    private static class BufferStream extends InputStream{
+        private final ByteBuffer buffer;
+
+        BufferStream(ByteBuffer buffer){
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read(){
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length){
+            if(length == 0) return 0;
+            if(!buffer.hasRemaining()) return -1;
+            length = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, length);
+            return length;
+        }
+
+        @Override
+        public long skip(long n){
+            int skipped = (int)Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available(){
+            return buffer.remaining();
+        }
+    }
+}
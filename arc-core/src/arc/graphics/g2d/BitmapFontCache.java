@@ -28,6 +28,7 @@ public class BitmapFontCache{
     private int glyphCount;
     private float x, y;
     private float currentTint;
+    private GlyphLayoutCache layoutCache;
 
     /** Vertex data per page. */
     private float[][] pageVertices;
@@ -520,9 +521,14 @@ public class BitmapFontCache{
      */
     public GlyphLayout addText(CharSequence str, float x, float y, int start, int end, float targetWidth, int halign,
                                boolean wrap, String truncate){
-        GlyphLayout layout = Pools.obtain(GlyphLayout.class, GlyphLayout::new);
-        pooledLayouts.add(layout);
-        layout.setText(font, str, start, end, color, targetWidth, halign, wrap, truncate);
+        GlyphLayout layout;
+        if(layoutCache != null){
+            layout = layoutCache.get(font, str, start, end, color, targetWidth, halign, wrap, truncate);
+        }else{
+            layout = Pools.obtain(GlyphLayout.class, GlyphLayout::new);
+            pooledLayouts.add(layout);
+            layout.setText(font, str, start, end, color, targetWidth, halign, wrap, truncate);
+        }
         addText(layout, x, y);
         return layout;
     }
@@ -542,6 +548,19 @@ public class BitmapFontCache{
         return y;
     }
 
+    public GlyphLayoutCache getLayoutCache(){
+        return layoutCache;
+    }
+
+    /**
+     * Sets the cache used to lay out text added by string. Layouts returned by {@link #addText(CharSequence, float, float)} and
+     * similar methods are then shared and must not be modified.
+     * @param layoutCache May be null.
+     */
+    public void setLayoutCache(GlyphLayoutCache layoutCache){
+        this.layoutCache = layoutCache;
+    }
+
     public BitmapFont getFont(){
         return font;
     }
@@ -203,6 +203,35 @@ public class Draw{
         rect(Core.atlas.find(region), x, y, rotation);
     }
 
+    /**
+     * Draws the region of a handle from {@link TextureAtlas#handle(String)}, like the matching rect overload. This is not
+     * an overload of rect, so that with static imports of Fill or Lines, rect(0, 0, w, h) keeps meaning a rectangle.
+     * @param region A handle from {@link TextureAtlas#handle(String)}.
+     */
+    public static void region(int region, float x, float y, float w, float h){
+        rect(Core.atlas.find(region), x, y, w, h);
+    }
+
+    /** @param region A handle from {@link TextureAtlas#handle(String)}. */
+    public static void region(int region, float x, float y){
+        rect(Core.atlas.find(region), x, y);
+    }
+
+    /** @param region A handle from {@link TextureAtlas#handle(String)}. */
+    public static void region(int region, float x, float y, float w, float h, float originX, float originY, float rotation){
+        rect(Core.atlas.find(region), x, y, w, h, originX, originY, rotation);
+    }
+
+    /** @param region A handle from {@link TextureAtlas#handle(String)}. */
+    public static void region(int region, float x, float y, float w, float h, float rotation){
+        rect(Core.atlas.find(region), x, y, w, h, w/2f, h/2f, rotation);
+    }
+
+    /** @param region A handle from {@link TextureAtlas#handle(String)}. */
+    public static void region(int region, float x, float y, float rotation){
+        rect(Core.atlas.find(region), x, y, rotation);
+    }
+
     public static void vert(Texture texture, float[] vertices, int offset, int length){
         Core.batch.draw(texture, vertices, offset, length);
     }
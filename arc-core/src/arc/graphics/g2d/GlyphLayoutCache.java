@@ -0,0 +1,188 @@
+package arc.graphics.g2d;
+
+import arc.graphics.Color;
+import arc.graphics.g2d.BitmapFont.BitmapFontData;
+import arc.struct.ObjectMap;
+
+/**
+ * A bounded cache of {@link GlyphLayout layouts}, keyed by everything that affects
+ * {@link GlyphLayout#setText(BitmapFont, CharSequence, int, int, Color, float, int, boolean, String)}: the font and its
+ * scale and markup setting, the text, color, target width, alignment, wrapping and truncation. When full, the least
+ * recently used layout is dropped.
+ * <p>
+ * Returned layouts are shared and must not be modified. They are never returned to a pool, so they stay valid after
+ * being dropped from the cache. Call {@link #clear()} after changing glyphs of a font that is in use. This class is not
+ * thread safe.
+ */
+public class GlyphLayoutCache{
+    /** The maximum number of layouts held. */
+    public final int maxSize;
+
+    private final ObjectMap<Key, Entry> entries;
+    private final Key lookup = new Key();
+    /** Most and least recently used entries. */
+    private Entry head, tail;
+    private long hits, misses;
+
+    public GlyphLayoutCache(int maxSize){
+        if(maxSize <= 0) throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        this.maxSize = maxSize;
+        this.entries = new ObjectMap<>(Math.min(maxSize, 1024));
+    }
+
+    public GlyphLayout get(BitmapFont font, CharSequence str, Color color, float targetWidth, int halign, boolean wrap){
+        return get(font, str, 0, str.length(), color, targetWidth, halign, wrap, null);
+    }
+
+    /**
+     * Returns the layout for the text, laying it out if it isn't cached.
+     * @see GlyphLayout#setText(BitmapFont, CharSequence, int, int, Color, float, int, boolean, String)
+     */
+    public GlyphLayout get(BitmapFont font, CharSequence str, int start, int end, Color color, float targetWidth, int halign,
+                           boolean wrap, String truncate){
+        Key lookup = this.lookup;
+        lookup.set(font, str, start, end, color, targetWidth, halign, wrap, truncate);
+
+        Entry entry = entries.get(lookup);
+        if(entry != null){
+            hits++;
+            if(entry != head){
+                unlink(entry);
+                link(entry);
+            }
+            lookup.text = null;
+            return entry.layout;
+        }
+
+        misses++;
+        GlyphLayout layout = new GlyphLayout(font, str, start, end, color, targetWidth, halign, wrap, truncate);
+
+        Key key = new Key();
+        key.set(font, str, start, end, color, targetWidth, halign, wrap, truncate);
+        key.text = str.subSequence(start, end).toString();
+        key.start = 0;
+        key.end = key.text.length();
+        lookup.text = null;
+
+        entry = new Entry(key, layout);
+        entries.put(key, entry);
+        link(entry);
+
+        if(entries.size > maxSize){
+            Entry eldest = tail;
+            unlink(eldest);
+            entries.remove(eldest.key);
+        }
+        return layout;
+    }
+
+    /** Removes all layouts. */
+    public void clear(){
+        entries.clear();
+        head = tail = null;
+    }
+
+    public int size(){
+        return entries.size;
+    }
+
+    /** @return the number of times a cached layout was returned. */
+    public long getHits(){
+        return hits;
+    }
+
+    /** @return the number of times text had to be laid out. */
+    public long getMisses(){
+        return misses;
+    }
+
+    /** Resets the hit and miss counters. */
+    public void resetCounts(){
+        hits = misses = 0;
+    }
+
+    private void link(Entry entry){
+        entry.prev = null;
+        entry.next = head;
+        if(head != null) head.prev = entry;
+        head = entry;
+        if(tail == null) tail = entry;
+    }
+
+    private void unlink(Entry entry){
+        if(entry.prev != null) entry.prev.next = entry.next;
+        else head = entry.next;
+        if(entry.next != null) entry.next.prev = entry.prev;
+        else tail = entry.prev;
+        entry.prev = entry.next = null;
+    }
+
+    private static class Entry{
+        final Key key;
+        final GlyphLayout layout;
+        Entry prev, next;
+
+        Entry(Key key, GlyphLayout layout){
+            this.key = key;
+            this.layout = layout;
+        }
+    }
+
+    private static class Key{
+        BitmapFont font;
+        CharSequence text;
+        int start, end;
+        int color, halign;
+        float targetWidth, scaleX, scaleY;
+        boolean wrap, markup;
+        String truncate;
+        int hash;
+
+        void set(BitmapFont font, CharSequence text, int start, int end, Color color, float targetWidth, int halign, boolean wrap, String truncate){
+            BitmapFontData data = font.getData();
+            this.font = font;
+            this.text = text;
+            this.start = start;
+            this.end = end;
+            this.color = color.rgba();
+            this.targetWidth = targetWidth;
+            this.halign = halign;
+            this.wrap = wrap;
+            this.truncate = truncate;
+            this.scaleX = data.scaleX;
+            this.scaleY = data.scaleY;
+            this.markup = data.markupEnabled;
+
+            int hash = System.identityHashCode(font);
+            for(int i = start; i < end; i++){
+                hash = 31 * hash + text.charAt(i);
+            }
+            hash = 31 * hash + this.color;
+            hash = 31 * hash + Float.floatToIntBits(targetWidth);
+            hash = 31 * hash + halign;
+            hash = 31 * hash + (truncate == null ? 0 : truncate.hashCode());
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode(){
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(!(o instanceof Key)) return false;
+            Key other = (Key)o;
+            if(hash != other.hash || font != other.font || color != other.color || halign != other.halign || wrap != other.wrap
+            || markup != other.markup || targetWidth != other.targetWidth || scaleX != other.scaleX || scaleY != other.scaleY
+            || end - start != other.end - other.start) return false;
+            if(truncate == null ? other.truncate != null : !truncate.equals(other.truncate)) return false;
+
+            CharSequence text = this.text, otherText = other.text;
+            for(int i = start, j = other.start; i < end; i++, j++){
+                if(text.charAt(i) != otherText.charAt(j)) return false;
+            }
+            return true;
+        }
+    }
+}
@@ -37,6 +37,11 @@ public class TextureAtlas implements Disposable{
     private final ObjectMap<String, Drawable> drawables = new ObjectMap<>();
     private final ObjectMap<String, AtlasRegion> regionmap = new ObjectMap<>();
     private final ObjectMap<Texture, Pixmap> pixmaps = new ObjectMap<>();
+    /** Handles by region name, and the names and regions of each handle. Regions are null until they exist. */
+    private final ObjectIntMap<String> handles = new ObjectIntMap<>();
+    private final Array<String> handleNames = new Array<>();
+    private final Array<AtlasRegion> handleRegions = new Array<>(AtlasRegion.class);
+    private int lookups;
     protected AtlasRegion error, white;
 
     /** Returns a new texture atlas with only a blank texture region.*/
@@ -181,6 +186,8 @@ public class TextureAtlas implements Disposable{
         region.index = -1;
         regions.add(region);
         regionmap.put(name, region);
+        int handle = handles.get(name, -1);
+        if(handle != -1) handleRegions.set(handle, region);
         return region;
     }
 
@@ -224,6 +231,7 @@ public class TextureAtlas implements Disposable{
      * @return The region, or the error region (if it is defined), or null.
      */
     public AtlasRegion find(String name){
+        lookups++;
         AtlasRegion r = regionmap.get(name);
         if(r == null && error == null && !(name.equals("error")))
             throw new IllegalArgumentException("The region \"" + name + "\" does not exist!");
@@ -232,10 +240,55 @@ public class TextureAtlas implements Disposable{
     }
 
     public TextureRegion find(String name, TextureRegion def){
+        lookups++;
         TextureRegion region = regionmap.get(name);
         return region == null || region == error ? def : region;
     }
 
+    /**
+     * Returns a handle for the region with the specified name, which can be passed to {@link #find(int)} to look it up
+     * without hashing the name. Handles stay valid for the lifetime of the atlas, and may be requested before the region
+     * is added.
+     */
+    public int handle(String name){
+        int handle = handles.get(name, -1);
+        if(handle == -1){
+            handle = handleNames.size;
+            handles.put(name, handle);
+            handleNames.add(name);
+            handleRegions.add(regionmap.get(name));
+        }
+        return handle;
+    }
+
+    /**
+     * Returns the region for a handle from {@link #handle(String)}.
+     * @return The region, or the error region (if it is defined), or null.
+     * @throws IndexOutOfBoundsException if the handle wasn't returned by {@link #handle(String)} of this atlas.
+     */
+    public AtlasRegion find(int handle){
+        AtlasRegion region = handleRegions.items[handle];
+        if(region != null) return region;
+
+        //the region doesn't exist, or didn't when the handle was created
+        region = regionmap.get(handleNames.get(handle));
+        if(region != null){
+            handleRegions.set(handle, region);
+            return region;
+        }
+        return find(handleNames.get(handle));
+    }
+
+    /** @return the number of lookups by name since the last call to {@link #resetLookups()}. */
+    public int getLookups(){
+        return lookups;
+    }
+
+    /** Resets the lookup counter; call once a frame to get the number of lookups by name per frame. */
+    public void resetLookups(){
+        lookups = 0;
+    }
+
     /**
      * Returns the first region found with the specified name and index. This method uses string comparison to find the region, so
      * the result should be cached rather than calling this method multiple times.
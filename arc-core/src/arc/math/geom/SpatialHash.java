@@ -0,0 +1,242 @@
+package arc.math.geom;
+
+import arc.func.*;
+import arc.math.geom.QuadTree.*;
+import arc.struct.*;
+
+/**
+ * A spatial index that groups objects into grid cells of a fixed size, stored in a hash table so the world doesn't need
+ * bounds. Each object is kept in the single cell containing the bottom left corner of its hitbox, and queries are
+ * widened by the largest hitbox size seen, so moving an object only relinks it when its corner changes cells.
+ * <p>
+ * Objects are referred to by the handle returned by {@link #insert(QuadTreeObject)}. Hitboxes are cached when an object
+ * is inserted or updated; call {@link #update(int)} or {@link #updateAll()} after objects move.
+ * <p>
+ * Queries don't allocate or modify any state, so any number of threads may query at once, as long as no thread is
+ * modifying the index at the same time.
+ */
+public class SpatialHash<T extends QuadTreeObject>{
+    private static final int empty = -1;
+
+    private final float invCellSize;
+    private final Rect tmp = new Rect();
+
+    /** Heads of the object lists of each bucket. Several cells may share a bucket. */
+    private int[] buckets;
+    private int bucketMask;
+
+    private Object[] items;
+    /** Cached hitboxes, four floats per object. */
+    private float[] bounds;
+    private int[] cellX, cellY, next, prev;
+    private int size, capacity, freeHead = empty;
+    private float maxWidth, maxHeight;
+
+    /** @param cellSize The size of a grid cell. Works best at around the size of the typical query. */
+    public SpatialHash(float cellSize){
+        this(cellSize, 64);
+    }
+
+    /** @param capacity The number of objects to allocate storage for. */
+    public SpatialHash(float cellSize, int capacity){
+        if(cellSize <= 0) throw new IllegalArgumentException("cellSize must be positive: " + cellSize);
+        this.invCellSize = 1f / cellSize;
+
+        capacity = Math.max(capacity, 1);
+        items = new Object[capacity];
+        bounds = new float[capacity * 4];
+        cellX = new int[capacity];
+        cellY = new int[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+        initBuckets(capacity);
+    }
+
+    /** @return the handle of the object, which stays valid until it is removed. */
+    public int insert(T obj){
+        int id;
+        if(freeHead != empty){
+            id = freeHead;
+            freeHead = next[id];
+        }else{
+            if(capacity == items.length) resize(capacity * 2);
+            id = capacity++;
+        }
+
+        items[id] = obj;
+        store(id, obj);
+        if(++size > buckets.length){
+            rehash(buckets.length * 2);
+        }else{
+            link(id);
+        }
+        return id;
+    }
+
+    /** Re-reads the hitbox of an object after it moved or changed size. */
+    public void update(int id){
+        T obj = get(id);
+        int oldX = cellX[id], oldY = cellY[id];
+        store(id, obj);
+
+        if(oldX != cellX[id] || oldY != cellY[id]){
+            unlink(id, oldX, oldY);
+            link(id);
+        }
+    }
+
+    /** Re-reads the hitboxes of all objects. */
+    public void updateAll(){
+        for(int i = 0; i < capacity; i++){
+            if(items[i] != null) update(i);
+        }
+    }
+
+    /** Removes an object. Its handle may be reused by later insertions. */
+    public void remove(int id){
+        get(id);
+        unlink(id, cellX[id], cellY[id]);
+        items[id] = null;
+        next[id] = freeHead;
+        freeHead = id;
+        size--;
+    }
+
+    /** @return the object with this handle. */
+    @SuppressWarnings("unchecked")
+    public T get(int id){
+        if(id < 0 || id >= capacity || items[id] == null) throw new IllegalArgumentException("Invalid handle: " + id);
+        return (T)items[id];
+    }
+
+    /** Removes all objects. */
+    public void clear(){
+        for(int i = 0; i < capacity; i++) items[i] = null;
+        for(int i = 0; i < buckets.length; i++) buckets[i] = empty;
+        size = capacity = 0;
+        freeHead = empty;
+        maxWidth = maxHeight = 0;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    /** Calls the consumer with each object whose cached hitbox overlaps the specified rectangle. */
+    public void intersect(float x, float y, float width, float height, Cons<T> out){
+        intersect(x, y, width, height, out, null);
+    }
+
+    /** Adds each object whose cached hitbox overlaps the specified rectangle to the array. */
+    public void intersect(Rect rect, Array<T> out){
+        intersect(rect.x, rect.y, rect.width, rect.height, null, out);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void intersect(float x, float y, float width, float height, Cons<T> cons, Array<T> array){
+        int minX = cell(x - maxWidth), maxX = cell(x + width);
+        int minY = cell(y - maxHeight), maxY = cell(y + height);
+
+        //when the query covers more cells than there are buckets, visiting each object once is cheaper
+        if((long)(maxX - minX + 1) * (maxY - minY + 1) > buckets.length){
+            for(int i = 0; i < capacity; i++){
+                if(items[i] != null && overlaps(i, x, y, width, height)){
+                    if(cons != null) cons.get((T)items[i]);
+                    else array.add((T)items[i]);
+                }
+            }
+            return;
+        }
+
+        for(int cx = minX; cx <= maxX; cx++){
+            for(int cy = minY; cy <= maxY; cy++){
+                for(int i = buckets[bucket(cx, cy)]; i != empty; i = next[i]){
+                    //only report objects of this cell, so ones sharing a bucket with another queried cell aren't reported twice
+                    if(cellX[i] == cx && cellY[i] == cy && overlaps(i, x, y, width, height)){
+                        if(cons != null) cons.get((T)items[i]);
+                        else array.add((T)items[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean overlaps(int id, float x, float y, float width, float height){
+        float[] bounds = this.bounds;
+        int i = id * 4;
+        return bounds[i] < x + width && bounds[i] + bounds[i + 2] > x && bounds[i + 1] < y + height && bounds[i + 1] + bounds[i + 3] > y;
+    }
+
+    private void store(int id, T obj){
+        obj.hitbox(tmp);
+        int i = id * 4;
+        bounds[i] = tmp.x;
+        bounds[i + 1] = tmp.y;
+        bounds[i + 2] = tmp.width;
+        bounds[i + 3] = tmp.height;
+        maxWidth = Math.max(maxWidth, tmp.width);
+        maxHeight = Math.max(maxHeight, tmp.height);
+        cellX[id] = cell(tmp.x);
+        cellY[id] = cell(tmp.y);
+    }
+
+    private void link(int id){
+        int bucket = bucket(cellX[id], cellY[id]);
+        int head = buckets[bucket];
+        prev[id] = empty;
+        next[id] = head;
+        if(head != empty) prev[head] = id;
+        buckets[bucket] = id;
+    }
+
+    private void unlink(int id, int x, int y){
+        if(prev[id] != empty){
+            next[prev[id]] = next[id];
+        }else{
+            buckets[bucket(x, y)] = next[id];
+        }
+        if(next[id] != empty) prev[next[id]] = prev[id];
+    }
+
+    private int cell(float value){
+        return (int)Math.floor(value * invCellSize);
+    }
+
+    private int bucket(int x, int y){
+        int hash = x * 0x9E3779B1 + y * 0x85EBCA6B;
+        return (hash ^ (hash >>> 16)) & bucketMask;
+    }
+
+    private void initBuckets(int count){
+        int size = Integer.highestOneBit(Math.max(count - 1, 1)) << 1;
+        buckets = new int[size];
+        bucketMask = size - 1;
+        for(int i = 0; i < size; i++) buckets[i] = empty;
+    }
+
+    private void rehash(int count){
+        initBuckets(count);
+        for(int i = 0; i < capacity; i++){
+            if(items[i] != null) link(i);
+        }
+    }
+
+    private void resize(int newCapacity){
+        Object[] newItems = new Object[newCapacity];
+        System.arraycopy(items, 0, newItems, 0, capacity);
+        items = newItems;
+        float[] newBounds = new float[newCapacity * 4];
+        System.arraycopy(bounds, 0, newBounds, 0, capacity * 4);
+        bounds = newBounds;
+        cellX = copy(cellX, newCapacity);
+        cellY = copy(cellY, newCapacity);
+        next = copy(next, newCapacity);
+        prev = copy(prev, newCapacity);
+    }
+
+    private int[] copy(int[] array, int newCapacity){
+        int[] result = new int[newCapacity];
+        System.arraycopy(array, 0, result, 0, capacity);
+        return result;
+    }
+}
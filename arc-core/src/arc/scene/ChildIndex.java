@@ -0,0 +1,117 @@
+package arc.scene;
+
+import arc.struct.*;
+
+import java.util.*;
+
+/**
+ * Index over the bounds of the children of a {@link Group}, used by {@link Group#setIndexed(boolean)}. Children are
+ * sorted by their lower edge on the axis they are spread out the most along, and a running maximum of their upper edges
+ * lets a query binary search for the first child that can overlap it. Lists, grids and other layouts where children
+ * don't overlap much are queried in O(log n) plus the number of results.
+ * <p>
+ * Bounds are cached when the index is rebuilt, which happens lazily on the first query after {@link #invalidate()}.
+ * Cached bounds cover each child both with and without its translation.
+ */
+final class ChildIndex{
+    private final Group group;
+    private boolean dirty = true, vertical;
+    private int size;
+
+    /** Packed sort keys: the sortable bits of the lower edge, then the child index. */
+    private long[] keys = new long[0];
+    /** Child indices, lower edges and running maximum upper edges on the sorted axis, in sorted order. */
+    private int[] order = new int[0];
+    private float[] mins = new float[0], ends = new float[0];
+    /** Cached bounds in sorted order, four floats per child. */
+    private float[] bounds = new float[0];
+
+    ChildIndex(Group group){
+        this.group = group;
+    }
+
+    /** Called when a child is added, removed, reordered, moved or resized. */
+    void invalidate(){
+        dirty = true;
+    }
+
+    /**
+     * Adds the indices of all children whose bounds overlap the specified rectangle to the array, in ascending order.
+     * Invisible children are included.
+     */
+    void query(float x, float y, float width, float height, IntArray out){
+        if(dirty) rebuild();
+        int start = out.size;
+
+        float low = vertical ? y : x, high = vertical ? y + height : x + width;
+        float right = x + width, top = y + height;
+
+        //first entry whose running maximum reaches the query; none before it can overlap
+        int lo = 0, hi = size;
+        while(lo < hi){
+            int mid = (lo + hi) >>> 1;
+            if(ends[mid] < low) lo = mid + 1;
+            else hi = mid;
+        }
+
+        float[] bounds = this.bounds;
+        for(int i = lo; i < size && mins[i] <= high; i++){
+            int b = i * 4;
+            if(bounds[b] <= right && bounds[b + 1] <= top && bounds[b] + bounds[b + 2] >= x && bounds[b + 1] + bounds[b + 3] >= y){
+                out.add(order[i]);
+            }
+        }
+
+        if(out.size - start > 1) Arrays.sort(out.items, start, out.size);
+    }
+
+    private void rebuild(){
+        dirty = false;
+        Element[] children = group.children.items;
+        int n = size = group.children.size;
+        if(keys.length < n){
+            keys = new long[n];
+            order = new int[n];
+            mins = new float[n];
+            ends = new float[n];
+            bounds = new float[n * 4];
+        }
+
+        //sort along the axis the children are spread out the most on
+        float minX = Float.POSITIVE_INFINITY, maxX = Float.NEGATIVE_INFINITY, minY = minX, maxY = maxX;
+        for(int i = 0; i < n; i++){
+            Element child = children[i];
+            minX = Math.min(minX, child.x);
+            maxX = Math.max(maxX, child.x);
+            minY = Math.min(minY, child.y);
+            maxY = Math.max(maxY, child.y);
+        }
+        vertical = maxY - minY >= maxX - minX;
+
+        for(int i = 0; i < n; i++){
+            Element child = children[i];
+            float min = vertical ? Math.min(child.y, child.y + child.translation.y) : Math.min(child.x, child.x + child.translation.x);
+            int bits = Float.floatToIntBits(min);
+            //flip negative values so that the bits compare like the floats
+            bits ^= (bits >> 31) & 0x7fffffff;
+            keys[i] = ((long)bits << 32) | i;
+        }
+        Arrays.sort(keys, 0, n);
+
+        float end = Float.NEGATIVE_INFINITY;
+        for(int i = 0; i < n; i++){
+            Element child = children[order[i] = (int)keys[i]];
+            float tx = child.translation.x, ty = child.translation.y;
+            float x = Math.min(child.x, child.x + tx), y = Math.min(child.y, child.y + ty);
+            float width = child.width + Math.abs(tx), height = child.height + Math.abs(ty);
+
+            int b = i * 4;
+            bounds[b] = x;
+            bounds[b + 1] = y;
+            bounds[b + 2] = width;
+            bounds[b + 3] = height;
+            mins[i] = vertical ? y : x;
+            ends[i] = end = Math.max(end, vertical ? y + height : x + width);
+        }
+    }
+}
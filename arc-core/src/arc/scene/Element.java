@@ -4,6 +4,7 @@ import arc.Core;
 import arc.math.geom.*;
 import arc.struct.Array;
 import arc.struct.DelayedRemovalArray;
+import arc.struct.ObjectMap;
 import arc.func.Boolp;
 import arc.func.Cons;
 import arc.func.Floatc2;
@@ -24,6 +25,9 @@ import arc.util.pooling.Pools;
 import static arc.util.Align.*;
 
 public class Element implements Layout{
+    /** Whether each class overrides act(float) without also overriding needsAct(). */
+    private static final ObjectMap<Class<?>, Boolean> actOverrides = new ObjectMap<>();
+
     public final Color color = new Color(1, 1, 1, 1);
 
     private final DelayedRemovalArray<EventListener> listeners = new DelayedRemovalArray<>(0);
@@ -52,6 +56,12 @@ public class Element implements Layout{
     private Boolp visibility;
     private Runnable update;
     private Prov<Touchable> touchableSupplier = null;
+    /** The scene that is tracking this element for acting, if any. */
+    Scene actingIn;
+    /** Whether this element's invalidation is waiting to be propagated to its ancestors. */
+    boolean invalidationQueued;
+    /** The last layout pass of the scene that propagated an invalidation through this element. */
+    int layoutPass;
 
     /** Draws the element. Does nothing by default. */
     public void draw(){
@@ -88,6 +98,45 @@ public class Element implements Layout{
             update.run();
     }
 
+    /**
+     * Returns whether {@link #act(float)} has anything to do. Scenes with {@link Scene#setActTracking(boolean) act tracking}
+     * only act elements for which this is true. Subclasses that override act() should override this as well and call
+     * {@link #requestAct()} when it may start returning true; otherwise they are acted every frame.
+     */
+    public boolean needsAct(){
+        return actions.size > 0 || update != null || touchableSupplier != null || visibility != null || overridesAct(getClass());
+    }
+
+    /** Tells the scene that {@link #needsAct()} may have started returning true. */
+    public void requestAct(){
+        if(stage != null) stage.track(this);
+    }
+
+    private static boolean overridesAct(Class<?> type){
+        Boolean result = actOverrides.get(type);
+        if(result == null){
+            result = false;
+            for(Class<?> c = type; c != Element.class && c != Group.class; c = c.getSuperclass()){
+                if(declares(c, "needsAct")) break;
+                if(declares(c, "act", float.class)){
+                    result = true;
+                    break;
+                }
+            }
+            actOverrides.put(type, result);
+        }
+        return result;
+    }
+
+    private static boolean declares(Class<?> type, String name, Class<?>... parameters){
+        try{
+            type.getDeclaredMethod(name, parameters);
+            return true;
+        }catch(NoSuchMethodException e){
+            return false;
+        }
+    }
+
     public void updateVisibility(){
         if(visibility != null)
             visible(visibility.get());
@@ -279,7 +328,10 @@ public class Element implements Layout{
         action.setActor(this);
         actions.add(action);
 
-        if(stage != null && stage.getActionsRequestRendering()) Core.graphics.requestRendering();
+        if(stage != null){
+            stage.track(this);
+            if(stage.getActionsRequestRendering()) Core.graphics.requestRendering();
+        }
     }
 
     public void actions(Action... actions){
@@ -329,6 +381,7 @@ public class Element implements Layout{
      */
     protected void setScene(Scene stage){
         this.stage = stage;
+        if(stage != null) stage.track(this);
     }
 
     /** Returns true if this actor is the same as or is the descendant of the specified actor. */
@@ -411,6 +464,7 @@ public class Element implements Layout{
     public void setX(float x){
         if(this.x != x){
             this.x = x;
+            if(parent != null) parent.invalidateIndex();
             positionChanged();
         }
     }
@@ -433,6 +487,7 @@ public class Element implements Layout{
     public void setY(float y){
         if(this.y != y){
             this.y = y;
+            if(parent != null) parent.invalidateIndex();
             positionChanged();
         }
     }
@@ -452,6 +507,7 @@ public class Element implements Layout{
         if(this.x != x || this.y != y){
             this.x = x;
             this.y = y;
+            if(parent != null) parent.invalidateIndex();
             positionChanged();
         }
     }
@@ -474,6 +530,7 @@ public class Element implements Layout{
         if(this.x != x || this.y != y){
             this.x = x;
             this.y = y;
+            if(parent != null) parent.invalidateIndex();
             positionChanged();
         }
     }
@@ -483,6 +540,7 @@ public class Element implements Layout{
         if(x != 0 || y != 0){
             this.x += x;
             this.y += y;
+            if(parent != null) parent.invalidateIndex();
             positionChanged();
         }
     }
@@ -494,6 +552,7 @@ public class Element implements Layout{
     public void setWidth(float width){
         if(this.width != width){
             this.width = width;
+            if(parent != null) parent.invalidateIndex();
             sizeChanged();
         }
     }
@@ -505,6 +564,7 @@ public class Element implements Layout{
     public void setHeight(float height){
         if(this.height != height){
             this.height = height;
+            if(parent != null) parent.invalidateIndex();
             sizeChanged();
         }
     }
@@ -541,6 +601,7 @@ public class Element implements Layout{
         if(this.width != width || this.height != height){
             this.width = width;
             this.height = height;
+            if(parent != null) parent.invalidateIndex();
             sizeChanged();
         }
     }
@@ -550,6 +611,7 @@ public class Element implements Layout{
         if(size != 0){
             width += size;
             height += size;
+            if(parent != null) parent.invalidateIndex();
             sizeChanged();
         }
     }
@@ -559,6 +621,7 @@ public class Element implements Layout{
         if(width != 0 || height != 0){
             this.width += width;
             this.height += height;
+            if(parent != null) parent.invalidateIndex();
             sizeChanged();
         }
     }
@@ -568,11 +631,13 @@ public class Element implements Layout{
         if(this.x != x || this.y != y){
             this.x = x;
             this.y = y;
+            if(parent != null) parent.invalidateIndex();
             positionChanged();
         }
         if(this.width != width || this.height != height){
             this.width = width;
             this.height = height;
+            if(parent != null) parent.invalidateIndex();
             sizeChanged();
         }
     }
@@ -747,6 +812,7 @@ public class Element implements Layout{
         if(children.get(index) == this) return;
         if(!children.remove(this, true)) return;
         children.insert(index, this);
+        parent.invalidateIndex();
     }
 
     /** Calls {@link #clipBegin(float, float, float, float)} to clip this actor's bounds. */
@@ -937,12 +1003,14 @@ public class Element implements Layout{
     public void invalidateHierarchy(){
         if(!layoutEnabled) return;
         invalidate();
+        if(stage != null && stage.deferInvalidation(this)) return;
         Group parent = getParent();
         if(parent != null) parent.invalidateHierarchy();
     }
 
 
     public void pack(){
+        if(stage != null) stage.propagateInvalidations();
         setSize(getPrefWidth(), getPrefHeight());
         validate();
     }
@@ -956,6 +1024,7 @@ public class Element implements Layout{
     public void setTranslation(float x, float y){
         translation.x = x;
         translation.y = y;
+        if(parent != null) parent.invalidateIndex();
     }
 
     public Vec2 getTranslation(){
@@ -1078,16 +1147,19 @@ public class Element implements Layout{
 
     public Element update(Runnable r){
         update = r;
+        requestAct();
         return this;
     }
 
     public Element visible(Boolp vis){
         visibility = vis;
+        requestAct();
         return this;
     }
 
     public void touchable(Prov<Touchable> touch){
         this.touchableSupplier = touch;
+        requestAct();
     }
 
     @Override
@@ -2,6 +2,7 @@ package arc.scene;
 
 import arc.math.geom.*;
 import arc.struct.Array;
+import arc.struct.IntArray;
 import arc.struct.SnapshotArray;
 import arc.func.Cons;
 import arc.func.Boolf;
@@ -32,10 +33,15 @@ public abstract class Group extends Element implements Cullable{
     private final Mat oldTransform = new Mat();
     boolean transform = false;
     private Rect cullingArea;
+    ChildIndex index;
+    private IntArray drawCandidates, hitCandidates;
 
     @Override
     public void act(float delta){
         super.act(delta);
+        //tracking scenes act the children that need it directly
+        Scene stage = getScene();
+        if(stage != null && stage.isActTracking()) return;
         Element[] actors = children.begin();
         for(int i = 0, n = children.size; i < n; i++){
             if(actors[i].isVisible()){
@@ -64,9 +70,16 @@ public abstract class Group extends Element implements Cullable{
             float cullRight = cullLeft + cullingArea.width;
             float cullBottom = cullingArea.y;
             float cullTop = cullBottom + cullingArea.height;
+            IntArray visible = null;
+            if(index != null){
+                visible = drawCandidates;
+                visible.clear();
+                index.query(cullLeft, cullBottom, cullingArea.width, cullingArea.height, visible);
+            }
+            int count = visible == null ? children.size : visible.size;
             if(transform){
-                for(int i = 0, n = children.size; i < n; i++){
-                    Element child = actors[i];
+                for(int i = 0; i < count; i++){
+                    Element child = actors[visible == null ? i : visible.items[i]];
                     child.parentAlpha = parentAlpha;
                     if(!child.isVisible()) continue;
                     float cx = child.x, cy = child.y;
@@ -82,8 +95,8 @@ public abstract class Group extends Element implements Cullable{
                 float offsetX = x, offsetY = y;
                 x = 0;
                 y = 0;
-                for(int i = 0, n = children.size; i < n; i++){
-                    Element child = actors[i];
+                for(int i = 0; i < count; i++){
+                    Element child = actors[visible == null ? i : visible.items[i]];
                     child.parentAlpha = parentAlpha;
                     if(!child.isVisible()) continue;
                     float cx = child.x, cy = child.y;
@@ -188,11 +201,51 @@ public abstract class Group extends Element implements Cullable{
         this.cullingArea = cullingArea;
     }
 
+    public boolean isIndexed(){
+        return index != null;
+    }
+
+    /**
+     * When true, the bounds of the children are kept in an index that {@link #hit(float, float, boolean)} and culling query
+     * instead of checking every child, which makes both O(log n) for lists and grids with many children. Like culling, this
+     * is only valid for unrotated and unscaled children that don't extend outside their bounds. Children must be moved and
+     * resized through their setters, so the index can be rebuilt when they change. Default is false.
+     */
+    public void setIndexed(boolean indexed){
+        if(indexed == (index != null)) return;
+        if(indexed){
+            index = new ChildIndex(this);
+            drawCandidates = new IntArray();
+            hitCandidates = new IntArray();
+        }else{
+            index = null;
+            drawCandidates = hitCandidates = null;
+        }
+    }
+
+    /** Called when a child is added, removed, reordered, moved or resized. */
+    void invalidateIndex(){
+        if(index != null) index.invalidate();
+    }
+
     @Override
     public Element hit(float x, float y, boolean touchable){
         if(touchable && getTouchable() == Touchable.disabled) return null;
         Vec2 point = tmp;
         Element[] childrenArray = children.items;
+        if(index != null){
+            IntArray candidates = hitCandidates;
+            candidates.clear();
+            index.query(x, y, 0, 0, candidates);
+            for(int i = candidates.size - 1; i >= 0; i--){
+                Element child = childrenArray[candidates.items[i]];
+                if(!child.isVisible()) continue;
+                child.parentToLocalCoordinates(point.set(x, y));
+                Element hit = child.hit(point.x, point.y, touchable);
+                if(hit != null) return hit;
+            }
+            return super.hit(x, y, touchable);
+        }
         for(int i = children.size - 1; i >= 0; i--){
             Element child = childrenArray[i];
             if(!child.isVisible()) continue;
@@ -254,6 +307,7 @@ public abstract class Group extends Element implements Cullable{
         children.add(actor);
         actor.setParent(this);
         actor.setScene(getScene());
+        invalidateIndex();
         childrenChanged();
     }
 
@@ -273,6 +327,7 @@ public abstract class Group extends Element implements Cullable{
             children.insert(index, actor);
         actor.setParent(this);
         actor.setScene(getScene());
+        invalidateIndex();
         childrenChanged();
     }
 
@@ -289,6 +344,7 @@ public abstract class Group extends Element implements Cullable{
         children.insert(index, actor);
         actor.setParent(this);
         actor.setScene(getScene());
+        invalidateIndex();
         childrenChanged();
     }
 
@@ -308,6 +364,7 @@ public abstract class Group extends Element implements Cullable{
             children.insert(index + 1, actor);
         actor.setParent(this);
         actor.setScene(getScene());
+        invalidateIndex();
         childrenChanged();
     }
 
@@ -331,6 +388,7 @@ public abstract class Group extends Element implements Cullable{
         }
         actor.setParent(null);
         actor.setScene(null);
+        invalidateIndex();
         childrenChanged();
         return true;
     }
@@ -345,6 +403,7 @@ public abstract class Group extends Element implements Cullable{
         }
         children.end();
         children.clear();
+        invalidateIndex();
         childrenChanged();
     }
 
@@ -419,6 +478,7 @@ public abstract class Group extends Element implements Cullable{
         if(first < 0 || first >= maxIndex) return false;
         if(second < 0 || second >= maxIndex) return false;
         children.swap(first, second);
+        invalidateIndex();
         return true;
     }
 
@@ -428,6 +488,7 @@ public abstract class Group extends Element implements Cullable{
         int secondIndex = children.indexOf(second, true);
         if(firstIndex == -1 || secondIndex == -1) return false;
         children.swap(firstIndex, secondIndex);
+        invalidateIndex();
         return true;
     }
 
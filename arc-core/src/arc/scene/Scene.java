@@ -38,6 +38,12 @@ public class Scene implements InputProcessor, Disposable{
     private Element mouseOverElement;
     private Element keyboardFocus, scrollFocus;
     private boolean actionsRequestRendering = true;
+    private boolean actTracking, propagating;
+    /** Elements that may need acting, in the order they were tracked. Only used with act tracking. */
+    private final Array<Element> acting = new Array<>(Element.class);
+    /** Elements whose invalidation hasn't been propagated to their ancestors yet. */
+    private final Array<Element> invalidated = new Array<>(Element.class);
+    private int layoutPass;
 
     public Scene(){
         this.viewport = new ScreenViewport(){
@@ -105,6 +111,7 @@ public class Scene implements InputProcessor, Disposable{
         Camera camera = viewport.getCamera();
         camera.update();
 
+        propagateInvalidations();
         if(!root.isVisible()) return;
 
         Draw.proj(camera.projection());
@@ -165,7 +172,109 @@ public class Scene implements InputProcessor, Disposable{
             }
         }
 
-        root.act(delta);
+        if(actTracking){
+            actTracked(delta);
+            propagateInvalidations();
+        }else{
+            root.act(delta);
+        }
+    }
+
+    /** Acts tracked elements the same way {@link Group#act(float)} would, skipping those under invisible ancestors. */
+    private void actTracked(float delta){
+        //elements tracked while acting are appended and acted in the same frame
+        for(int i = 0; i < acting.size; i++){
+            Element element = acting.get(i);
+            if(element.getScene() != this || !element.needsAct()){
+                acting.remove(i--);
+                if(element.actingIn == this) element.actingIn = null;
+                continue;
+            }
+
+            if(element == root){
+                root.act(delta);
+                continue;
+            }
+
+            boolean visible = true;
+            for(Group parent = element.parent; parent != null && visible; parent = parent.parent){
+                visible = parent.isVisible();
+            }
+            if(!visible) continue;
+
+            if(element.isVisible()) element.act(delta);
+            element.updateVisibility();
+        }
+    }
+
+    /** Starts tracking the element if it needs acting. */
+    void track(Element element){
+        if(!actTracking || element.actingIn == this || !element.needsAct()) return;
+        element.actingIn = this;
+        acting.add(element);
+    }
+
+    public boolean isActTracking(){
+        return actTracking;
+    }
+
+    /**
+     * If true, {@link #act(float)} only visits elements that {@link Element#needsAct() need acting} instead of walking the
+     * whole tree, and {@link Element#invalidateHierarchy()} is propagated to ancestors once per frame, after acting and before
+     * drawing, so that every ancestor is invalidated at most once. Ancestors only see such invalidations after
+     * {@link #propagateInvalidations()}, which is also called by {@link Element#pack()}. Default is false.
+     */
+    public void setActTracking(boolean actTracking){
+        if(this.actTracking == actTracking) return;
+        propagateInvalidations();
+        this.actTracking = actTracking;
+
+        for(Element element : acting){
+            if(element.actingIn == this) element.actingIn = null;
+        }
+        acting.clear();
+        if(actTracking){
+            track(root);
+            root.forEach(this::track);
+        }
+    }
+
+    /**
+     * Called by {@link Layout#invalidateHierarchy()} implementations after invalidating the element itself.
+     * @return true if the scene will invalidate the element's ancestors, in which case the caller must not.
+     */
+    public boolean deferInvalidation(Element element){
+        if(propagating){
+            //ancestors of an element that was already visited in this pass are invalid too
+            if(element.layoutPass == layoutPass) return true;
+            element.layoutPass = layoutPass;
+            return false;
+        }
+        if(!actTracking) return false;
+
+        if(!element.invalidationQueued){
+            element.invalidationQueued = true;
+            invalidated.add(element);
+        }
+        return true;
+    }
+
+    /** Invalidates the ancestors of all elements whose {@link Element#invalidateHierarchy()} was deferred. */
+    public void propagateInvalidations(){
+        if(invalidated.size == 0 || propagating) return;
+        layoutPass++;
+        propagating = true;
+        try{
+            for(int i = 0; i < invalidated.size; i++){
+                Element element = invalidated.get(i);
+                element.invalidationQueued = false;
+                element.layoutPass = layoutPass;
+                if(element.getScene() == this && element.parent != null) element.parent.invalidateHierarchy();
+            }
+        }finally{
+            invalidated.clear();
+            propagating = false;
+        }
     }
 
     public Element find(String name){
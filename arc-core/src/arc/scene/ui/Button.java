@@ -83,6 +83,11 @@ public class Button extends Table implements Disableable{
         }
     }
 
+    @Override
+    public boolean needsAct(){
+        return super.needsAct() || disabledProvider != null;
+    }
+
     private void initialize(){
         touchable(Touchable.enabled);
         addListener(clickListener = new ClickListener(){
@@ -142,6 +147,7 @@ public class Button extends Table implements Disableable{
 
     public void setDisabled(Boolp prov){
         this.disabledProvider = prov;
+        requestAct();
     }
 
     /** When true, the button will not toggle {@link #isChecked()} when clicked and will not fire a {@link ChangeEvent}. */
@@ -7,6 +7,7 @@ import arc.graphics.g2d.BitmapFont;
 import arc.graphics.g2d.BitmapFontCache;
 import arc.graphics.g2d.Draw;
 import arc.graphics.g2d.GlyphLayout;
+import arc.graphics.g2d.GlyphLayoutCache;
 import arc.math.geom.Vec2;
 import arc.scene.Element;
 import arc.scene.style.Drawable;
@@ -23,9 +24,16 @@ import static arc.Core.scene;
  * @author Nathan Sweet
  */
 public class Label extends Element{
+    /**
+     * If not null, labels take their layouts from this cache instead of laying out their text every time, and
+     * {@link #getGlyphLayout()} returns a shared layout that must not be modified.
+     */
+    public static GlyphLayoutCache layoutCache;
+
     static private final Color tempColor = new Color();
     static private final GlyphLayout prefSizeLayout = new GlyphLayout();
-    private final GlyphLayout layout = new GlyphLayout();
+    private final GlyphLayout ownLayout = new GlyphLayout();
+    private GlyphLayout layout = ownLayout;
     private final Vec2 prefSize = new Vec2();
     private final StringBuilder text = new StringBuilder();
     private LabelStyle style;
@@ -134,9 +142,9 @@ public class Label extends Element{
         if(wrap && ellipsis == null){
             float width = getWidth();
             if(style.background != null) width -= style.background.getLeftWidth() + style.background.getRightWidth();
-            prefSizeLayout.setText(cache.getFont(), text, Color.white, width, Align.left, true);
+            prefSizeLayout = setText(prefSizeLayout, cache.getFont(), Color.white, width, Align.left, true, null);
         }else
-            prefSizeLayout.setText(cache.getFont(), text, 0, text.length(), Color.white, width, lineAlign, wrap, ellipsis);
+            prefSizeLayout = setText(prefSizeLayout, cache.getFont(), Color.white, width, lineAlign, wrap, ellipsis);
         prefSize.set(prefSizeLayout.width, prefSizeLayout.height);
     }
 
@@ -165,11 +173,11 @@ public class Label extends Element{
             height -= background.getBottomHeight() + background.getTopHeight();
         }
 
-        GlyphLayout layout = this.layout;
+        GlyphLayout layout = ownLayout;
         float textWidth, textHeight;
         if(wrap || text.indexOf("\n") != -1){
             // If the text can span multiple lines, determine the text's actual size so it can be aligned within the label.
-            layout.setText(font, text, 0, text.length(), Color.white, width, lineAlign, wrap, ellipsis);
+            layout = setText(layout, font, Color.white, width, lineAlign, wrap, ellipsis);
             textWidth = layout.width;
             textHeight = layout.height;
 
@@ -195,12 +203,19 @@ public class Label extends Element{
         }
         if(!cache.getFont().isFlipped()) y += textHeight;
 
-        layout.setText(font, text, 0, text.length(), Color.white, textWidth, lineAlign, wrap, ellipsis);
+        this.layout = layout = setText(ownLayout, font, Color.white, textWidth, lineAlign, wrap, ellipsis);
         cache.setText(layout, x, y);
 
         if(fontScaleChanged) font.getData().setScale(oldScaleX, oldScaleY);
     }
 
+    /** Lays out the text into the specified layout, or returns a cached layout if {@link #layoutCache} is set. */
+    private GlyphLayout setText(GlyphLayout layout, BitmapFont font, Color color, float targetWidth, int halign, boolean wrap, String truncate){
+        if(layoutCache != null) return layoutCache.get(font, text, 0, text.length(), color, targetWidth, halign, wrap, truncate);
+        layout.setText(font, text, 0, text.length(), color, targetWidth, halign, wrap, truncate);
+        return layout;
+    }
+
     @Override
     public void draw(){
         validate();
@@ -83,6 +83,11 @@ public class ProgressBar extends Element implements Disableable{
         }
     }
 
+    @Override
+    public boolean needsAct(){
+        return super.needsAct() || animateTime > 0;
+    }
+
     @Override
     public void draw(){
         ProgressBarStyle style = this.style;
@@ -255,6 +260,7 @@ public class ProgressBar extends Element implements Disableable{
         else if(animateDuration > 0){
             animateFromValue = oldVisualValue;
             animateTime = animateDuration;
+            requestAct();
         }
         Pools.free(changeEvent);
         return !cancelled;
@@ -102,6 +102,8 @@ public class WidgetGroup extends Group implements Layout{
 
     public void invalidateHierarchy(){
         invalidate();
+        Scene stage = getScene();
+        if(stage != null && stage.deferInvalidation(this)) return;
         Group parent = getParent();
         if(parent != null) parent.invalidateHierarchy();
     }
@@ -115,6 +117,8 @@ public class WidgetGroup extends Group implements Layout{
     }
 
     public void pack(){
+        Scene stage = getScene();
+        if(stage != null) stage.propagateInvalidations();
         setSize(getPrefWidth(), getPrefHeight());
         validate();
         //Some situations require another layout. Eg, a wrapped label doesn't know its pref height until it knows its width, so it
@@ -1,36 +1,33 @@
 package arc.struct;
 
-import arc.math.Mathf;
 import arc.util.ArcRuntimeException;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 /**
- * An unordered map that uses identity comparison for keys. This implementation is a cuckoo hash map using 3 hashes, random
- * walking, and a small stash for problematic keys. Null keys are not allowed. Null values are allowed. No allocation is done
- * except when growing the table size. <br>
+ * An unordered map that uses identity comparison for keys. This implementation uses open addressing with linear probing, and backward shift deletion so removing
+ * keys doesn't leave tombstones behind. Null keys are not allowed. Null values are allowed. No allocation is done except when
+ * growing the table size. <br>
  * <br>
- * This map performs very fast get, containsKey, and remove (typically O(1), worst case O(log(n))). Put may be a bit slower,
- * depending on hash collisions. Load factors greater than 0.91 greatly increase the chances the map will have to rehash to the
- * next higher POT size.
+ * Keys are spread over the table with Fibonacci hashing, so get, containsKey, put and remove are O(1) on average as long as
+ * the load factor is reasonable. The default load factor of 0.8 keeps probe sequences short. <br>
+ * <br>
+ * Iteration can be very slow for a map with a large capacity. {@link #clear(int)} and {@link #shrink(int)} can be used to reduce
+ * the capacity. {@link OrderedMap} provides much faster iteration.
  * @author Nathan Sweet
  */
+@SuppressWarnings("unchecked")
 public class IdentityMap<K, V> implements Iterable<IdentityMap.Entry<K, V>>{
-    private static final int PRIME1 = 0xbe1f14b1;
-    private static final int PRIME2 = 0xb4b82e39;
-    private static final int PRIME3 = 0xced1c241;
-
     public int size;
 
     K[] keyTable;
     V[] valueTable;
-    int capacity, stashSize;
+    int capacity;
 
     private float loadFactor;
-    private int hashShift, mask, threshold;
-    private int stashCapacity;
-    private int pushIterations;
+    private int shift, mask, threshold;
 
     private Entries entries1, entries2;
     private Values values1, values2;
@@ -56,305 +53,108 @@ public class IdentityMap<K, V> implements Iterable<IdentityMap.Entry<K, V>>{
      */
     public IdentityMap(int initialCapacity, float loadFactor){
         if(initialCapacity < 0) throw new IllegalArgumentException("initialCapacity must be >= 0: " + initialCapacity);
-        initialCapacity = Mathf.nextPowerOfTwo((int)Math.ceil(initialCapacity / loadFactor));
-        if(initialCapacity > 1 << 30)
-            throw new IllegalArgumentException("initialCapacity is too large: " + initialCapacity);
-        capacity = initialCapacity;
-
-        if(loadFactor <= 0) throw new IllegalArgumentException("loadFactor must be > 0: " + loadFactor);
+        if(loadFactor <= 0 || loadFactor >= 1) throw new IllegalArgumentException("loadFactor must be > 0 and < 1: " + loadFactor);
         this.loadFactor = loadFactor;
 
-        threshold = (int)(capacity * loadFactor);
-        mask = capacity - 1;
-        hashShift = 31 - Integer.numberOfTrailingZeros(capacity);
-        stashCapacity = Math.max(3, (int)Math.ceil(Math.log(capacity)) * 2);
-        pushIterations = Math.max(Math.min(capacity, 8), (int)Math.sqrt(capacity) / 8);
-
-        keyTable = (K[])new Object[capacity + stashCapacity];
-        valueTable = (V[])new Object[keyTable.length];
+        initialCapacity = ObjectMap.tableSize(initialCapacity, loadFactor);
+        setCapacity(initialCapacity);
+        keyTable = (K[])new Object[initialCapacity];
+        valueTable = (V[])new Object[initialCapacity];
     }
 
     /** Creates a new map identical to the specified map. */
     public IdentityMap(IdentityMap map){
-        this((int)Math.floor(map.capacity * map.loadFactor), map.loadFactor);
-        stashSize = map.stashSize;
-        System.arraycopy(map.keyTable, 0, keyTable, 0, map.keyTable.length);
-        System.arraycopy(map.valueTable, 0, valueTable, 0, map.valueTable.length);
+        this.loadFactor = map.loadFactor;
+        setCapacity(map.capacity);
+        keyTable = (K[])new Object[capacity];
+        valueTable = (V[])new Object[capacity];
+        System.arraycopy(map.keyTable, 0, keyTable, 0, capacity);
+        System.arraycopy(map.valueTable, 0, valueTable, 0, capacity);
         size = map.size;
     }
 
-    public V put(K key, V value){
+    /** Returns the index of the key if it is in the map, or -(index + 1) of the empty slot where it would be inserted. */
+    int locateKey(K key){
         if(key == null) throw new IllegalArgumentException("key cannot be null.");
         K[] keyTable = this.keyTable;
-
-        // Check for existing keys.
-        int hashCode = System.identityHashCode(key);
-        int index1 = hashCode & mask;
-        K key1 = keyTable[index1];
-        if(key1 == key){
-            V oldValue = valueTable[index1];
-            valueTable[index1] = value;
-            return oldValue;
-        }
-
-        int index2 = hash2(hashCode);
-        K key2 = keyTable[index2];
-        if(key2 == key){
-            V oldValue = valueTable[index2];
-            valueTable[index2] = value;
-            return oldValue;
+        for(int i = place(key); ; i = (i + 1) & mask){
+            K other = keyTable[i];
+            if(other == null) return -(i + 1);
+            if(other == key) return i;
         }
+    }
 
-        int index3 = hash3(hashCode);
-        K key3 = keyTable[index3];
-        if(key3 == key){
-            V oldValue = valueTable[index3];
-            valueTable[index3] = value;
+    public V put(K key, V value){
+        int i = locateKey(key);
+        if(i >= 0){
+            V oldValue = valueTable[i];
+            valueTable[i] = value;
             return oldValue;
         }
-
-        // Update key in the stash.
-        for(int i = capacity, n = i + stashSize; i < n; i++){
-            if(keyTable[i] == key){
-                V oldValue = valueTable[i];
-                valueTable[i] = value;
-                return oldValue;
-            }
-        }
-
-        // Check for empty buckets.
-        if(key1 == null){
-            keyTable[index1] = key;
-            valueTable[index1] = value;
-            if(size++ >= threshold) resize(capacity << 1);
-            return null;
-        }
-
-        if(key2 == null){
-            keyTable[index2] = key;
-            valueTable[index2] = value;
-            if(size++ >= threshold) resize(capacity << 1);
-            return null;
-        }
-
-        if(key3 == null){
-            keyTable[index3] = key;
-            valueTable[index3] = value;
-            if(size++ >= threshold) resize(capacity << 1);
-            return null;
-        }
-
-        push(key, value, index1, key1, index2, key2, index3, key3);
+        i = -(i + 1);
+        keyTable[i] = key;
+        valueTable[i] = value;
+        if(++size >= threshold) resize(capacity << 1);
         return null;
     }
 
-    /** Skips checks for existing keys. */
+    /** Skips checks for existing keys, doesn't increment size. */
     private void putResize(K key, V value){
-        // Check for empty buckets.
-        int hashCode = System.identityHashCode(key);
-        int index1 = hashCode & mask;
-        K key1 = keyTable[index1];
-        if(key1 == null){
-            keyTable[index1] = key;
-            valueTable[index1] = value;
-            if(size++ >= threshold) resize(capacity << 1);
-            return;
-        }
-
-        int index2 = hash2(hashCode);
-        K key2 = keyTable[index2];
-        if(key2 == null){
-            keyTable[index2] = key;
-            valueTable[index2] = value;
-            if(size++ >= threshold) resize(capacity << 1);
-            return;
-        }
-
-        int index3 = hash3(hashCode);
-        K key3 = keyTable[index3];
-        if(key3 == null){
-            keyTable[index3] = key;
-            valueTable[index3] = value;
-            if(size++ >= threshold) resize(capacity << 1);
-            return;
-        }
-
-        push(key, value, index1, key1, index2, key2, index3, key3);
-    }
-
-    private void push(K insertKey, V insertValue, int index1, K key1, int index2, K key2, int index3, K key3){
         K[] keyTable = this.keyTable;
-        V[] valueTable = this.valueTable;
-        int mask = this.mask;
-
-        // Push keys until an empty bucket is found.
-        K evictedKey;
-        V evictedValue;
-        int i = 0, pushIterations = this.pushIterations;
-        do{
-            // Replace the key and value for one of the hashes.
-            switch(Mathf.random(2)){
-                case 0:
-                    evictedKey = key1;
-                    evictedValue = valueTable[index1];
-                    keyTable[index1] = insertKey;
-                    valueTable[index1] = insertValue;
-                    break;
-                case 1:
-                    evictedKey = key2;
-                    evictedValue = valueTable[index2];
-                    keyTable[index2] = insertKey;
-                    valueTable[index2] = insertValue;
-                    break;
-                default:
-                    evictedKey = key3;
-                    evictedValue = valueTable[index3];
-                    keyTable[index3] = insertKey;
-                    valueTable[index3] = insertValue;
-                    break;
-            }
-
-            // If the evicted key hashes to an empty bucket, put it there and stop.
-            int hashCode = System.identityHashCode(evictedKey);
-            index1 = hashCode & mask;
-            key1 = keyTable[index1];
-            if(key1 == null){
-                keyTable[index1] = evictedKey;
-                valueTable[index1] = evictedValue;
-                if(size++ >= threshold) resize(capacity << 1);
-                return;
-            }
-
-            index2 = hash2(hashCode);
-            key2 = keyTable[index2];
-            if(key2 == null){
-                keyTable[index2] = evictedKey;
-                valueTable[index2] = evictedValue;
-                if(size++ >= threshold) resize(capacity << 1);
-                return;
-            }
-
-            index3 = hash3(hashCode);
-            key3 = keyTable[index3];
-            if(key3 == null){
-                keyTable[index3] = evictedKey;
-                valueTable[index3] = evictedValue;
-                if(size++ >= threshold) resize(capacity << 1);
-                return;
-            }
-
-            if(++i == pushIterations) break;
-
-            insertKey = evictedKey;
-            insertValue = evictedValue;
-        }while(true);
-
-        putStash(evictedKey, evictedValue);
-    }
-
-    private void putStash(K key, V value){
-        if(stashSize == stashCapacity){
-            // Too many pushes occurred and the stash is full, increase the table size.
-            resize(capacity << 1);
-            putResize(key, value);
-            return;
-        }
-        // Store key in the stash.
-        int index = capacity + stashSize;
-        keyTable[index] = key;
-        valueTable[index] = value;
-        stashSize++;
-        size++;
+        int i = place(key);
+        while(keyTable[i] != null) i = (i + 1) & mask;
+        keyTable[i] = key;
+        valueTable[i] = value;
     }
 
     public V get(K key){
-        int hashCode = System.identityHashCode(key);
-        int index = hashCode & mask;
-        if(key != keyTable[index]){
-            index = hash2(hashCode);
-            if(key != keyTable[index]){
-                index = hash3(hashCode);
-                if(key != keyTable[index]) return getStash(key, null);
-            }
-        }
-        return valueTable[index];
+        int i = locateKey(key);
+        return i < 0 ? null : valueTable[i];
     }
 
     public V get(K key, V defaultValue){
-        int hashCode = System.identityHashCode(key);
-        int index = hashCode & mask;
-        if(key != keyTable[index]){
-            index = hash2(hashCode);
-            if(key != keyTable[index]){
-                index = hash3(hashCode);
-                if(key != keyTable[index]) return getStash(key, defaultValue);
-            }
-        }
-        return valueTable[index];
-    }
-
-    private V getStash(K key, V defaultValue){
-        K[] keyTable = this.keyTable;
-        for(int i = capacity, n = i + stashSize; i < n; i++)
-            if(keyTable[i] == key) return valueTable[i];
-        return defaultValue;
+        int i = locateKey(key);
+        return i < 0 ? defaultValue : valueTable[i];
     }
 
     public V remove(K key){
-        int hashCode = System.identityHashCode(key);
-        int index = hashCode & mask;
-        if(keyTable[index] == key){
-            keyTable[index] = null;
-            V oldValue = valueTable[index];
-            valueTable[index] = null;
-            size--;
-            return oldValue;
-        }
-
-        index = hash2(hashCode);
-        if(keyTable[index] == key){
-            keyTable[index] = null;
-            V oldValue = valueTable[index];
-            valueTable[index] = null;
-            size--;
-            return oldValue;
-        }
-
-        index = hash3(hashCode);
-        if(keyTable[index] == key){
-            keyTable[index] = null;
-            V oldValue = valueTable[index];
-            valueTable[index] = null;
-            size--;
-            return oldValue;
-        }
-
-        return removeStash(key);
+        int i = locateKey(key);
+        if(i < 0) return null;
+        V oldValue = valueTable[i];
+        removeSlot(i);
+        return oldValue;
     }
 
-    V removeStash(K key){
+    /**
+     * Removes the entry at the specified table index, shifting back entries of the same probe sequence to fill the gap.
+     * @return the index that was cleared in the end, which differs from the specified index if an entry was moved into it.
+     */
+    int removeSlot(int i){
         K[] keyTable = this.keyTable;
-        for(int i = capacity, n = i + stashSize; i < n; i++){
-            if(keyTable[i] == key){
-                V oldValue = valueTable[i];
-                removeStashIndex(i);
-                size--;
-                return oldValue;
+        V[] valueTable = this.valueTable;
+        int mask = this.mask, next = (i + 1) & mask;
+        K key;
+        while((key = keyTable[next]) != null){
+            int placement = place(key);
+            if(((next - placement) & mask) > ((i - placement) & mask)){
+                keyTable[i] = key;
+                valueTable[i] = valueTable[next];
+                i = next;
             }
+            next = (next + 1) & mask;
         }
-        return null;
+        keyTable[i] = null;
+        valueTable[i] = null;
+        size--;
+        return i;
     }
 
-    void removeStashIndex(int index){
-        // If the removed location was not last, move the last tuple to the removed location.
-        stashSize--;
-        int lastIndex = capacity + stashSize;
-        if(index < lastIndex){
-            keyTable[index] = keyTable[lastIndex];
-            valueTable[index] = valueTable[lastIndex];
-            valueTable[lastIndex] = null;
-        }else
-            valueTable[index] = null;
+    /** Returns the index of an empty slot. There is always at least one, as the table never fills up completely. */
+    int emptySlot(){
+        K[] keyTable = this.keyTable;
+        int i = 0;
+        while(keyTable[i] != null) i++;
+        return i;
     }
 
     /** Returns true if the map is empty. */
@@ -368,37 +168,40 @@ public class IdentityMap<K, V> implements Iterable<IdentityMap.Entry<K, V>>{
      */
     public void shrink(int maximumCapacity){
         if(maximumCapacity < 0) throw new IllegalArgumentException("maximumCapacity must be >= 0: " + maximumCapacity);
-        if(size > maximumCapacity) maximumCapacity = size;
-        if(capacity <= maximumCapacity) return;
-        maximumCapacity = Mathf.nextPowerOfTwo(maximumCapacity);
-        resize(maximumCapacity);
+        int tableSize = ObjectMap.tableSize(Math.max(maximumCapacity, size), loadFactor);
+        if(capacity > tableSize) resize(tableSize);
     }
 
-    /** Clears the map and reduces the size of the backing arrays to be the specified capacity if they are larger. */
+    /**
+     * Clears the map and reduces the size of the backing arrays to be the specified capacity, if they are larger. The reduction
+     * is done by allocating new arrays, though for large arrays this can be faster than clearing the existing array.
+     */
     public void clear(int maximumCapacity){
-        if(capacity <= maximumCapacity){
+        int tableSize = ObjectMap.tableSize(maximumCapacity, loadFactor);
+        if(capacity <= tableSize){
             clear();
             return;
         }
         size = 0;
-        resize(maximumCapacity);
+        setCapacity(tableSize);
+        keyTable = (K[])new Object[tableSize];
+        valueTable = (V[])new Object[tableSize];
     }
 
+    /**
+     * Clears the map, leaving the backing arrays at the current capacity. When the capacity is high and the population is low,
+     * iteration can be unnecessarily slow. {@link #clear(int)} can be used to reduce the capacity.
+     */
     public void clear(){
         if(size == 0) return;
-        K[] keyTable = this.keyTable;
-        V[] valueTable = this.valueTable;
-        for(int i = capacity + stashSize; i-- > 0; ){
-            keyTable[i] = null;
-            valueTable[i] = null;
-        }
         size = 0;
-        stashSize = 0;
+        Arrays.fill(keyTable, null);
+        Arrays.fill(valueTable, null);
     }
 
     /**
-     * Returns true if the specified value is in the map. Note this traverses the entire map and compares every value, which may be
-     * an expensive operation.
+     * Returns true if the specified value is in the map. Note this traverses the entire map and compares every value, which may
+     * be an expensive operation.
      * @param identity If true, uses == to compare the specified value with values in the map. If false, uses
      * {@link #equals(Object)}.
      */
@@ -406,36 +209,20 @@ public class IdentityMap<K, V> implements Iterable<IdentityMap.Entry<K, V>>{
         V[] valueTable = this.valueTable;
         if(value == null){
             K[] keyTable = this.keyTable;
-            for(int i = capacity + stashSize; i-- > 0; )
+            for(int i = capacity; i-- > 0; )
                 if(keyTable[i] != null && valueTable[i] == null) return true;
         }else if(identity){
-            for(int i = capacity + stashSize; i-- > 0; )
+            for(int i = capacity; i-- > 0; )
                 if(valueTable[i] == value) return true;
         }else{
-            for(int i = capacity + stashSize; i-- > 0; )
+            for(int i = capacity; i-- > 0; )
                 if(value.equals(valueTable[i])) return true;
         }
         return false;
     }
 
     public boolean containsKey(K key){
-        int hashCode = System.identityHashCode(key);
-        int index = hashCode & mask;
-        if(key != keyTable[index]){
-            index = hash2(hashCode);
-            if(key != keyTable[index]){
-                index = hash3(hashCode);
-                if(key != keyTable[index]) return containsKeyStash(key);
-            }
-        }
-        return true;
-    }
-
-    private boolean containsKeyStash(K key){
-        K[] keyTable = this.keyTable;
-        for(int i = capacity, n = i + stashSize; i < n; i++)
-            if(keyTable[i] == key) return true;
-        return false;
+        return locateKey(key) >= 0;
     }
 
     /**
@@ -448,13 +235,13 @@ public class IdentityMap<K, V> implements Iterable<IdentityMap.Entry<K, V>>{
         V[] valueTable = this.valueTable;
         if(value == null){
             K[] keyTable = this.keyTable;
-            for(int i = capacity + stashSize; i-- > 0; )
+            for(int i = capacity; i-- > 0; )
                 if(keyTable[i] != null && valueTable[i] == null) return keyTable[i];
         }else if(identity){
-            for(int i = capacity + stashSize; i-- > 0; )
+            for(int i = capacity; i-- > 0; )
                 if(valueTable[i] == value) return keyTable[i];
         }else{
-            for(int i = capacity + stashSize; i-- > 0; )
+            for(int i = capacity; i-- > 0; )
                 if(value.equals(valueTable[i])) return keyTable[i];
         }
         return null;
@@ -467,52 +254,45 @@ public class IdentityMap<K, V> implements Iterable<IdentityMap.Entry<K, V>>{
     public void ensureCapacity(int additionalCapacity){
         if(additionalCapacity < 0)
             throw new IllegalArgumentException("additionalCapacity must be >= 0: " + additionalCapacity);
-        int sizeNeeded = size + additionalCapacity;
-        if(sizeNeeded >= threshold) resize(Mathf.nextPowerOfTwo((int)Math.ceil(sizeNeeded / loadFactor)));
+        int tableSize = ObjectMap.tableSize(size + additionalCapacity, loadFactor);
+        if(capacity < tableSize) resize(tableSize);
     }
 
     private void resize(int newSize){
-        int oldEndIndex = capacity + stashSize;
-
-        capacity = newSize;
-        threshold = (int)(newSize * loadFactor);
-        mask = newSize - 1;
-        hashShift = 31 - Integer.numberOfTrailingZeros(newSize);
-        stashCapacity = Math.max(3, (int)Math.ceil(Math.log(newSize)) * 2);
-        pushIterations = Math.max(Math.min(newSize, 8), (int)Math.sqrt(newSize) / 8);
+        int oldCapacity = capacity;
+        setCapacity(newSize);
 
         K[] oldKeyTable = keyTable;
         V[] oldValueTable = valueTable;
 
-        keyTable = (K[])new Object[newSize + stashCapacity];
-        valueTable = (V[])new Object[newSize + stashCapacity];
+        keyTable = (K[])new Object[newSize];
+        valueTable = (V[])new Object[newSize];
 
-        int oldSize = size;
-        size = 0;
-        stashSize = 0;
-        if(oldSize > 0){
-            for(int i = 0; i < oldEndIndex; i++){
+        if(size > 0){
+            for(int i = 0; i < oldCapacity; i++){
                 K key = oldKeyTable[i];
                 if(key != null) putResize(key, oldValueTable[i]);
             }
         }
     }
 
-    private int hash2(int h){
-        h *= PRIME2;
-        return (h ^ h >>> hashShift) & mask;
+    private void setCapacity(int newSize){
+        capacity = newSize;
+        threshold = Math.min((int)(newSize * loadFactor), newSize - 1);
+        mask = newSize - 1;
+        shift = Long.numberOfLeadingZeros(mask);
     }
 
-    private int hash3(int h){
-        h *= PRIME3;
-        return (h ^ h >>> hashShift) & mask;
+    /** Returns the start of the probe sequence of a key, spreading its identity hash code with Fibonacci hashing. */
+    private int place(K key){
+        return (int)(System.identityHashCode(key) * 0x9E3779B97F4A7C15L >>> shift);
     }
 
     public int hashCode(){
         int h = 0;
         K[] keyTable = this.keyTable;
         V[] valueTable = this.valueTable;
-        for(int i = 0, n = capacity + stashSize; i < n; i++){
+        for(int i = 0, n = capacity; i < n; i++){
             K key = keyTable[i];
             if(key != null){
                 h += key.hashCode() * 31;
@@ -533,7 +313,7 @@ public class IdentityMap<K, V> implements Iterable<IdentityMap.Entry<K, V>>{
         if(other.size != size) return false;
         K[] keyTable = this.keyTable;
         V[] valueTable = this.valueTable;
-        for(int i = 0, n = capacity + stashSize; i < n; i++){
+        for(int i = 0, n = capacity; i < n; i++){
             K key = keyTable[i];
             if(key != null){
                 V value = valueTable[i];
@@ -658,6 +438,11 @@ public class IdentityMap<K, V> implements Iterable<IdentityMap.Entry<K, V>>{
         final IdentityMap<K, V> map;
         public boolean hasNext;
         int nextIndex, currentIndex;
+        /**
+         * Slots are visited in order starting after an empty slot, so no run of entries wraps around the end of the
+         * iteration. This way, entries shifted back by a removal are never ones that were already visited.
+         */
+        int start, position, currentPosition;
         boolean valid = true;
 
         public MapIterator(IdentityMap<K, V> map){
@@ -668,14 +453,19 @@ public class IdentityMap<K, V> implements Iterable<IdentityMap.Entry<K, V>>{
         public void reset(){
             currentIndex = -1;
             nextIndex = -1;
+            position = 0;
+            start = map.emptySlot();
             findNextIndex();
         }
 
         void findNextIndex(){
             hasNext = false;
+            currentPosition = position;
             K[] keyTable = map.keyTable;
-            for(int n = map.capacity + map.stashSize; ++nextIndex < n; ){
-                if(keyTable[nextIndex] != null){
+            for(int n = map.capacity, mask = n - 1; ++position < n; ){
+                int index = (start + position) & mask;
+                if(keyTable[index] != null){
+                    nextIndex = index;
                     hasNext = true;
                     break;
                 }
@@ -684,16 +474,12 @@ public class IdentityMap<K, V> implements Iterable<IdentityMap.Entry<K, V>>{
 
         public void remove(){
             if(currentIndex < 0) throw new IllegalStateException("next must be called before remove.");
-            if(currentIndex >= map.capacity){
-                map.removeStashIndex(currentIndex);
-                nextIndex = currentIndex - 1;
+            if(map.removeSlot(currentIndex) != currentIndex){
+                //an entry from later in the table was shifted into the removed slot, so it must be visited next
+                position = currentPosition - 1;
                 findNextIndex();
-            }else{
-                map.keyTable[currentIndex] = null;
-                map.valueTable[currentIndex] = null;
             }
             currentIndex = -1;
-            map.size--;
         }
     }
 
@@ -7,33 +7,28 @@ import arc.util.*;
 import java.util.*;
 
 /**
- * An unordered map that uses int keys. This implementation is a cuckoo hash map using 3 hashes, random walking, and a small
- * stash for problematic keys. Null values are allowed. No allocation is done except when growing the table size. <br>
+ * An unordered map that uses int keys. This implementation uses open addressing with linear probing, and backward shift
+ * deletion so removing keys doesn't leave tombstones behind. Null values are allowed. No allocation is done except when growing
+ * the table size. <br>
  * <br>
- * This map performs very fast get, containsKey, and remove (typically O(1), worst case O(log(n))). Put may be a bit slower,
- * depending on hash collisions. Load factors greater than 0.91 greatly increase the chances the map will have to rehash to the
- * next higher POT size.
+ * Keys are spread over the table with Fibonacci hashing, so get, containsKey, put and remove are O(1) on average as long as
+ * the load factor is reasonable. The default load factor of 0.8 keeps probe sequences short.
  * @author Nathan Sweet
  */
 @SuppressWarnings("unchecked")
 public class IntMap<V> implements Iterable<IntMap.Entry<V>>{
-    private static final int PRIME1 = 0xbe1f14b1;
-    private static final int PRIME2 = 0xb4b82e39;
-    private static final int PRIME3 = 0xced1c241;
     private static final int EMPTY = 0;
 
     public int size;
 
     int[] keyTable;
     V[] valueTable;
-    int capacity, stashSize;
+    int capacity;
     V zeroValue;
     boolean hasZeroValue;
 
     private float loadFactor;
-    private int hashShift, mask, threshold;
-    private int stashCapacity;
-    private int pushIterations;
+    private int shift, mask, threshold;
 
     private Entries entries1, entries2;
     private Values values1, values2;
@@ -71,35 +66,38 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>>{
      */
     public IntMap(int initialCapacity, float loadFactor){
         if(initialCapacity < 0) throw new IllegalArgumentException("initialCapacity must be >= 0: " + initialCapacity);
-        initialCapacity = Mathf.nextPowerOfTwo((int)Math.ceil(initialCapacity / loadFactor));
-        if(initialCapacity > 1 << 30)
-            throw new IllegalArgumentException("initialCapacity is too large: " + initialCapacity);
-        capacity = initialCapacity;
-
-        if(loadFactor <= 0) throw new IllegalArgumentException("loadFactor must be > 0: " + loadFactor);
+        if(loadFactor <= 0 || loadFactor >= 1) throw new IllegalArgumentException("loadFactor must be > 0 and < 1: " + loadFactor);
         this.loadFactor = loadFactor;
 
-        threshold = (int)(capacity * loadFactor);
-        mask = capacity - 1;
-        hashShift = 31 - Integer.numberOfTrailingZeros(capacity);
-        stashCapacity = Math.max(3, (int)Math.ceil(Math.log(capacity)) * 2);
-        pushIterations = Math.max(Math.min(capacity, 8), (int)Math.sqrt(capacity) / 8);
-
-        keyTable = new int[capacity + stashCapacity];
-        valueTable = (V[])new Object[keyTable.length];
+        initialCapacity = ObjectMap.tableSize(initialCapacity, loadFactor);
+        setCapacity(initialCapacity);
+        keyTable = new int[initialCapacity];
+        valueTable = (V[])new Object[initialCapacity];
     }
 
     /** Creates a new map identical to the specified map. */
     public IntMap(IntMap<? extends V> map){
-        this((int)Math.floor(map.capacity * map.loadFactor), map.loadFactor);
-        stashSize = map.stashSize;
-        System.arraycopy(map.keyTable, 0, keyTable, 0, map.keyTable.length);
-        System.arraycopy(map.valueTable, 0, valueTable, 0, map.valueTable.length);
+        this.loadFactor = map.loadFactor;
+        setCapacity(map.capacity);
+        keyTable = new int[capacity];
+        valueTable = (V[])new Object[capacity];
+        System.arraycopy(map.keyTable, 0, keyTable, 0, capacity);
+        System.arraycopy(map.valueTable, 0, valueTable, 0, capacity);
         size = map.size;
         zeroValue = map.zeroValue;
         hasZeroValue = map.hasZeroValue;
     }
 
+    /** Returns the index of the key if it is in the map, or -(index + 1) of the empty slot where it would be inserted. */
+    private int locateKey(int key){
+        int[] keyTable = this.keyTable;
+        for(int i = place(key); ; i = (i + 1) & mask){
+            int other = keyTable[i];
+            if(other == EMPTY) return -(i + 1);
+            if(other == key) return i;
+        }
+    }
+
     public V put(int key, V value){
         if(key == 0){
             V oldValue = zeroValue;
@@ -111,195 +109,32 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>>{
             return oldValue;
         }
 
-        int[] keyTable = this.keyTable;
-
-        // Check for existing keys.
-        int index1 = key & mask;
-        int key1 = keyTable[index1];
-        if(key1 == key){
-            V oldValue = valueTable[index1];
-            valueTable[index1] = value;
-            return oldValue;
-        }
-
-        int index2 = hash2(key);
-        int key2 = keyTable[index2];
-        if(key2 == key){
-            V oldValue = valueTable[index2];
-            valueTable[index2] = value;
-            return oldValue;
-        }
-
-        int index3 = hash3(key);
-        int key3 = keyTable[index3];
-        if(key3 == key){
-            V oldValue = valueTable[index3];
-            valueTable[index3] = value;
+        int i = locateKey(key);
+        if(i >= 0){
+            V oldValue = valueTable[i];
+            valueTable[i] = value;
             return oldValue;
         }
-
-        // Update key in the stash.
-        for(int i = capacity, n = i + stashSize; i < n; i++){
-            if(keyTable[i] == key){
-                V oldValue = valueTable[i];
-                valueTable[i] = value;
-                return oldValue;
-            }
-        }
-
-        // Check for empty buckets.
-        if(key1 == EMPTY){
-            keyTable[index1] = key;
-            valueTable[index1] = value;
-            if(size++ >= threshold) resize(capacity << 1);
-            return null;
-        }
-
-        if(key2 == EMPTY){
-            keyTable[index2] = key;
-            valueTable[index2] = value;
-            if(size++ >= threshold) resize(capacity << 1);
-            return null;
-        }
-
-        if(key3 == EMPTY){
-            keyTable[index3] = key;
-            valueTable[index3] = value;
-            if(size++ >= threshold) resize(capacity << 1);
-            return null;
-        }
-
-        push(key, value, index1, key1, index2, key2, index3, key3);
+        i = -(i + 1);
+        keyTable[i] = key;
+        valueTable[i] = value;
+        if(++size >= threshold) resize(capacity << 1);
         return null;
     }
 
     public void putAll(IntMap<? extends V> map){
+        ensureCapacity(map.size);
         for(Entry<? extends V> entry : map.entries())
             put(entry.key, entry.value);
     }
 
-    /** Skips checks for existing keys. */
+    /** Skips checks for existing keys, doesn't increment size. */
     private void putResize(int key, V value){
-        if(key == 0){
-            zeroValue = value;
-            hasZeroValue = true;
-            return;
-        }
-
-        // Check for empty buckets.
-        int index1 = key & mask;
-        int key1 = keyTable[index1];
-        if(key1 == EMPTY){
-            keyTable[index1] = key;
-            valueTable[index1] = value;
-            if(size++ >= threshold) resize(capacity << 1);
-            return;
-        }
-
-        int index2 = hash2(key);
-        int key2 = keyTable[index2];
-        if(key2 == EMPTY){
-            keyTable[index2] = key;
-            valueTable[index2] = value;
-            if(size++ >= threshold) resize(capacity << 1);
-            return;
-        }
-
-        int index3 = hash3(key);
-        int key3 = keyTable[index3];
-        if(key3 == EMPTY){
-            keyTable[index3] = key;
-            valueTable[index3] = value;
-            if(size++ >= threshold) resize(capacity << 1);
-            return;
-        }
-
-        push(key, value, index1, key1, index2, key2, index3, key3);
-    }
-
-    private void push(int insertKey, V insertValue, int index1, int key1, int index2, int key2, int index3, int key3){
         int[] keyTable = this.keyTable;
-
-        V[] valueTable = this.valueTable;
-        int mask = this.mask;
-
-        // Push keys until an empty bucket is found.
-        int evictedKey;
-        V evictedValue;
-        int i = 0, pushIterations = this.pushIterations;
-        do{
-            // Replace the key and value for one of the hashes.
-            switch(Mathf.random(2)){
-                case 0:
-                    evictedKey = key1;
-                    evictedValue = valueTable[index1];
-                    keyTable[index1] = insertKey;
-                    valueTable[index1] = insertValue;
-                    break;
-                case 1:
-                    evictedKey = key2;
-                    evictedValue = valueTable[index2];
-                    keyTable[index2] = insertKey;
-                    valueTable[index2] = insertValue;
-                    break;
-                default:
-                    evictedKey = key3;
-                    evictedValue = valueTable[index3];
-                    keyTable[index3] = insertKey;
-                    valueTable[index3] = insertValue;
-                    break;
-            }
-
-            // If the evicted key hashes to an empty bucket, put it there and stop.
-            index1 = evictedKey & mask;
-            key1 = keyTable[index1];
-            if(key1 == EMPTY){
-                keyTable[index1] = evictedKey;
-                valueTable[index1] = evictedValue;
-                if(size++ >= threshold) resize(capacity << 1);
-                return;
-            }
-
-            index2 = hash2(evictedKey);
-            key2 = keyTable[index2];
-            if(key2 == EMPTY){
-                keyTable[index2] = evictedKey;
-                valueTable[index2] = evictedValue;
-                if(size++ >= threshold) resize(capacity << 1);
-                return;
-            }
-
-            index3 = hash3(evictedKey);
-            key3 = keyTable[index3];
-            if(key3 == EMPTY){
-                keyTable[index3] = evictedKey;
-                valueTable[index3] = evictedValue;
-                if(size++ >= threshold) resize(capacity << 1);
-                return;
-            }
-
-            if(++i == pushIterations) break;
-
-            insertKey = evictedKey;
-            insertValue = evictedValue;
-        }while(true);
-
-        putStash(evictedKey, evictedValue);
-    }
-
-    private void putStash(int key, V value){
-        if(stashSize == stashCapacity){
-            // Too many pushes occurred and the stash is full, increase the table size.
-            resize(capacity << 1);
-            putResize(key, value);
-            return;
-        }
-        // Store key in the stash.
-        int index = capacity + stashSize;
-        keyTable[index] = key;
-        valueTable[index] = value;
-        stashSize++;
-        size++;
+        int i = place(key);
+        while(keyTable[i] != EMPTY) i = (i + 1) & mask;
+        keyTable[i] = key;
+        valueTable[i] = value;
     }
 
     public V getOr(int key, Prov<V> defaultValue){
@@ -312,42 +147,15 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>>{
     }
 
     public V get(int key){
-        if(key == 0){
-            if(!hasZeroValue) return null;
-            return zeroValue;
-        }
-        int index = key & mask;
-        if(keyTable[index] != key){
-            index = hash2(key);
-            if(keyTable[index] != key){
-                index = hash3(key);
-                if(keyTable[index] != key) return getStash(key, null);
-            }
-        }
-        return valueTable[index];
+        if(key == 0) return hasZeroValue ? zeroValue : null;
+        int i = locateKey(key);
+        return i < 0 ? null : valueTable[i];
     }
 
     public V get(int key, V defaultValue){
-        if(key == 0){
-            if(!hasZeroValue) return defaultValue;
-            return zeroValue;
-        }
-        int index = key & mask;
-        if(keyTable[index] != key){
-            index = hash2(key);
-            if(keyTable[index] != key){
-                index = hash3(key);
-                if(keyTable[index] != key) return getStash(key, defaultValue);
-            }
-        }
-        return valueTable[index];
-    }
-
-    private V getStash(int key, V defaultValue){
-        int[] keyTable = this.keyTable;
-        for(int i = capacity, n = i + stashSize; i < n; i++)
-            if(keyTable[i] == key) return valueTable[i];
-        return defaultValue;
+        if(key == 0) return hasZeroValue ? zeroValue : defaultValue;
+        int i = locateKey(key);
+        return i < 0 ? defaultValue : valueTable[i];
     }
 
     public V remove(int key){
@@ -360,59 +168,43 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>>{
             return oldValue;
         }
 
-        int index = key & mask;
-        if(keyTable[index] == key){
-            keyTable[index] = EMPTY;
-            V oldValue = valueTable[index];
-            valueTable[index] = null;
-            size--;
-            return oldValue;
-        }
-
-        index = hash2(key);
-        if(keyTable[index] == key){
-            keyTable[index] = EMPTY;
-            V oldValue = valueTable[index];
-            valueTable[index] = null;
-            size--;
-            return oldValue;
-        }
-
-        index = hash3(key);
-        if(keyTable[index] == key){
-            keyTable[index] = EMPTY;
-            V oldValue = valueTable[index];
-            valueTable[index] = null;
-            size--;
-            return oldValue;
-        }
-
-        return removeStash(key);
+        int i = locateKey(key);
+        if(i < 0) return null;
+        V oldValue = valueTable[i];
+        removeSlot(i);
+        return oldValue;
     }
 
-    V removeStash(int key){
+    /**
+     * Removes the entry at the specified table index, shifting back entries of the same probe sequence to fill the gap.
+     * @return the index that was cleared in the end, which differs from the specified index if an entry was moved into it.
+     */
+    int removeSlot(int i){
         int[] keyTable = this.keyTable;
-        for(int i = capacity, n = i + stashSize; i < n; i++){
-            if(keyTable[i] == key){
-                V oldValue = valueTable[i];
-                removeStashIndex(i);
-                size--;
-                return oldValue;
+        V[] valueTable = this.valueTable;
+        int mask = this.mask, next = (i + 1) & mask;
+        int key;
+        while((key = keyTable[next]) != EMPTY){
+            int placement = place(key);
+            if(((next - placement) & mask) > ((i - placement) & mask)){
+                keyTable[i] = key;
+                valueTable[i] = valueTable[next];
+                i = next;
             }
+            next = (next + 1) & mask;
         }
-        return null;
+        keyTable[i] = EMPTY;
+        valueTable[i] = null;
+        size--;
+        return i;
     }
 
-    void removeStashIndex(int index){
-        // If the removed location was not last, move the last tuple to the removed location.
-        stashSize--;
-        int lastIndex = capacity + stashSize;
-        if(index < lastIndex){
-            keyTable[index] = keyTable[lastIndex];
-            valueTable[index] = valueTable[lastIndex];
-            valueTable[lastIndex] = null;
-        }else
-            valueTable[index] = null;
+    /** Returns the index of an empty slot. There is always at least one, as the table never fills up completely. */
+    int emptySlot(){
+        int[] keyTable = this.keyTable;
+        int i = 0;
+        while(keyTable[i] != EMPTY) i++;
+        return i;
     }
 
     /** Returns true if the map is empty. */
@@ -426,34 +218,30 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>>{
      */
     public void shrink(int maximumCapacity){
         if(maximumCapacity < 0) throw new IllegalArgumentException("maximumCapacity must be >= 0: " + maximumCapacity);
-        if(size > maximumCapacity) maximumCapacity = size;
-        if(capacity <= maximumCapacity) return;
-        maximumCapacity = Mathf.nextPowerOfTwo(maximumCapacity);
-        resize(maximumCapacity);
+        int tableSize = ObjectMap.tableSize(Math.max(maximumCapacity, size), loadFactor);
+        if(capacity > tableSize) resize(tableSize);
     }
 
     /** Clears the map and reduces the size of the backing arrays to be the specified capacity if they are larger. */
     public void clear(int maximumCapacity){
-        if(capacity <= maximumCapacity){
+        int tableSize = ObjectMap.tableSize(maximumCapacity, loadFactor);
+        if(capacity <= tableSize){
             clear();
             return;
         }
         zeroValue = null;
         hasZeroValue = false;
         size = 0;
-        resize(maximumCapacity);
+        setCapacity(tableSize);
+        keyTable = new int[tableSize];
+        valueTable = (V[])new Object[tableSize];
     }
 
     public void clear(){
         if(size == 0) return;
-        int[] keyTable = this.keyTable;
-        V[] valueTable = this.valueTable;
-        for(int i = capacity + stashSize; i-- > 0; ){
-            keyTable[i] = EMPTY;
-            valueTable[i] = null;
-        }
+        Arrays.fill(keyTable, EMPTY);
+        Arrays.fill(valueTable, null);
         size = 0;
-        stashSize = 0;
         zeroValue = null;
         hasZeroValue = false;
     }
@@ -461,23 +249,21 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>>{
     /**
      * Returns true if the specified value is in the map. Note this traverses the entire map and compares every value, which may
      * be an expensive operation.
-     * @param identity If true, uses == to compare the specified value with values in the map. If false, uses
-     * {@link #equals(Object)}.
      */
     public boolean containsValue(Object value, boolean identity){
         V[] valueTable = this.valueTable;
         if(value == null){
             if(hasZeroValue && zeroValue == null) return true;
             int[] keyTable = this.keyTable;
-            for(int i = capacity + stashSize; i-- > 0; )
+            for(int i = capacity; i-- > 0; )
                 if(keyTable[i] != EMPTY && valueTable[i] == null) return true;
         }else if(identity){
             if(value == zeroValue) return true;
-            for(int i = capacity + stashSize; i-- > 0; )
+            for(int i = capacity; i-- > 0; )
                 if(valueTable[i] == value) return true;
         }else{
             if(hasZeroValue && value.equals(zeroValue)) return true;
-            for(int i = capacity + stashSize; i-- > 0; )
+            for(int i = capacity; i-- > 0; )
                 if(value.equals(valueTable[i])) return true;
         }
         return false;
@@ -485,22 +271,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>>{
 
     public boolean containsKey(int key){
         if(key == 0) return hasZeroValue;
-        int index = key & mask;
-        if(keyTable[index] != key){
-            index = hash2(key);
-            if(keyTable[index] != key){
-                index = hash3(key);
-                if(keyTable[index] != key) return containsKeyStash(key);
-            }
-        }
-        return true;
-    }
-
-    private boolean containsKeyStash(int key){
-        int[] keyTable = this.keyTable;
-        for(int i = capacity, n = i + stashSize; i < n; i++)
-            if(keyTable[i] == key) return true;
-        return false;
+        return locateKey(key) >= 0;
     }
 
     /**
@@ -514,15 +285,15 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>>{
         if(value == null){
             if(hasZeroValue && zeroValue == null) return 0;
             int[] keyTable = this.keyTable;
-            for(int i = capacity + stashSize; i-- > 0; )
+            for(int i = capacity; i-- > 0; )
                 if(keyTable[i] != EMPTY && valueTable[i] == null) return keyTable[i];
         }else if(identity){
             if(value == zeroValue) return 0;
-            for(int i = capacity + stashSize; i-- > 0; )
+            for(int i = capacity; i-- > 0; )
                 if(valueTable[i] == value) return keyTable[i];
         }else{
             if(hasZeroValue && value.equals(zeroValue)) return 0;
-            for(int i = capacity + stashSize; i-- > 0; )
+            for(int i = capacity; i-- > 0; )
                 if(value.equals(valueTable[i])) return keyTable[i];
         }
         return notFound;
@@ -535,45 +306,38 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>>{
     public void ensureCapacity(int additionalCapacity){
         if(additionalCapacity < 0)
             throw new IllegalArgumentException("additionalCapacity must be >= 0: " + additionalCapacity);
-        int sizeNeeded = size + additionalCapacity;
-        if(sizeNeeded >= threshold) resize(Mathf.nextPowerOfTwo((int)Math.ceil(sizeNeeded / loadFactor)));
+        int tableSize = ObjectMap.tableSize(size + additionalCapacity, loadFactor);
+        if(capacity < tableSize) resize(tableSize);
     }
 
     private void resize(int newSize){
-        int oldEndIndex = capacity + stashSize;
-
-        capacity = newSize;
-        threshold = (int)(newSize * loadFactor);
-        mask = newSize - 1;
-        hashShift = 31 - Integer.numberOfTrailingZeros(newSize);
-        stashCapacity = Math.max(3, (int)Math.ceil(Math.log(newSize)) * 2);
-        pushIterations = Math.max(Math.min(newSize, 8), (int)Math.sqrt(newSize) / 8);
+        int oldCapacity = capacity;
+        setCapacity(newSize);
 
         int[] oldKeyTable = keyTable;
         V[] oldValueTable = valueTable;
 
-        keyTable = new int[newSize + stashCapacity];
-        valueTable = (V[])new Object[newSize + stashCapacity];
+        keyTable = new int[newSize];
+        valueTable = (V[])new Object[newSize];
 
-        int oldSize = size;
-        size = hasZeroValue ? 1 : 0;
-        stashSize = 0;
-        if(oldSize > 0){
-            for(int i = 0; i < oldEndIndex; i++){
+        if(size > 0){
+            for(int i = 0; i < oldCapacity; i++){
                 int key = oldKeyTable[i];
                 if(key != EMPTY) putResize(key, oldValueTable[i]);
             }
         }
     }
 
-    private int hash2(int h){
-        h *= PRIME2;
-        return (h ^ h >>> hashShift) & mask;
+    private void setCapacity(int newSize){
+        capacity = newSize;
+        threshold = Math.min((int)(newSize * loadFactor), newSize - 1);
+        mask = newSize - 1;
+        shift = Long.numberOfLeadingZeros(mask);
     }
 
-    private int hash3(int h){
-        h *= PRIME3;
-        return (h ^ h >>> hashShift) & mask;
+    /** Returns the start of the probe sequence of a key, spreading it with Fibonacci hashing. */
+    private int place(int key){
+        return (int)(key * 0x9E3779B97F4A7C15L >>> shift);
     }
 
     public int hashCode(){
@@ -583,7 +347,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>>{
         }
         int[] keyTable = this.keyTable;
         V[] valueTable = this.valueTable;
-        for(int i = 0, n = capacity + stashSize; i < n; i++){
+        for(int i = 0, n = capacity; i < n; i++){
             int key = keyTable[i];
             if(key != EMPTY){
                 h += key * 31;
@@ -612,7 +376,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>>{
         }
         int[] keyTable = this.keyTable;
         V[] valueTable = this.valueTable;
-        for(int i = 0, n = capacity + stashSize; i < n; i++){
+        for(int i = 0, n = capacity; i < n; i++){
             int key = keyTable[i];
             if(key != EMPTY){
                 V value = valueTable[i];
@@ -740,6 +504,11 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>>{
         final IntMap<V> map;
         public boolean hasNext;
         int nextIndex, currentIndex;
+        /**
+         * Slots are visited in order starting after an empty slot, so no run of entries wraps around the end of the
+         * iteration. This way, entries shifted back by a removal are never ones that were already visited.
+         */
+        int start, position, currentPosition;
         boolean valid = true;
 
         public MapIterator(IntMap<V> map){
@@ -750,6 +519,8 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>>{
         public void reset(){
             currentIndex = INDEX_ILLEGAL;
             nextIndex = INDEX_ZERO;
+            position = 0;
+            start = map.emptySlot();
             if(map.hasZeroValue)
                 hasNext = true;
             else
@@ -758,9 +529,12 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>>{
 
         void findNextIndex(){
             hasNext = false;
+            currentPosition = position;
             int[] keyTable = map.keyTable;
-            for(int n = map.capacity + map.stashSize; ++nextIndex < n; ){
-                if(keyTable[nextIndex] != EMPTY){
+            for(int n = map.capacity, mask = n - 1; ++position < n; ){
+                int index = (start + position) & mask;
+                if(keyTable[index] != EMPTY){
+                    nextIndex = index;
                     hasNext = true;
                     break;
                 }
@@ -771,18 +545,15 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>>{
             if(currentIndex == INDEX_ZERO && map.hasZeroValue){
                 map.zeroValue = null;
                 map.hasZeroValue = false;
+                map.size--;
             }else if(currentIndex < 0){
                 throw new IllegalStateException("next must be called before remove.");
-            }else if(currentIndex >= map.capacity){
-                map.removeStashIndex(currentIndex);
-                nextIndex = currentIndex - 1;
+            }else if(map.removeSlot(currentIndex) != currentIndex){
+                //an entry from later in the table was shifted into the removed slot, so it must be visited next
+                position = currentPosition - 1;
                 findNextIndex();
-            }else{
-                map.keyTable[currentIndex] = EMPTY;
-                map.valueTable[currentIndex] = null;
             }
             currentIndex = INDEX_ILLEGAL;
-            map.size--;
         }
     }
 
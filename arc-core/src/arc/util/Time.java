@@ -6,20 +6,33 @@ import arc.func.*;
 import arc.util.pooling.Pool.*;
 import arc.util.pooling.*;
 
+import java.util.concurrent.*;
+
 public class Time{
     private static final long nanosPerMilli = 1000000;
     private static double time;
     private static double globalTime;
-    private static Array<DelayRun> runs = new Array<>();
-    private static Array<DelayRun> removal = new Array<>();
+    /** Pending runs, advanced by the same deltas as {@link #time} but never reset. */
+    private static TimingWheel runs = new TimingWheel();
+    /** Runs scheduled from threads other than the one calling {@link #update()}. */
+    private static ConcurrentLinkedQueue<DelayRun> submitted = new ConcurrentLinkedQueue<>();
+    private static volatile Thread updateThread;
     private static LongArray marks = new LongArray();
     private static Floatp deltaimpl = () -> Math.min(Core.graphics.getDeltaTime() * 60f, 3f);
 
-    public static synchronized void run(float delay, Runnable r){
+    /**
+     * Runs a task after the specified delay has passed, counted in {@link #delta()} units, on the thread that calls {@link #update()}.
+     * Can be called from any thread.
+     */
+    public static void run(float delay, Runnable r){
         DelayRun run = Pools.obtain(DelayRun.class, DelayRun::new);
         run.finish = r;
         run.delay = delay;
-        runs.add(run);
+        if(Thread.currentThread() == updateThread){
+            runs.schedule(run, delay);
+        }else{
+            submitted.add(run);
+        }
     }
 
     public static synchronized void runTask(float delay, Runnable r){
@@ -53,30 +66,27 @@ public class Time{
 
     /** Use normal delta time (e. g. delta * 60) */
     public static void update(){
+        updateThread = Thread.currentThread();
         float delta = delta();
 
         time += delta;
-        removal.clear();
 
         if(Double.isInfinite(time) || Double.isNaN(time)){
             time = 0;
         }
 
-        for(DelayRun run : runs){
-            run.delay -= delta;
-
-            if(run.delay <= 0){
-                run.finish.run();
-                removal.add(run);
-                Pools.free(run);
-            }
+        DelayRun run;
+        while((run = submitted.poll()) != null){
+            runs.schedule(run, run.delay);
         }
 
-        runs.removeAll(removal);
+        runs.advance(runs.time() + delta);
     }
 
-    public static synchronized void clear(){
+    /** Removes all pending runs. Must be called on the thread calling {@link #update()}. */
+    public static void clear(){
         runs.clear();
+        submitted.clear();
     }
 
     public static float delta(){
@@ -88,7 +98,7 @@ public class Time{
     }
 
     static void dispose(){
-        runs.clear();
+        clear();
     }
 
     /** @return The current value of the system timer, in nanoseconds. */
@@ -137,10 +147,17 @@ public class Time{
         return millis() - prevTime;
     }
 
-    public static class DelayRun implements Poolable{
+    public static class DelayRun extends TimingWheel.Entry implements Poolable{
         private float delay;
         private Runnable finish;
 
+        @Override
+        protected void expire(){
+            Runnable finish = this.finish;
+            Pools.free(this);
+            finish.run();
+        }
+
         @Override
         public void reset(){
             delay = 0;
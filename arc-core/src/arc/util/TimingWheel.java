@@ -0,0 +1,180 @@
+package arc.util;
+
+/**
+ * A hierarchical timing wheel for scheduling many timed entries. Inserting and cancelling an entry is O(1), and
+ * advancing the wheel costs O(1) per elapsed tick plus the expired entries, regardless of how many entries are waiting.
+ * <p>
+ * Time is a double in arbitrary units, grouped into ticks of a fixed resolution. Entries still expire exactly when the
+ * time passed to {@link #advance(double)} reaches their deadline, not at tick boundaries.
+ * <p>
+ * This class is not thread safe.
+ */
+public class TimingWheel{
+    private static final int bits = 6, slots = 1 << bits, mask = slots - 1, levels = 5;
+
+    private final double resolution;
+    /** Heads of the doubly linked entry lists of each slot, per level. */
+    private final Entry[][] wheels = new Entry[levels][slots];
+    private long tick;
+    private double time;
+    private int size;
+
+    /** Creates a wheel with ticks of one time unit. */
+    public TimingWheel(){
+        this(1);
+    }
+
+    /** @param resolution The length of a tick, in time units. */
+    public TimingWheel(double resolution){
+        if(resolution <= 0) throw new IllegalArgumentException("resolution must be positive: " + resolution);
+        this.resolution = resolution;
+    }
+
+    /** @return the time the wheel was last advanced to. */
+    public double time(){
+        return time;
+    }
+
+    /** @return the number of scheduled entries. */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Schedules an entry to expire once the time reaches {@code time() + delay}. A delay of zero or less expires on the
+     * next {@link #advance(double)}.
+     */
+    public void schedule(Entry entry, double delay){
+        if(entry.wheel != null) throw new IllegalArgumentException("Entry is already scheduled.");
+        entry.deadline = time + Math.max(delay, 0);
+        entry.deadlineTick = Math.max((long)(entry.deadline / resolution), tick);
+        entry.wheel = this;
+        place(entry);
+        size++;
+    }
+
+    /** @return whether the entry was scheduled on this wheel and has now been removed. */
+    public boolean cancel(Entry entry){
+        if(entry.wheel != this) return false;
+        unlink(entry);
+        entry.wheel = null;
+        size--;
+        return true;
+    }
+
+    /** Advances the wheel to the specified time, expiring every entry with a deadline at or before it. */
+    public void advance(double time){
+        if(time < this.time) return;
+        this.time = time;
+        long target = (long)(time / resolution);
+
+        while(tick < target){
+            //everything in the current slot is due once the time is past its tick, including entries placed there
+            //after the previous advance, which would otherwise wait for a full revolution
+            expire(false);
+            tick++;
+            cascade();
+        }
+        expire(true);
+    }
+
+    /** Removes all entries without expiring them. */
+    public void clear(){
+        for(Entry[] wheel : wheels){
+            for(int i = 0; i < slots; i++){
+                for(Entry entry = wheel[i]; entry != null; ){
+                    Entry next = entry.next;
+                    entry.wheel = null;
+                    entry.prev = entry.next = null;
+                    entry = next;
+                }
+                wheel[i] = null;
+            }
+        }
+        size = 0;
+    }
+
+    /** Moves the entries of each higher level slot that the current tick just entered down to lower levels. */
+    private void cascade(){
+        for(int level = 1; level < levels; level++){
+            int shift = bits * level;
+            if((tick & ((1L << shift) - 1)) != 0) return;
+
+            int slot = (int)((tick >>> shift) & mask);
+            Entry entry = wheels[level][slot];
+            wheels[level][slot] = null;
+            while(entry != null){
+                Entry next = entry.next;
+                place(entry);
+                entry = next;
+            }
+        }
+    }
+
+    /** Expires entries of the current tick. If {@code onlyDue} is true, entries with a deadline after the current time are kept. */
+    private void expire(boolean onlyDue){
+        int slot = (int)(tick & mask);
+        Entry entry = wheels[0][slot];
+        wheels[0][slot] = null;
+
+        while(entry != null){
+            Entry next = entry.next;
+            if(onlyDue && entry.deadline > time){
+                place(entry);
+            }else{
+                entry.prev = entry.next = null;
+                entry.wheel = null;
+                size--;
+                entry.expire();
+            }
+            entry = next;
+        }
+    }
+
+    private void place(Entry entry){
+        long target = Math.max(entry.deadlineTick, tick);
+        long delta = target - tick;
+        int level = 0;
+        while(level < levels - 1 && delta >= (1L << (bits * (level + 1)))) level++;
+
+        int slot = (int)((target >>> (bits * level)) & mask);
+        Entry head = wheels[level][slot];
+        entry.level = level;
+        entry.slot = slot;
+        entry.prev = null;
+        entry.next = head;
+        if(head != null) head.prev = entry;
+        wheels[level][slot] = entry;
+    }
+
+    private void unlink(Entry entry){
+        if(entry.prev != null){
+            entry.prev.next = entry.next;
+        }else{
+            wheels[entry.level][entry.slot] = entry.next;
+        }
+        if(entry.next != null) entry.next.prev = entry.prev;
+        entry.prev = entry.next = null;
+    }
+
+    /** Something that can be scheduled on a {@link TimingWheel}. An entry can only be scheduled on one wheel at a time. */
+    public abstract static class Entry{
+        TimingWheel wheel;
+        Entry prev, next;
+        double deadline;
+        long deadlineTick;
+        int level, slot;
+
+        /** Called by {@link TimingWheel#advance(double)} once the deadline has passed. The entry is no longer scheduled at this point. */
+        protected abstract void expire();
+
+        public boolean isScheduled(){
+            return wheel != null;
+        }
+
+        /** @return whether the entry was scheduled and has now been cancelled. */
+        public boolean cancel(){
+            return wheel != null && wheel.cancel(this);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package arc.util.pooling;
+
+import arc.struct.Array;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * A {@link Pool} that can be used from any number of threads without locking.
+ * <p>
+ * Each thread keeps two small arrays of free objects, called magazines, and only touches shared state when both are
+ * empty on {@link #obtain()} or both are full on {@link #free(Object)}. Whole magazines are then exchanged with a
+ * lock-free stack shared by all threads, so most calls don't do any synchronization at all.
+ * <p>
+ * {@link #max} limits the objects held by the shared stack. Each thread may additionally hold up to two magazines.
+ * {@link #peak} is the highest number of objects held by the shared stack. Counters are read without synchronization
+ * and may lag behind while other threads are using the pool.
+ */
+@SuppressWarnings("unchecked")
+abstract public class ConcurrentPool<T> extends Pool<T>{
+    /** The number of objects in a magazine. */
+    public final int magazineSize;
+
+    private final int maxMagazines;
+    private final AtomicReference<Magazine> depot = new AtomicReference<>();
+    private final ThreadLocal<Cache> caches = new ThreadLocal<Cache>(){
+        @Override
+        protected Cache initialValue(){
+            return register();
+        }
+    };
+
+    private final Object registryLock = new Object();
+    /** Caches of all threads that have used this pool. Replaced on every registration. */
+    private volatile Cache[] registry = {};
+    /** Counts of threads that have died. */
+    private volatile long retiredHits, retiredMisses;
+
+    /** Creates a pool with magazines of 16 objects and no maximum. */
+    public ConcurrentPool(){
+        this(16, Integer.MAX_VALUE);
+    }
+
+    /** @param max The maximum number of free objects to store in the shared stack. */
+    public ConcurrentPool(int max){
+        this(16, max);
+    }
+
+    /**
+     * @param magazineSize The number of objects exchanged with the shared stack at once.
+     * @param max The maximum number of free objects to store in the shared stack.
+     */
+    public ConcurrentPool(int magazineSize, int max){
+        super(0, max);
+        if(magazineSize <= 0) throw new IllegalArgumentException("magazineSize must be positive: " + magazineSize);
+        this.magazineSize = magazineSize;
+        this.maxMagazines = Math.max(max / magazineSize, 1);
+    }
+
+    @Override
+    public T obtain(){
+        Cache cache = caches.get();
+
+        if(cache.loadedSize == 0){
+            if(cache.previousSize > 0){
+                cache.swap();
+            }else{
+                Magazine full = pop();
+                if(full != null){
+                    cache.spare = cache.previous;
+                    cache.previous = cache.loaded;
+                    cache.loaded = full.items;
+                    cache.loadedSize = magazineSize;
+                }
+            }
+        }
+
+        if(cache.loadedSize > 0){
+            cache.hits++;
+            Object[] items = cache.loaded;
+            T object = (T)items[--cache.loadedSize];
+            items[cache.loadedSize] = null;
+            return object;
+        }
+
+        cache.misses++;
+        return newObject();
+    }
+
+    @Override
+    public void free(T object){
+        if(object == null) throw new IllegalArgumentException("object cannot be null.");
+        reset(object);
+
+        Cache cache = caches.get();
+
+        if(cache.loadedSize == magazineSize){
+            if(cache.previousSize < magazineSize){
+                cache.swap();
+            }else if(push(cache.previous)){
+                cache.previous = cache.loaded;
+                cache.previousSize = magazineSize;
+                cache.loaded = cache.spare != null ? cache.spare : new Object[magazineSize];
+                cache.spare = null;
+                cache.loadedSize = 0;
+            }else{
+                //shared stack is full
+                return;
+            }
+        }
+
+        cache.loaded[cache.loadedSize++] = object;
+    }
+
+    @Override
+    public void freeAll(Array<T> objects){
+        if(objects == null) throw new IllegalArgumentException("objects cannot be null.");
+        for(int i = 0; i < objects.size; i++){
+            T object = objects.get(i);
+            if(object != null) free(object);
+        }
+    }
+
+    /** Removes all free objects from the shared stack and the magazines of the calling thread. */
+    @Override
+    public void clear(){
+        depot.set(null);
+        Cache cache = caches.get();
+        cache.clear(cache.loaded, cache.loadedSize);
+        cache.clear(cache.previous, cache.previousSize);
+        cache.loadedSize = cache.previousSize = 0;
+    }
+
+    /** The number of free objects in the shared stack and the magazines of all threads. */
+    @Override
+    public int getFree(){
+        Magazine head = depot.get();
+        int free = head == null ? 0 : head.depth * magazineSize;
+        for(Cache cache : registry){
+            free += cache.loadedSize + cache.previousSize;
+        }
+        return free;
+    }
+
+    /** @return the number of times {@link #obtain()} returned a free object. */
+    public long getHits(){
+        long hits = retiredHits;
+        for(Cache cache : registry) hits += cache.hits;
+        return hits;
+    }
+
+    /** @return the number of times {@link #obtain()} had to create a new object. */
+    public long getMisses(){
+        long misses = retiredMisses;
+        for(Cache cache : registry) misses += cache.misses;
+        return misses;
+    }
+
+    private Magazine pop(){
+        while(true){
+            Magazine head = depot.get();
+            if(head == null) return null;
+            if(depot.compareAndSet(head, head.next)) return head;
+        }
+    }
+
+    /** @return whether the magazine was added, which fails if the stack is full. */
+    private boolean push(Object[] items){
+        while(true){
+            Magazine head = depot.get();
+            int depth = head == null ? 1 : head.depth + 1;
+            if(depth > maxMagazines) return false;
+
+            //nodes are never reused, so a head that was popped and pushed again can't be mistaken for the current one
+            if(depot.compareAndSet(head, new Magazine(items, head, depth))){
+                int free = depth * magazineSize;
+                if(free > peak) peak = free;
+                return true;
+            }
+        }
+    }
+
+    private Cache register(){
+        Cache cache = new Cache(Thread.currentThread(), magazineSize);
+        synchronized(registryLock){
+            Array<Cache> alive = new Array<>(Cache.class);
+            for(Cache other : registry){
+                if(other.thread.isAlive()){
+                    alive.add(other);
+                }else{
+                    retire(other);
+                }
+            }
+            alive.add(cache);
+            registry = alive.toArray();
+        }
+        return cache;
+    }
+
+    /** Returns the objects of a dead thread to the shared stack. */
+    private void retire(Cache cache){
+        retiredHits += cache.hits;
+        retiredMisses += cache.misses;
+        if(cache.loadedSize == magazineSize) push(cache.loaded);
+        if(cache.previousSize == magazineSize) push(cache.previous);
+    }
+
+    private static class Magazine{
+        final Object[] items;
+        final Magazine next;
+        /** The number of magazines in the stack, including this one. */
+        final int depth;
+
+        Magazine(Object[] items, Magazine next, int depth){
+            this.items = items;
+            this.next = next;
+            this.depth = depth;
+        }
+    }
+
+    /** The magazines of a single thread. Only modified by that thread. */
+    private static class Cache{
+        final Thread thread;
+        Object[] loaded, previous, spare;
+        int loadedSize, previousSize;
+        long hits, misses;
+
+        Cache(Thread thread, int magazineSize){
+            this.thread = thread;
+            this.loaded = new Object[magazineSize];
+            this.previous = new Object[magazineSize];
+        }
+
+        void swap(){
+            Object[] items = loaded;
+            int size = loadedSize;
+            loaded = previous;
+            loadedSize = previousSize;
+            previous = items;
+            previousSize = size;
+        }
+
+        void clear(Object[] items, int size){
+            for(int i = 0; i < size; i++) items[i] = null;
+        }
+    }
+}
@@ -6,29 +6,47 @@ import arc.func.Prov;
 
 /**
  * Stores a map of {@link Pool}s by type for convenient static access.
+ * <p>
+ * Looking up a pool never locks. By default, {@link #obtain(Class, Prov)} and {@link #free(Object)} lock the pool they
+ * use, since a plain {@link Pool} is not thread safe. If {@link #concurrent} is set, new pools are {@link ConcurrentPool}s
+ * and are used without locking.
  * @author Nathan Sweet
  */
-@SuppressWarnings("unchecked")
 public class Pools{
-    static private final ObjectMap<Class, Pool> typePools = new ObjectMap<>();
+    /** If true, pools created by {@link #get(Class, Prov, int)} are {@link ConcurrentPool}s. Does not affect existing pools. */
+    public static boolean concurrent = false;
+
+    static private final Object lock = new Object();
+    /** Never modified after being published; replaced whenever a pool is added. */
+    static private volatile ObjectMap<Class<?>, Pool<?>> typePools = new ObjectMap<>();
 
     private Pools(){
     }
 
     /**
-     * Returns a new or existing pool for the specified type, stored in a Class to {@link Pool} map. Note that the max size is ignored for some reason.
+     * Returns a new or existing pool for the specified type, stored in a Class to {@link Pool} map. Note that the max size is ignored
      * if this is not the first time this pool has been requested.
      */
     public static <T> Pool<T> get(Class<T> type, Prov<T> supplier, int max){
-        Pool<T> pool = typePools.get(type);
+        Pool<T> pool = pool(typePools, type);
         if(pool == null){
-            pool = new Pool<T>(4, max){
-                @Override
-                protected T newObject(){
-                    return supplier.get();
+            synchronized(lock){
+                pool = pool(typePools, type);
+                if(pool == null){
+                    pool = concurrent ? new ConcurrentPool<T>(max){
+                        @Override
+                        protected T newObject(){
+                            return supplier.get();
+                        }
+                    } : new Pool<T>(4, max){
+                        @Override
+                        protected T newObject(){
+                            return supplier.get();
+                        }
+                    };
+                    put(type, pool);
                 }
-            };
-            typePools.put(type, pool);
+            }
         }
         return pool;
     }
@@ -43,27 +61,33 @@ public class Pools{
 
     /** Sets an existing pool for the specified type, stored in a Class to {@link Pool} map. */
     public static <T> void set(Class<T> type, Pool<T> pool){
-        typePools.put(type, pool);
+        synchronized(lock){
+            put(type, pool);
+        }
     }
 
     /** Obtains an object from the {@link #get(Class, Prov) pool}. */
-    public static synchronized <T> T obtain(Class<T> type, Prov<T> supplier){
-        return get(type, supplier).obtain();
+    public static <T> T obtain(Class<T> type, Prov<T> supplier){
+        Pool<T> pool = get(type, supplier);
+        if(pool instanceof ConcurrentPool) return pool.obtain();
+        synchronized(pool){
+            return pool.obtain();
+        }
     }
 
     /** Frees an object from the {@link #get(Class, Prov) pool}. */
-    public static synchronized void free(Object object){
+    public static void free(Object object){
         if(object == null) throw new IllegalArgumentException("Object cannot be null.");
-        Pool pool = typePools.get(object.getClass());
+        Pool<?> pool = typePools.get(object.getClass());
         if(pool == null) return; // Ignore freeing an object that was never retained.
-        pool.free(object);
+        free(pool, object);
     }
 
     /**
      * Frees the specified objects from the {@link #get(Class, Prov) pool}. Null objects within the array are silently ignored. Objects
      * don't need to be from the same pool.
      */
-    public static void freeAll(Array objects){
+    public static void freeAll(Array<?> objects){
         freeAll(objects, false);
     }
 
@@ -71,9 +95,10 @@ public class Pools{
      * Frees the specified objects from the {@link #get(Class, Prov) pool}. Null objects within the array are silently ignored.
      * @param samePool If true, objects don't need to be from the same pool but the pool must be looked up for each object.
      */
-    public static void freeAll(Array objects, boolean samePool){
+    public static void freeAll(Array<?> objects, boolean samePool){
         if(objects == null) throw new IllegalArgumentException("Objects cannot be null.");
-        Pool pool = null;
+        ObjectMap<Class<?>, Pool<?>> typePools = Pools.typePools;
+        Pool<?> pool = null;
         for(int i = 0, n = objects.size; i < n; i++){
             Object object = objects.get(i);
             if(object == null) continue;
@@ -81,8 +106,33 @@ public class Pools{
                 pool = typePools.get(object.getClass());
                 if(pool == null) continue; // Ignore freeing an object that was never retained.
             }
-            pool.free(object);
+            free(pool, object);
             if(!samePool) pool = null;
         }
     }
+
+    /** @return the pool stored for the type, which only ever holds pools of that type. */
+    @SuppressWarnings("unchecked")
+    private static <T> Pool<T> pool(ObjectMap<Class<?>, Pool<?>> typePools, Class<T> type){
+        return (Pool<T>)typePools.get(type);
+    }
+
+    /** Frees an object into the pool stored for its class. */
+    @SuppressWarnings("unchecked")
+    private static void free(Pool<?> pool, Object object){
+        Pool<Object> objects = (Pool<Object>)pool;
+        if(objects instanceof ConcurrentPool){
+            objects.free(object);
+        }else{
+            synchronized(objects){
+                objects.free(object);
+            }
+        }
+    }
+
+    private static void put(Class<?> type, Pool<?> pool){
+        ObjectMap<Class<?>, Pool<?>> copy = new ObjectMap<>(typePools);
+        copy.put(type, pool);
+        typePools = copy;
+    }
 }
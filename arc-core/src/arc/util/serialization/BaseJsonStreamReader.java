@@ -0,0 +1,229 @@
+package arc.util.serialization;
+
+import arc.util.serialization.JsonValue.*;
+
+import java.io.*;
+
+/**
+ * A pull parser that reads a document one token at a time instead of building a {@link JsonValue} tree, so documents of
+ * any size can be read in bounded memory.
+ * <p>
+ * Call {@link #nextToken()} to advance. Scalar values can be read with the typed getters, which convert like the
+ * corresponding {@link JsonValue} methods. Numbers are never turned into strings unless {@link #getString()} is called.
+ * @see Json#readValue(Class, Class, BaseJsonStreamReader)
+ */
+public abstract class BaseJsonStreamReader implements Closeable{
+    protected Token token;
+    protected long longValue;
+    protected double doubleValue;
+    protected boolean booleanValue;
+    protected int depth;
+
+    /** Advances to the next token and returns it. Returns {@link Token#end} once the root value has been read. */
+    public abstract Token nextToken();
+
+    /** @return the text of the current name or string token, or the current number or boolean as text. */
+    public abstract String getString();
+
+    /** @return the current token, or null if {@link #nextToken()} hasn't been called yet. */
+    public Token token(){
+        return token;
+    }
+
+    /** @return the number of objects and arrays containing the current token. Start and end tokens count as inside. */
+    public int depth(){
+        return depth;
+    }
+
+    /**
+     * Skips the current value. If the current token is a name, its value is skipped. If it starts an object or array,
+     * everything up to and including the matching end token is skipped. Scalar values need no skipping.
+     */
+    public void skipValue(){
+        if(token == Token.name) nextToken();
+        if(token != Token.objectStart && token != Token.arrayStart) return;
+
+        int target = depth;
+        while(true){
+            Token next = nextToken();
+            if(next == Token.end) throw new SerializationException("Unexpected end of input.");
+            if((next == Token.objectEnd || next == Token.arrayEnd) && depth == target) return;
+        }
+    }
+
+    /** Reads the current value and everything it contains into a {@link JsonValue}. */
+    public JsonValue readTree(){
+        switch(token){
+            case objectStart:{
+                JsonValue object = new JsonValue(ValueType.object);
+                nextToken();
+                readMembers(object);
+                return object;
+            }
+            case arrayStart:{
+                JsonValue array = new JsonValue(ValueType.array);
+                JsonValue last = null;
+                while(nextToken() != Token.arrayEnd){
+                    last = append(array, last, readTree());
+                }
+                return array;
+            }
+            case stringValue:
+                return new JsonValue(getString());
+            case longValue:
+                return new JsonValue(longValue, numberText());
+            case doubleValue:
+                return new JsonValue(doubleValue, numberText());
+            case booleanValue:
+                return new JsonValue(booleanValue);
+            case nullValue:
+                return new JsonValue(ValueType.nullValue);
+            default:
+                throw new SerializationException("Expected a value, but found: " + token);
+        }
+    }
+
+    /**
+     * Reads the remaining members of the current object into a {@link JsonValue}. The current token must be the name of
+     * the next member or the end of the object, and is the end of the object once this returns.
+     */
+    public void readMembers(JsonValue object){
+        JsonValue last = object.child;
+        while(last != null && last.next != null) last = last.next;
+
+        while(token != Token.objectEnd){
+            if(token != Token.name) throw new SerializationException("Expected a name, but found: " + token);
+            String name = getString();
+            nextToken();
+            JsonValue value = readTree();
+            value.name = name;
+            last = append(object, last, value);
+            nextToken();
+        }
+    }
+
+    /** @return the original text of the current number, if the format has any. */
+    protected String numberText(){
+        return null;
+    }
+
+    private JsonValue append(JsonValue parent, JsonValue last, JsonValue value){
+        value.parent = parent;
+        if(last == null){
+            parent.child = value;
+        }else{
+            last.next = value;
+            value.prev = last;
+        }
+        parent.size++;
+        return value;
+    }
+
+    public long getLong(){
+        switch(token){
+            case longValue:
+                return longValue;
+            case doubleValue:
+                return (long)doubleValue;
+            case booleanValue:
+                return booleanValue ? 1 : 0;
+            case stringValue:
+                return Long.parseLong(getString());
+        }
+        throw typeMismatch("long");
+    }
+
+    public int getInt(){
+        switch(token){
+            case longValue:
+                return (int)longValue;
+            case doubleValue:
+                return (int)doubleValue;
+            case booleanValue:
+                return booleanValue ? 1 : 0;
+            case stringValue:
+                return Integer.parseInt(getString());
+        }
+        throw typeMismatch("int");
+    }
+
+    public short getShort(){
+        switch(token){
+            case longValue:
+                return (short)longValue;
+            case doubleValue:
+                return (short)doubleValue;
+            case booleanValue:
+                return booleanValue ? (short)1 : 0;
+            case stringValue:
+                return Short.parseShort(getString());
+        }
+        throw typeMismatch("short");
+    }
+
+    public byte getByte(){
+        switch(token){
+            case longValue:
+                return (byte)longValue;
+            case doubleValue:
+                return (byte)doubleValue;
+            case booleanValue:
+                return booleanValue ? (byte)1 : 0;
+            case stringValue:
+                return Byte.parseByte(getString());
+        }
+        throw typeMismatch("byte");
+    }
+
+    public double getDouble(){
+        switch(token){
+            case longValue:
+                return longValue;
+            case doubleValue:
+                return doubleValue;
+            case booleanValue:
+                return booleanValue ? 1 : 0;
+            case stringValue:
+                return Double.parseDouble(getString());
+        }
+        throw typeMismatch("double");
+    }
+
+    public float getFloat(){
+        switch(token){
+            case longValue:
+                return longValue;
+            case doubleValue:
+                return (float)doubleValue;
+            case booleanValue:
+                return booleanValue ? 1 : 0;
+            case stringValue:
+                return Float.parseFloat(getString());
+        }
+        throw typeMismatch("float");
+    }
+
+    public boolean getBoolean(){
+        switch(token){
+            case longValue:
+                return longValue != 0;
+            case doubleValue:
+                return doubleValue != 0;
+            case booleanValue:
+                return booleanValue;
+            case stringValue:
+                return getString().equalsIgnoreCase("true");
+        }
+        throw typeMismatch("boolean");
+    }
+
+    private IllegalStateException typeMismatch(String type){
+        return new IllegalStateException("Value cannot be converted to " + type + ": " + token);
+    }
+
+    public enum Token{
+        objectStart, objectEnd, arrayStart, arrayEnd, name, stringValue, doubleValue, longValue, booleanValue, nullValue,
+        /** The root value has been read completely. */
+        end
+    }
+}
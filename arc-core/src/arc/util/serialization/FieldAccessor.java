@@ -0,0 +1,160 @@
+package arc.util.serialization;
+
+import arc.func.*;
+
+import java.lang.reflect.*;
+
+/**
+ * Reads and writes a single field for {@link Json}. Accessors are created once per field, when the fields of a class are
+ * first requested. Primitive fields can be accessed without boxing through the typed methods, which must only be used
+ * with fields of exactly that type.
+ * <p>
+ * The default implementation uses the unboxed getters and setters of {@link Field}. Set {@link #provider} to plug in
+ * accessors generated for specific classes.
+ */
+public class FieldAccessor{
+    /** Creates the accessor used for each field. The field has already been made accessible. */
+    public static Func<Field, FieldAccessor> provider = FieldAccessor::new;
+
+    public final Field field;
+
+    public FieldAccessor(Field field){
+        this.field = field;
+    }
+
+    public static FieldAccessor of(Field field){
+        return provider.get(field);
+    }
+
+    public Object get(Object object){
+        try{
+            return field.get(object);
+        }catch(IllegalAccessException e){
+            throw error(e);
+        }
+    }
+
+    public void set(Object object, Object value){
+        try{
+            field.set(object, value);
+        }catch(IllegalAccessException e){
+            throw error(e);
+        }
+    }
+
+    public boolean getBoolean(Object object){
+        try{
+            return field.getBoolean(object);
+        }catch(IllegalAccessException e){
+            throw error(e);
+        }
+    }
+
+    public void setBoolean(Object object, boolean value){
+        try{
+            field.setBoolean(object, value);
+        }catch(IllegalAccessException e){
+            throw error(e);
+        }
+    }
+
+    public byte getByte(Object object){
+        try{
+            return field.getByte(object);
+        }catch(IllegalAccessException e){
+            throw error(e);
+        }
+    }
+
+    public void setByte(Object object, byte value){
+        try{
+            field.setByte(object, value);
+        }catch(IllegalAccessException e){
+            throw error(e);
+        }
+    }
+
+    public short getShort(Object object){
+        try{
+            return field.getShort(object);
+        }catch(IllegalAccessException e){
+            throw error(e);
+        }
+    }
+
+    public void setShort(Object object, short value){
+        try{
+            field.setShort(object, value);
+        }catch(IllegalAccessException e){
+            throw error(e);
+        }
+    }
+
+    public int getInt(Object object){
+        try{
+            return field.getInt(object);
+        }catch(IllegalAccessException e){
+            throw error(e);
+        }
+    }
+
+    public void setInt(Object object, int value){
+        try{
+            field.setInt(object, value);
+        }catch(IllegalAccessException e){
+            throw error(e);
+        }
+    }
+
+    public long getLong(Object object){
+        try{
+            return field.getLong(object);
+        }catch(IllegalAccessException e){
+            throw error(e);
+        }
+    }
+
+    public void setLong(Object object, long value){
+        try{
+            field.setLong(object, value);
+        }catch(IllegalAccessException e){
+            throw error(e);
+        }
+    }
+
+    public float getFloat(Object object){
+        try{
+            return field.getFloat(object);
+        }catch(IllegalAccessException e){
+            throw error(e);
+        }
+    }
+
+    public void setFloat(Object object, float value){
+        try{
+            field.setFloat(object, value);
+        }catch(IllegalAccessException e){
+            throw error(e);
+        }
+    }
+
+    public double getDouble(Object object){
+        try{
+            return field.getDouble(object);
+        }catch(IllegalAccessException e){
+            throw error(e);
+        }
+    }
+
+    public void setDouble(Object object, double value){
+        try{
+            field.setDouble(object, value);
+        }catch(IllegalAccessException e){
+            throw error(e);
+        }
+    }
+
+    protected SerializationException error(Throwable cause){
+        return new SerializationException("Error accessing field: " + field.getName() + " (" + field.getDeclaringClass().getName() + ")", cause);
+    }
+}
@@ -293,7 +293,16 @@ public class Json{
             Field field = metadata.field;
             if(readDeprecated && ignoreDeprecated && field.isAnnotationPresent(Deprecated.class)) continue;
             try{
-                Object value = field.get(object);
+                Class<?> fieldType = field.getType();
+                if(fieldType.isPrimitive() && fieldType != char.class){
+                    if(defaultValues != null && isDefault(object, metadata.accessor, fieldType, defaultValues[i++])) continue;
+                    if(debug) System.out.println("Writing field: " + field.getName() + " (" + type.getName() + ")");
+                    writer.name(field.getName());
+                    if(!writePrimitive(object, metadata.accessor, fieldType)) writeValue(metadata.accessor.get(object), fieldType, null);
+                    continue;
+                }
+
+                Object value = metadata.accessor.get(object);
                 if(defaultValues != null){
                     Object defaultValue = defaultValues[i++];
                     if(value == null && defaultValue == null) continue;
@@ -310,8 +319,6 @@ public class Json{
                 if(debug) System.out.println("Writing field: " + field.getName() + " (" + type.getName() + ")");
                 writer.name(field.getName());
                 writeValue(value, field.getType(), metadata.elementType);
-            }catch(IllegalAccessException ex){
-                throw new SerializationException("Error accessing field: " + field.getName() + " (" + type.getName() + ")", ex);
             }catch(SerializationException ex){
                 ex.addTrace(field + " (" + type.getName() + ")");
                 throw ex;
@@ -343,9 +350,7 @@ public class Json{
             Field field = metadata.field;
             if(readDeprecated && ignoreDeprecated && field.isAnnotationPresent(Deprecated.class)) continue;
             try{
-                values[i++] = field.get(object);
-            }catch(IllegalAccessException ex){
-                throw new SerializationException("Error accessing field: " + field.getName() + " (" + type.getName() + ")", ex);
+                values[i++] = metadata.accessor.get(object);
             }catch(SerializationException ex){
                 ex.addTrace(field + " (" + type.getName() + ")");
                 throw ex;
@@ -358,6 +363,50 @@ public class Json{
         return values;
     }
 
+    /** Compares a primitive field to its prototype value without boxing the field, with the semantics of equals. */
+    private boolean isDefault(Object object, FieldAccessor accessor, Class<?> type, Object defaultValue){
+        if(type == float.class) return Float.floatToIntBits(accessor.getFloat(object)) == Float.floatToIntBits((Float)defaultValue);
+        if(type == int.class) return accessor.getInt(object) == (Integer)defaultValue;
+        if(type == boolean.class) return accessor.getBoolean(object) == (Boolean)defaultValue;
+        if(type == long.class) return accessor.getLong(object) == (Long)defaultValue;
+        if(type == double.class) return Double.doubleToLongBits(accessor.getDouble(object)) == Double.doubleToLongBits((Double)defaultValue);
+        if(type == short.class) return accessor.getShort(object) == (Short)defaultValue;
+        if(type == byte.class) return accessor.getByte(object) == (Byte)defaultValue;
+        return accessor.get(object).equals(defaultValue);
+    }
+
+    /**
+     * Writes the value of a primitive field without boxing it, if the writer supports it.
+     * @return whether the value was written.
+     */
+    private boolean writePrimitive(Object object, FieldAccessor accessor, Class<?> type) throws IOException{
+        if(writer instanceof JsonWriter){
+            JsonWriter json = (JsonWriter)writer;
+            if(type == float.class) json.floatValue(accessor.getFloat(object));
+            else if(type == int.class) json.intValue(accessor.getInt(object));
+            else if(type == boolean.class) json.booleanValue(accessor.getBoolean(object));
+            else if(type == long.class) json.longValue(accessor.getLong(object));
+            else if(type == double.class) json.doubleValue(accessor.getDouble(object));
+            else if(type == short.class) json.intValue(accessor.getShort(object));
+            else if(type == byte.class) json.intValue(accessor.getByte(object));
+            else return false;
+            return true;
+        }
+        if(writer instanceof UBJsonWriter){
+            UBJsonWriter ubjson = (UBJsonWriter)writer;
+            if(type == float.class) ubjson.value(accessor.getFloat(object));
+            else if(type == int.class) ubjson.value(accessor.getInt(object));
+            else if(type == boolean.class) ubjson.value(accessor.getBoolean(object));
+            else if(type == long.class) ubjson.value(accessor.getLong(object));
+            else if(type == double.class) ubjson.value(accessor.getDouble(object));
+            else if(type == short.class) ubjson.value(accessor.getShort(object));
+            else if(type == byte.class) ubjson.value(accessor.getByte(object));
+            else return false;
+            return true;
+        }
+        return false;
+    }
+
     /** @see #writeField(Object, String, String, Class) */
     public void writeField(Object object, String name){
         writeField(object, name, name, null);
@@ -391,9 +440,9 @@ public class Json{
         try{
             if(debug) System.out.println("Writing field: " + field.getName() + " (" + type.getName() + ")");
             writer.name(jsonName);
-            writeValue(field.get(object), field.getType(), elementType);
-        }catch(IllegalAccessException ex){
-            throw new SerializationException("Error accessing field: " + field.getName() + " (" + type.getName() + ")", ex);
+            if(!writePrimitive(object, metadata.accessor, field.getType())){
+                writeValue(metadata.accessor.get(object), field.getType(), elementType);
+            }
         }catch(SerializationException ex){
             ex.addTrace(field + " (" + type.getName() + ")");
             throw ex;
@@ -838,6 +887,23 @@ public class Json{
         return readValue(type, elementType, new JsonReader().parse(json));
     }
 
+    /**
+     * Reads the root value of a pull parser without building a {@link JsonValue} tree for the whole document. The parser is
+     * closed afterwards.
+     * @param type May be null if the type is unknown.
+     * @param elementType May be null if the type is unknown.
+     * @return May be null.
+     * @see #readValue(Class, Class, BaseJsonStreamReader)
+     */
+    public <T> T fromJson(Class<T> type, Class<?> elementType, BaseJsonStreamReader stream){
+        try{
+            stream.nextToken();
+            return readValue(type, elementType, stream);
+        }finally{
+            Streams.close(stream);
+        }
+    }
+
     public void readField(Object object, String name, JsonValue jsonData){
         readField(object, name, name, null, jsonData);
     }
@@ -857,9 +923,10 @@ public class Json{
         FieldMetadata metadata = fields.get(fieldName);
         if(metadata == null)
             throw new SerializationException("Field not found: " + fieldName + " (" + type.getName() + ")");
-        Field field = metadata.field;
         if(elementType == null) elementType = metadata.elementType;
-        readField(object, field, jsonName, elementType, jsonMap);
+        JsonValue jsonValue = jsonMap.get(jsonName);
+        if(jsonValue == null) return;
+        readField(object, metadata, elementType, null, jsonValue);
     }
 
     /**
@@ -901,23 +968,53 @@ public class Json{
                     throw ex;
                 }
             }
-            Field field = metadata.field;
-            try{
-                field.set(object, readValue(field.getType(), metadata.elementType, child, metadata.keyType));
-            }catch(IllegalAccessException ex){
-                throw new SerializationException("Error accessing field: " + field.getName() + " (" + type.getName() + ")", ex);
-            }catch(SerializationException ex){
-                ex.addTrace(field.getName() + " (" + type.getName() + ")");
-                throw ex;
-            }catch(RuntimeException runtimeEx){
-                SerializationException ex = new SerializationException(runtimeEx);
-                ex.addTrace(child.trace());
-                ex.addTrace(field.getName() + " (" + type.getName() + ")");
-                throw ex;
+            readField(object, metadata, metadata.elementType, metadata.keyType, child);
+        }
+    }
+
+    private void readField(Object object, FieldMetadata metadata, Class<?> elementType, Class<?> keyType, JsonValue jsonValue){
+        Field field = metadata.field;
+        try{
+            if(!readPrimitive(object, metadata.accessor, field.getType(), jsonValue)){
+                metadata.accessor.set(object, readValue(field.getType(), elementType, jsonValue, keyType));
             }
+        }catch(SerializationException ex){
+            ex.addTrace(field.getName() + " (" + field.getDeclaringClass().getName() + ")");
+            throw ex;
+        }catch(RuntimeException runtimeEx){
+            SerializationException ex = new SerializationException(runtimeEx);
+            ex.addTrace(jsonValue.trace());
+            ex.addTrace(field.getName() + " (" + field.getDeclaringClass().getName() + ")");
+            throw ex;
         }
     }
 
+    /**
+     * Sets a primitive field directly from a number or boolean, without boxing. Anything else, and any type with a
+     * serializer, goes through {@link #readValue(Class, Class, JsonValue)}.
+     * @return whether the field was set.
+     */
+    private boolean readPrimitive(Object object, FieldAccessor accessor, Class<?> type, JsonValue jsonValue){
+        if(!type.isPrimitive() || classToSerializer.get(type) != null) return false;
+
+        if(jsonValue.isNumber()){
+            if(type == float.class) accessor.setFloat(object, jsonValue.asFloat());
+            else if(type == int.class) accessor.setInt(object, jsonValue.asInt());
+            else if(type == long.class) accessor.setLong(object, jsonValue.asLong());
+            else if(type == double.class) accessor.setDouble(object, jsonValue.asDouble());
+            else if(type == short.class) accessor.setShort(object, jsonValue.asShort());
+            else if(type == byte.class) accessor.setByte(object, jsonValue.asByte());
+            else return false;
+            return true;
+        }
+
+        if(jsonValue.isBoolean() && type == boolean.class){
+            accessor.setBoolean(object, jsonValue.asBoolean());
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Called for each unknown field name encountered by {@link #readFields(Object, JsonValue)} when {@link #ignoreUnknownFields}
      * is false to determine whether the unknown field name should be ignored.
@@ -1192,6 +1289,234 @@ public class Json{
         return null;
     }
 
+    /**
+     * Reads the value starting at the current token of a pull parser. When this returns, the current token is the last token
+     * of the value.
+     * <p>
+     * Objects that are read through their fields, arrays, collections and maps are read straight from the stream. Values
+     * with a {@link Serializer}, {@link Serializable} types and the other special cases of
+     * {@link #readValue(Class, Class, JsonValue)} are read into a {@link JsonValue} first, which only holds that value. The
+     * class name of an object is only recognized if it is the first field, which is where this class writes it.
+     * @param type May be null if the type is unknown.
+     * @param elementType May be null if the type is unknown.
+     * @return May be null.
+     */
+    public <T> T readValue(Class<T> type, Class<?> elementType, BaseJsonStreamReader stream){
+        return readValue(type, elementType, stream, null);
+    }
+
+    /**
+     * @param type May be null if the type is unknown.
+     * @param elementType May be null if the type is unknown.
+     * @param keyType May be null if the type is unknown.
+     * @return May be null.
+     * @see #readValue(Class, Class, BaseJsonStreamReader)
+     */
+    public <T> T readValue(Class<T> type, Class<?> elementType, BaseJsonStreamReader stream, Class<?> keyType){
+        BaseJsonStreamReader.Token token = stream.token();
+        if(token == BaseJsonStreamReader.Token.objectStart) return readObject(type, elementType, stream, keyType);
+        if(type != null && (classToSerializer.get(type) != null || Serializable.class.isAssignableFrom(type))){
+            return readValue(type, elementType, stream.readTree(), keyType);
+        }
+
+        switch(token){
+            case arrayStart:
+                return readArray(type, elementType, stream);
+            case longValue:
+            case doubleValue:
+                if(type == null || type == float.class || type == Float.class) return (T)(Float)stream.getFloat();
+                if(type == int.class || type == Integer.class) return (T)(Integer)stream.getInt();
+                if(type == long.class || type == Long.class) return (T)(Long)stream.getLong();
+                if(type == double.class || type == Double.class) return (T)(Double)stream.getDouble();
+                break;
+            case booleanValue:
+                if(type == null || type == boolean.class || type == Boolean.class) return (T)(Boolean)stream.getBoolean();
+                break;
+            case stringValue:
+                if(type == null || type == String.class || type == CharSequence.class) return (T)stream.getString();
+                break;
+            case nullValue:
+                return null;
+            default:
+                throw new SerializationException("Expected a value, but found: " + token);
+        }
+        return readValue(type, elementType, stream.readTree(), keyType);
+    }
+
+    private <T> T readObject(Class<T> type, Class<?> elementType, BaseJsonStreamReader stream, Class<?> keyType){
+        String className = null;
+        if(stream.nextToken() == BaseJsonStreamReader.Token.name && typeName != null && stream.getString().equals(typeName)){
+            stream.nextToken();
+            className = stream.getString();
+            type = getClass(className);
+            if(type == null){
+                try{
+                    type = (Class<T>)Class.forName(className);
+                }catch(Throwable ex){
+                    throw new SerializationException(ex);
+                }
+            }
+            stream.nextToken();
+        }
+
+        if(type == null || !readsFields(type) && !ObjectMap.class.isAssignableFrom(type) && !Map.class.isAssignableFrom(type)){
+            JsonValue object = new JsonValue(JsonValue.ValueType.object);
+            if(className != null) object.addChild(typeName, new JsonValue(className));
+            stream.readMembers(object);
+            return readValue(type, elementType, object, keyType);
+        }
+
+        Object object = newInstance(type);
+        if(object instanceof ObjectMap){
+            ObjectMap<Object, Object> result = (ObjectMap<Object, Object>)object;
+            for(; stream.token() != BaseJsonStreamReader.Token.objectEnd; stream.nextToken()){
+                String name = stream.getString();
+                stream.nextToken();
+                result.put(keyType != null ? readValue(keyType, null, new JsonValue(name)) : name, readValue(elementType, null, stream));
+            }
+        }else if(object instanceof Map){
+            Map<Object, Object> result = (Map<Object, Object>)object;
+            for(; stream.token() != BaseJsonStreamReader.Token.objectEnd; stream.nextToken()){
+                String name = stream.getString();
+                stream.nextToken();
+                if(name.equals(typeName)){
+                    stream.skipValue();
+                    continue;
+                }
+                result.put(name, readValue(elementType, null, stream));
+            }
+        }else{
+            readFields(object, stream);
+        }
+        return (T)object;
+    }
+
+    /** @return whether values of this type written as objects are read with {@link #readFields(Object, JsonValue)}. */
+    private boolean readsFields(Class<?> type){
+        return classToSerializer.get(type) == null && !type.isPrimitive() && !Enum.class.isAssignableFrom(type) && type != String.class
+        && type != Integer.class && type != Boolean.class && type != Float.class && type != Long.class && type != Double.class
+        && type != Short.class && type != Byte.class && type != Character.class && !Collection.class.isAssignableFrom(type)
+        && !Serializable.class.isAssignableFrom(type) && !ObjectMap.class.isAssignableFrom(type) && !ObjectIntMap.class.isAssignableFrom(type)
+        && !ObjectSet.class.isAssignableFrom(type) && !IntSet.class.isAssignableFrom(type) && !ArrayMap.class.isAssignableFrom(type)
+        && !Map.class.isAssignableFrom(type);
+    }
+
+    private <T> T readArray(Class<T> type, Class<?> elementType, BaseJsonStreamReader stream){
+        if(type == null || type == Object.class) type = (Class<T>)Array.class;
+
+        if(Array.class.isAssignableFrom(type)){
+            Array<Object> result = type == Array.class ? new Array<>() : (Array<Object>)newInstance(type);
+            while(stream.nextToken() != BaseJsonStreamReader.Token.arrayEnd) result.add(readValue(elementType, null, stream));
+            return (T)result;
+        }
+        if(ObjectSet.class.isAssignableFrom(type)){
+            ObjectSet<Object> result = type == ObjectSet.class ? new ObjectSet<>() : (ObjectSet<Object>)newInstance(type);
+            while(stream.nextToken() != BaseJsonStreamReader.Token.arrayEnd) result.add(readValue(elementType, null, stream));
+            return (T)result;
+        }
+        if(arc.struct.Queue.class.isAssignableFrom(type)){
+            arc.struct.Queue<Object> result = type == arc.struct.Queue.class ? new arc.struct.Queue<>() : (Queue<Object>)newInstance(type);
+            while(stream.nextToken() != BaseJsonStreamReader.Token.arrayEnd) result.addLast(readValue(elementType, null, stream));
+            return (T)result;
+        }
+        if(Collection.class.isAssignableFrom(type)){
+            Collection<Object> result = type.isInterface() ? new ArrayList<>() : (Collection<Object>)newInstance(type);
+            while(stream.nextToken() != BaseJsonStreamReader.Token.arrayEnd) result.add(readValue(elementType, null, stream));
+            return (T)result;
+        }
+        if(type.isArray()){
+            Class<?> componentType = type.getComponentType();
+            if(componentType == float.class && elementType == null && classToSerializer.get(float.class) == null){
+                FloatArray result = new FloatArray();
+                while(stream.nextToken() != BaseJsonStreamReader.Token.arrayEnd) result.add(readFloat(stream));
+                return (T)result.toArray();
+            }
+            if(componentType == int.class && elementType == null && classToSerializer.get(int.class) == null){
+                IntArray result = new IntArray();
+                while(stream.nextToken() != BaseJsonStreamReader.Token.arrayEnd) result.add(readInt(stream));
+                return (T)result.toArray();
+            }
+
+            if(elementType == null) elementType = componentType;
+            Array<Object> values = new Array<>();
+            while(stream.nextToken() != BaseJsonStreamReader.Token.arrayEnd) values.add(readValue(elementType, null, stream));
+            Object result = java.lang.reflect.Array.newInstance(componentType, values.size);
+            for(int i = 0; i < values.size; i++)
+                java.lang.reflect.Array.set(result, i, values.get(i));
+            return (T)result;
+        }
+        throw new SerializationException("Unable to convert array to required type: " + type.getName());
+    }
+
+    private float readFloat(BaseJsonStreamReader stream){
+        return stream.token() == BaseJsonStreamReader.Token.longValue || stream.token() == BaseJsonStreamReader.Token.doubleValue ?
+        stream.getFloat() : readValue(float.class, null, stream);
+    }
+
+    private int readInt(BaseJsonStreamReader stream){
+        return stream.token() == BaseJsonStreamReader.Token.longValue || stream.token() == BaseJsonStreamReader.Token.doubleValue ?
+        stream.getInt() : readValue(int.class, null, stream);
+    }
+
+    /**
+     * Reads the remaining fields of an object from a pull parser. The current token must be the name of the next field or
+     * the end of the object, and is the end of the object once this returns.
+     */
+    public void readFields(Object object, BaseJsonStreamReader stream){
+        Class<?> type = object.getClass();
+        ObjectMap<String, FieldMetadata> fields = getFields(type);
+        for(; stream.token() != BaseJsonStreamReader.Token.objectEnd; stream.nextToken()){
+            String name = stream.getString();
+            FieldMetadata metadata = fields.get(name.replace(" ", "_"));
+            if(metadata == null){
+                if(name.equals(typeName) || ignoreUnknownFields || ignoreUnknownField(type, name)){
+                    if(debug && !name.equals(typeName)) Log.warn("Ignoring unknown field: " + name + " (" + type.getName() + ")");
+                    stream.skipValue();
+                    continue;
+                }
+                throw new SerializationException("Field not found: " + name + " (" + type.getName() + ")");
+            }
+
+            stream.nextToken();
+            Field field = metadata.field;
+            try{
+                if(!readPrimitive(object, metadata.accessor, field.getType(), stream)){
+                    metadata.accessor.set(object, readValue(field.getType(), metadata.elementType, stream, metadata.keyType));
+                }
+            }catch(SerializationException ex){
+                ex.addTrace(field.getName() + " (" + type.getName() + ")");
+                throw ex;
+            }catch(RuntimeException runtimeEx){
+                SerializationException ex = new SerializationException(runtimeEx);
+                ex.addTrace(field.getName() + " (" + type.getName() + ")");
+                throw ex;
+            }
+        }
+    }
+
+    /** @see #readPrimitive(Object, FieldAccessor, Class, JsonValue) */
+    private boolean readPrimitive(Object object, FieldAccessor accessor, Class<?> type, BaseJsonStreamReader stream){
+        if(!type.isPrimitive() || classToSerializer.get(type) != null) return false;
+
+        switch(stream.token()){
+            case longValue:
+            case doubleValue:
+                if(type == float.class) accessor.setFloat(object, stream.getFloat());
+                else if(type == int.class) accessor.setInt(object, stream.getInt());
+                else if(type == long.class) accessor.setLong(object, stream.getLong());
+                else if(type == double.class) accessor.setDouble(object, stream.getDouble());
+                else if(type == short.class) accessor.setShort(object, stream.getShort());
+                else if(type == byte.class) accessor.setByte(object, stream.getByte());
+                else return false;
+                return true;
+            case booleanValue:
+                if(type != boolean.class) return false;
+                accessor.setBoolean(object, stream.getBoolean());
+                return true;
+        }
+        return false;
+    }
+
     /**
      * Each field on the <code>to</code> object is set to the value for the field with the same name on the <code>from</code>
      * object. The <code>to</code> object must have at least all the fields of the <code>from</code> object with the same name and
@@ -1201,12 +1526,11 @@ public class Json{
         ObjectMap<String, FieldMetadata> toFields = getFields(from.getClass());
         for(ObjectMap.Entry<String, FieldMetadata> entry : getFields(from.getClass())){
             FieldMetadata toField = toFields.get(entry.key);
-            Field fromField = entry.value.field;
             if(toField == null) throw new SerializationException("To object is missing field" + entry.key);
             try{
-                toField.field.set(to, fromField.get(from));
-            }catch(IllegalAccessException ex){
-                throw new SerializationException("Error copying field: " + fromField.getName(), ex);
+                toField.accessor.set(to, entry.value.accessor.get(from));
+            }catch(RuntimeException ex){
+                throw new SerializationException("Error copying field: " + entry.value.field.getName(), ex);
             }
         }
     }
@@ -1287,6 +1611,8 @@ public class Json{
 
     static public class FieldMetadata{
         public final Field field;
+        /** Used instead of {@link #field} to read and write values. */
+        public final FieldAccessor accessor;
         public @Nullable Class elementType;
         public @Nullable Class keyType;
 
@@ -1295,6 +1621,7 @@ public class Json{
             || Map.class.isAssignableFrom(field.getType());
 
             this.field = field;
+            this.accessor = FieldAccessor.of(field);
             this.elementType = getElementType(field, isMap ? 1 : 0);
             keyType = isMap ? getElementType(field, 0) : null;
         }
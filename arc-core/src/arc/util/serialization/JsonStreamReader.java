@@ -0,0 +1,452 @@
+package arc.util.serialization;
+
+import arc.files.*;
+import arc.util.io.*;
+
+import java.io.*;
+
+/**
+ * Pull parser for the same JSON dialect as {@link JsonReader}: comments, unquoted names and strings, and optional
+ * commas are accepted. Input is read through a fixed size buffer, so memory use doesn't depend on the document size.
+ * <p>
+ * Unquoted values are typed like {@link JsonReader} does: true, false and null become their own tokens, numbers become
+ * long or double tokens and anything else is a string. Numbers are parsed straight from the buffer.
+ */
+public class JsonStreamReader extends BaseJsonStreamReader{
+    /** Powers of ten that are exactly representable as doubles. */
+    private static final double[] powers = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14,
+    1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private final Reader reader;
+    private final char[] buffer;
+    private int position, limit, line = 1;
+    private boolean eof;
+
+    /** Characters of the current name, string or number, with escapes already processed. */
+    private char[] text = new char[64];
+    private int textLength;
+    private String string;
+
+    /** Whether each open container is an object, by depth. */
+    private boolean[] objects = new boolean[16];
+
+    public JsonStreamReader(String json){
+        this(new StringReader(json), Math.max(Math.min(json.length(), 8192), 2));
+    }
+
+    public JsonStreamReader(Fi file){
+        this(file.reader("UTF-8"));
+    }
+
+    public JsonStreamReader(Reader reader){
+        this(reader, 8192);
+    }
+
+    /** @param bufferSize The number of characters read from the reader at once. */
+    public JsonStreamReader(Reader reader, int bufferSize){
+        if(bufferSize < 2) throw new IllegalArgumentException("bufferSize must be at least 2: " + bufferSize);
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+    }
+
+    @Override
+    public Token nextToken(){
+        if(token == Token.objectEnd || token == Token.arrayEnd) depth--;
+        string = null;
+
+        if(token == null){
+            return token = readValue();
+        }
+        switch(token){
+            case end:
+                return token;
+            case name:
+                return token = readValue();
+            case objectStart:
+                skipWhitespace();
+                if(peek() == '}') return token = end(Token.objectEnd);
+                return token = readName();
+            case arrayStart:
+                skipWhitespace();
+                if(peek() == ']') return token = end(Token.arrayEnd);
+                return token = readValue();
+        }
+
+        //a value was completed
+        skipWhitespace();
+        if(depth == 0){
+            if(peek() != -1) throw error("Unexpected character after the root value: " + (char)peek());
+            return token = Token.end;
+        }
+
+        if(peek() == ',') advance();
+        skipWhitespace();
+        if(objects[depth]){
+            if(peek() == '}') return token = end(Token.objectEnd);
+            return token = readName();
+        }else{
+            if(peek() == ']') return token = end(Token.arrayEnd);
+            return token = readValue();
+        }
+    }
+
+    @Override
+    public String getString(){
+        switch(token){
+            case name:
+            case stringValue:
+            case longValue:
+            case doubleValue:
+                if(string == null) string = new String(text, 0, textLength);
+                return string;
+            case booleanValue:
+                return booleanValue ? "true" : "false";
+            case nullValue:
+                return null;
+        }
+        throw new IllegalStateException("Current token has no text: " + token);
+    }
+
+    @Override
+    protected String numberText(){
+        return getString();
+    }
+
+    @Override
+    public void close(){
+        Streams.close(reader);
+    }
+
+    private Token end(Token token){
+        advance();
+        return token;
+    }
+
+    private Token readName(){
+        int c = peek();
+        if(c == -1) throw error("Unexpected end of input, unmatched brace.");
+
+        if(c == '"'){
+            readQuoted();
+        }else{
+            textLength = 0;
+            while(true){
+                c = peek();
+                if(c == -1 || c == ':' || c == '\r' || c == '\n' || isCommentStart(c)) break;
+                readChar();
+            }
+            trim();
+            if(textLength == 0) throw error("Expected a name, found: " + (char)c);
+        }
+
+        skipWhitespace();
+        if(peek() != ':') throw error("Expected ':' after name: " + new String(text, 0, textLength));
+        advance();
+        return Token.name;
+    }
+
+    private Token readValue(){
+        skipWhitespace();
+        int c = peek();
+        switch(c){
+            case -1:
+                throw error(depth == 0 ? "No value found." : "Unexpected end of input, unmatched " + (objects[depth] ? "brace." : "bracket."));
+            case '{':
+            case '[':
+                advance();
+                if(++depth == objects.length){
+                    boolean[] newObjects = new boolean[depth * 2];
+                    System.arraycopy(objects, 0, newObjects, 0, depth);
+                    objects = newObjects;
+                }
+                objects[depth] = c == '{';
+                return c == '{' ? Token.objectStart : Token.arrayStart;
+            case '"':
+                readQuoted();
+                return Token.stringValue;
+            case ':':
+            case ',':
+            case '}':
+            case ']':
+                throw error("Unexpected character: " + (char)c);
+        }
+
+        textLength = 0;
+        while(true){
+            c = peek();
+            if(c == -1 || c == '}' || c == ']' || c == ',' || c == '\r' || c == '\n' || isCommentStart(c)) break;
+            readChar();
+        }
+        trim();
+        return unquoted();
+    }
+
+    /** Types an unquoted value. */
+    private Token unquoted(){
+        if(is("true")){
+            booleanValue = true;
+            return Token.booleanValue;
+        }
+        if(is("false")){
+            booleanValue = false;
+            return Token.booleanValue;
+        }
+        if(is("null")) return Token.nullValue;
+
+        boolean couldBeDouble = false;
+        for(int i = 0; i < textLength; i++){
+            switch(text[i]){
+                case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7': case '8': case '9': case '-': case '+':
+                    break;
+                case '.': case 'e': case 'E':
+                    couldBeDouble = true;
+                    break;
+                default:
+                    return Token.stringValue;
+            }
+        }
+
+        if(couldBeDouble){
+            if(parseDouble()) return Token.doubleValue;
+        }else if(parseLong()){
+            return Token.longValue;
+        }
+        return Token.stringValue;
+    }
+
+    private boolean is(String value){
+        if(textLength != value.length()) return false;
+        for(int i = 0; i < textLength; i++){
+            if(text[i] != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /** Parses the text like {@link Long#parseLong(String)}. */
+    private boolean parseLong(){
+        int i = 0;
+        boolean negative = false;
+        if(textLength > 0 && (text[0] == '-' || text[0] == '+')){
+            negative = text[0] == '-';
+            i++;
+        }
+        if(i == textLength) return false;
+
+        //accumulate negatively, since the negative range is larger
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE, result = 0;
+        for(; i < textLength; i++){
+            int digit = text[i] - '0';
+            if(digit < 0 || digit > 9) return false;
+            if(result < limit / 10) return false;
+            result *= 10;
+            if(result < limit + digit) return false;
+            result -= digit;
+        }
+        longValue = negative ? result : -result;
+        return true;
+    }
+
+    /**
+     * Parses the text like {@link Double#parseDouble(String)}. Values with few enough digits are computed exactly from the
+     * buffer; others fall back to the JDK.
+     */
+    private boolean parseDouble(){
+        int i = 0;
+        boolean negative = false;
+        if(textLength > 0 && (text[0] == '-' || text[0] == '+')){
+            negative = text[0] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0, significant = 0, exponent = 0;
+        boolean dot = false;
+        for(; i < textLength; i++){
+            char c = text[i];
+            if(c == '.'){
+                if(dot) return false;
+                dot = true;
+            }else if(c >= '0' && c <= '9'){
+                digits++;
+                if(significant > 0 || c != '0'){
+                    if(significant < 18){
+                        mantissa = mantissa * 10 + (c - '0');
+                        significant++;
+                        if(dot) exponent--;
+                    }else{
+                        //digits beyond what fits are only tracked for their magnitude
+                        significant++;
+                        if(!dot) exponent++;
+                    }
+                }else if(dot){
+                    exponent--;
+                }
+            }else{
+                break;
+            }
+        }
+        if(digits == 0) return false;
+
+        if(i < textLength){
+            char c = text[i++];
+            if(c != 'e' && c != 'E') return false;
+            boolean negativeExponent = false;
+            if(i < textLength && (text[i] == '-' || text[i] == '+')){
+                negativeExponent = text[i] == '-';
+                i++;
+            }
+            if(i == textLength) return false;
+            int value = 0;
+            for(; i < textLength; i++){
+                int digit = text[i] - '0';
+                if(digit < 0 || digit > 9) return false;
+                if(value < 100000) value = value * 10 + digit;
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+
+        if(significant <= 15 && exponent >= -22 && exponent <= 22){
+            //both the mantissa and the power of ten are exact, so a single operation rounds correctly
+            double value = exponent < 0 ? mantissa / powers[-exponent] : mantissa * powers[exponent];
+            doubleValue = negative ? -value : value;
+        }else if(mantissa == 0){
+            doubleValue = negative ? -0.0 : 0.0;
+        }else{
+            doubleValue = Double.parseDouble(new String(text, 0, textLength));
+        }
+        return true;
+    }
+
+    private void readQuoted(){
+        advance();
+        textLength = 0;
+        while(true){
+            int c = peek();
+            if(c == -1) throw error("Unterminated string.");
+            if(c == '"'){
+                advance();
+                return;
+            }
+            readChar();
+        }
+    }
+
+    /** Appends the next character to the text, processing escapes. */
+    private void readChar(){
+        char c = advance();
+        if(c == '\\'){
+            if(peek() == -1) return;
+            c = advance();
+            switch(c){
+                case '"':
+                case '\\':
+                case '/':
+                    break;
+                case 'b':
+                    c = '\b';
+                    break;
+                case 'f':
+                    c = '\f';
+                    break;
+                case 'n':
+                    c = '\n';
+                    break;
+                case 'r':
+                    c = '\r';
+                    break;
+                case 't':
+                    c = '\t';
+                    break;
+                case 'u':
+                    int value = 0;
+                    for(int i = 0; i < 4; i++){
+                        int digit = peek() == -1 ? -1 : Character.digit(advance(), 16);
+                        if(digit == -1) throw error("Invalid unicode escape.");
+                        value = value * 16 + digit;
+                    }
+                    c = (char)value;
+                    break;
+                default:
+                    throw error("Illegal escaped character: \\" + c);
+            }
+        }
+
+        if(textLength == text.length){
+            char[] newText = new char[text.length * 2];
+            System.arraycopy(text, 0, newText, 0, textLength);
+            text = newText;
+        }
+        text[textLength++] = c;
+    }
+
+    private void trim(){
+        while(textLength > 0 && Character.isWhitespace(text[textLength - 1])) textLength--;
+    }
+
+    private void skipWhitespace(){
+        while(true){
+            int c = peek();
+            if(c == ' ' || c == '\t' || c == '\r' || c == '\n'){
+                advance();
+            }else if(isCommentStart(c)){
+                advance();
+                if(advance() == '/'){
+                    while(peek() != -1 && peek() != '\n') advance();
+                }else{
+                    while(true){
+                        if(peek() == -1) throw error("Unterminated comment.");
+                        if(advance() == '*' && peek() == '/'){
+                            advance();
+                            break;
+                        }
+                    }
+                }
+            }else{
+                return;
+            }
+        }
+    }
+
+    private boolean isCommentStart(int c){
+        if(c != '/' || !fill(2)) return false;
+        char next = buffer[position + 1];
+        return next == '/' || next == '*';
+    }
+
+    private int peek(){
+        return position < limit || fill(1) ? buffer[position] : -1;
+    }
+
+    private char advance(){
+        char c = buffer[position++];
+        if(c == '\n') line++;
+        return c;
+    }
+
+    /** @return whether at least the specified number of characters are buffered, reading more if necessary. */
+    private boolean fill(int count){
+        if(limit - position >= count) return true;
+        if(eof) return false;
+
+        System.arraycopy(buffer, position, buffer, 0, limit - position);
+        limit -= position;
+        position = 0;
+        try{
+            while(limit < count){
+                int read = reader.read(buffer, limit, buffer.length - limit);
+                if(read == -1){
+                    eof = true;
+                    return false;
+                }
+                limit += read;
+            }
+        }catch(IOException e){
+            throw new SerializationException(e);
+        }
+        return true;
+    }
+
+    private SerializationException error(String message){
+        return new SerializationException("Error parsing JSON on line " + line + ": " + message);
+    }
+}
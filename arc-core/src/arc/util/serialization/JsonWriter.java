@@ -86,6 +86,43 @@ public class JsonWriter extends Writer implements BaseJsonWriter{
         return this;
     }
 
+    /** Writes a whole number without boxing it. Same output as {@link #value(Object)} with an Integer. */
+    public BaseJsonWriter intValue(long value) throws IOException{
+        requireCommaOrName();
+        writer.write(Long.toString(value));
+        return this;
+    }
+
+    /** Writes a long without boxing it, unless it has to be quoted. Same output as {@link #value(Object)} with a Long. */
+    public BaseJsonWriter longValue(long value) throws IOException{
+        if(quoteLongValues) return value((Object)value);
+        return intValue(value);
+    }
+
+    /** Writes a float without boxing it. Same output as {@link #value(Object)} with a Float. */
+    public BaseJsonWriter floatValue(float value) throws IOException{
+        long longValue = (long)value;
+        requireCommaOrName();
+        writer.write((double)value == longValue ? Long.toString(longValue) : Float.toString(value));
+        return this;
+    }
+
+    /** Writes a double without boxing it, unless it has to be quoted. Same output as {@link #value(Object)} with a Double. */
+    public BaseJsonWriter doubleValue(double value) throws IOException{
+        if(quoteLongValues) return value((Object)value);
+        long longValue = (long)value;
+        requireCommaOrName();
+        writer.write(value == longValue ? Long.toString(longValue) : Double.toString(value));
+        return this;
+    }
+
+    /** Writes a boolean. Same output as {@link #value(Object)} with a Boolean. */
+    public BaseJsonWriter booleanValue(boolean value) throws IOException{
+        requireCommaOrName();
+        writer.write(value ? "true" : "false");
+        return this;
+    }
+
     private void requireCommaOrName() throws IOException{
         if(current == null) return;
         if(current.array){
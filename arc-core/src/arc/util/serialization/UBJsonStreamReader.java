@@ -0,0 +1,221 @@
+package arc.util.serialization;
+
+import arc.files.*;
+import arc.util.*;
+import arc.util.io.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Pull parser for the same UBJSON format as {@link UBJsonReader}. Only the current token is held in memory, so
+ * documents of any size can be read without building a tree.
+ * <p>
+ * For best performance, provide a buffered stream.
+ */
+public class UBJsonStreamReader extends BaseJsonStreamReader{
+    public boolean oldFormat = true;
+
+    private final DataInputStream input;
+    /** A type byte that was read ahead while reading a container header, or -1. */
+    private int peeked = -1;
+
+    /** Bytes of the current name or string. */
+    private byte[] bytes = new byte[64];
+    private int byteLength;
+    private String string;
+
+    /** Per open container, by depth: whether it is an object, its value type or 0, and its remaining entries or -1. */
+    private boolean[] objects = new boolean[16];
+    private byte[] valueTypes = new byte[16];
+    private long[] remaining = new long[16];
+
+    public UBJsonStreamReader(Fi file){
+        this(file.read(8192));
+    }
+
+    public UBJsonStreamReader(InputStream input){
+        this.input = input instanceof DataInputStream ? (DataInputStream)input : new DataInputStream(input);
+    }
+
+    @Override
+    public Token nextToken(){
+        if(token == Token.objectEnd || token == Token.arrayEnd) depth--;
+        string = null;
+
+        try{
+            if(token == null) return token = readValue(readType());
+            if(token == Token.end) return token;
+            if(token == Token.name) return token = readValue(valueTypes[depth] != 0 ? valueTypes[depth] : readType());
+            if(depth == 0) return token = Token.end;
+
+            if(remaining[depth] == 0) return token = objects[depth] ? Token.objectEnd : Token.arrayEnd;
+
+            if(objects[depth]){
+                byte type = readType();
+                if(remaining[depth] < 0 && type == '}') return token = Token.objectEnd;
+                if(remaining[depth] > 0) remaining[depth]--;
+                readString(type, true);
+                return token = Token.name;
+            }else{
+                byte type = valueTypes[depth] != 0 ? valueTypes[depth] : readType();
+                if(remaining[depth] < 0 && type == ']') return token = Token.arrayEnd;
+                if(remaining[depth] > 0) remaining[depth]--;
+                return token = readValue(type);
+            }
+        }catch(EOFException e){
+            throw new SerializationException("Unexpected end of input.", e);
+        }catch(IOException e){
+            throw new SerializationException(e);
+        }
+    }
+
+    @Override
+    public String getString(){
+        switch(token){
+            case name:
+            case stringValue:
+                if(string == null) string = new String(bytes, 0, byteLength, Strings.utf8);
+                return string;
+            case longValue:
+                return Long.toString(longValue);
+            case doubleValue:
+                return Double.toString(doubleValue);
+            case booleanValue:
+                return booleanValue ? "true" : "false";
+            case nullValue:
+                return null;
+        }
+        throw new IllegalStateException("Current token has no text: " + token);
+    }
+
+    @Override
+    public void close(){
+        Streams.close(input);
+    }
+
+    private Token readValue(byte type) throws IOException{
+        switch(type){
+            case '[':
+                push(false);
+                return Token.arrayStart;
+            case '{':
+                push(true);
+                return Token.objectStart;
+            case 'Z':
+                return Token.nullValue;
+            case 'T':
+            case 'F':
+                booleanValue = type == 'T';
+                return Token.booleanValue;
+            case 'B':
+            case 'U':
+                longValue = input.readByte() & 0xFF;
+                return Token.longValue;
+            case 'i':
+                longValue = oldFormat ? input.readShort() : input.readByte();
+                return Token.longValue;
+            case 'I':
+                longValue = oldFormat ? input.readInt() : input.readShort();
+                return Token.longValue;
+            case 'l':
+                longValue = input.readInt();
+                return Token.longValue;
+            case 'L':
+                longValue = input.readLong();
+                return Token.longValue;
+            case 'd':
+                doubleValue = input.readFloat();
+                return Token.doubleValue;
+            case 'D':
+                doubleValue = input.readDouble();
+                return Token.doubleValue;
+            case 'C':
+                longValue = input.readChar();
+                return Token.longValue;
+            case 's':
+            case 'S':
+                readString(type, false);
+                return Token.stringValue;
+            case 'a':
+            case 'A':{
+                byte dataType = input.readByte();
+                long size = type == 'A' ? input.readInt() : input.readByte() & 0xFF;
+                open(false, dataType, size);
+                return Token.arrayStart;
+            }
+        }
+        throw new ArcRuntimeException("Unrecognized data type");
+    }
+
+    /** Reads the optional type and count of a container that was just started. */
+    private void push(boolean object) throws IOException{
+        byte type = input.readByte();
+        byte valueType = 0;
+        if(type == '$'){
+            valueType = input.readByte();
+            type = input.readByte();
+        }
+
+        long size = -1;
+        if(type == '#'){
+            size = readSize(input.readByte(), false, -1);
+            if(size < 0) throw new ArcRuntimeException("Unrecognized data type");
+        }else{
+            //the type of the first entry, or the end marker
+            peeked = type & 0xFF;
+        }
+        open(object, valueType, size);
+    }
+
+    private void open(boolean object, byte valueType, long size){
+        if(++depth == objects.length){
+            objects = Arrays.copyOf(objects, depth * 2);
+            valueTypes = Arrays.copyOf(valueTypes, depth * 2);
+            remaining = Arrays.copyOf(remaining, depth * 2);
+        }
+        objects[depth] = object;
+        valueTypes[depth] = valueType;
+        remaining[depth] = size;
+    }
+
+    private byte readType() throws IOException{
+        if(peeked != -1){
+            byte type = (byte)peeked;
+            peeked = -1;
+            return type;
+        }
+        return input.readByte();
+    }
+
+    private void readString(byte type, boolean sOptional) throws IOException{
+        long size = -1;
+        if(type == 'S'){
+            size = readSize(input.readByte(), true, -1);
+        }else if(type == 's'){
+            size = input.readByte() & 0xFF;
+        }else if(sOptional){
+            size = readSize(type, false, -1);
+        }
+        if(size < 0) throw new ArcRuntimeException("Unrecognized data type, string expected");
+
+        if(size > bytes.length) bytes = new byte[(int)Math.max(size, bytes.length * 2L)];
+        byteLength = (int)size;
+        input.readFully(bytes, 0, byteLength);
+    }
+
+    private long readSize(byte type, boolean useIntOnError, long defaultValue) throws IOException{
+        if(type == 'i') return input.readByte() & 0xFF;
+        if(type == 'I') return input.readShort() & 0xFFFF;
+        if(type == 'l') return input.readInt();
+        if(type == 'L') return input.readLong();
+        if(useIntOnError){
+            long result = (long)(type & 0xFF) << 24;
+            result |= (long)(input.readByte() & 0xFF) << 16;
+            result |= (long)(input.readByte() & 0xFF) << 8;
+            result |= (long)(input.readByte() & 0xFF);
+            return result;
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,115 @@
+package graphics;
+
+import arc.graphics.*;
+import arc.graphics.g2d.*;
+import arc.graphics.g2d.BitmapFont.*;
+import arc.util.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class GlyphLayoutCacheTest{
+    private BitmapFont font, otherFont;
+
+    @Before
+    public void setup(){
+        font = font();
+        otherFont = font();
+    }
+
+    @Test
+    public void hitsReturnSameLayout(){
+        GlyphLayoutCache cache = new GlyphLayoutCache(16);
+        GlyphLayout layout = cache.get(font, "hello world", Color.white, 0f, Align.left, false);
+        assertEquals(108f, layout.width, 0f);
+
+        //equal text in another sequence, and an equal color in another instance
+        assertSame(layout, cache.get(font, new StringBuilder("hello world"), new Color(Color.white), 0f, Align.left, false));
+        assertSame(layout, cache.get(font, "say hello world", 4, 15, Color.white, 0f, Align.left, false, null));
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.size());
+
+        cache.clear();
+        assertNotSame(layout, cache.get(font, "hello world", Color.white, 0f, Align.left, false));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed(){
+        GlyphLayoutCache cache = new GlyphLayoutCache(2);
+        GlyphLayout a = get(cache, "a"), b = get(cache, "b");
+
+        //touching a makes b the eldest
+        assertSame(a, get(cache, "a"));
+        GlyphLayout c = get(cache, "c");
+        assertEquals(2, cache.size());
+
+        assertSame(a, get(cache, "a"));
+        assertSame(c, get(cache, "c"));
+        GlyphLayout newB = get(cache, "b");
+        assertNotSame(b, newB);
+        assertEquals(2, cache.size());
+        //dropped layouts stay valid
+        assertEquals(8f, b.width, 0f);
+
+        //adding b again evicted a, which was used before c
+        assertSame(c, get(cache, "c"));
+        assertNotSame(a, get(cache, "a"));
+    }
+
+    @Test
+    public void keysCompareEveryInput(){
+        GlyphLayoutCache cache = new GlyphLayoutCache(16);
+        String text = "some wrapped text";
+        GlyphLayout layout = cache.get(font, text, Color.white, 50f, Align.left, true);
+
+        assertNotSame(layout, cache.get(otherFont, text, Color.white, 50f, Align.left, true));
+        assertNotSame(layout, cache.get(font, text, Color.red, 50f, Align.left, true));
+        assertNotSame(layout, cache.get(font, text, Color.white, 60f, Align.left, true));
+        assertNotSame(layout, cache.get(font, text, Color.white, 50f, Align.left, false));
+        assertNotSame(layout, cache.get(font, text, Color.white, 50f, Align.center, true));
+        assertNotSame(layout, cache.get(font, text, 0, text.length(), Color.white, 50f, Align.left, false, "..."));
+        assertEquals(7, cache.size());
+        assertEquals(0, cache.getHits());
+
+        //wrapping changes the layout, so a stale hit would be visible
+        assertTrue(layout.runs.size > 1);
+        assertEquals(1, cache.get(font, text, Color.white, 50f, Align.left, false).runs.size);
+
+        //the font's scale is part of the key
+        font.getData().setScale(2f);
+        assertNotSame(layout, cache.get(font, text, Color.white, 50f, Align.left, true));
+        font.getData().setScale(1f);
+        assertSame(layout, cache.get(font, text, Color.white, 50f, Align.left, true));
+    }
+
+    private GlyphLayout get(GlyphLayoutCache cache, String text){
+        return cache.get(font, text, Color.white, 0f, Align.left, false);
+    }
+
+    /** A font with lowercase letters and space, 8 units wide and 10 apart, that needs no texture. */
+    private static BitmapFont font(){
+        BitmapFontData data = new BitmapFontData();
+        data.setLineHeight(12f);
+        data.down = -12f;
+        for(char c = 'a'; c <= 'z'; c++) data.setGlyph(c, glyph(c, 8));
+        data.setGlyph(' ', glyph(' ', 0));
+        data.spaceXadvance = 10f;
+
+        return new BitmapFont(data, new TextureRegion(), false){
+            @Override
+            protected void load(BitmapFontData data){
+                //no texture to map the glyphs to
+            }
+        };
+    }
+
+    private static Glyph glyph(char c, int width){
+        Glyph glyph = new Glyph();
+        glyph.id = c;
+        glyph.width = width;
+        glyph.height = 10;
+        glyph.xadvance = 10;
+        return glyph;
+    }
+}
@@ -0,0 +1,139 @@
+package graphics;
+
+import arc.*;
+import arc.graphics.*;
+import arc.graphics.g2d.*;
+import arc.graphics.g2d.TextureAtlas.*;
+import arc.struct.*;
+import org.junit.*;
+
+import java.lang.reflect.Proxy;
+
+import static org.junit.Assert.*;
+
+public class TextureAtlasHandleTest{
+    private Texture texture;
+    private TextureAtlas atlas;
+
+    @Before
+    public void setup(){
+        //a texture that only knows its size, so no GL context is needed
+        texture = Texture.createEmpty((TextureData)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{TextureData.class},
+        (proxy, method, args) -> method.getName().equals("getWidth") || method.getName().equals("getHeight") ? 64 : null));
+        atlas = new TextureAtlas();
+    }
+
+    @After
+    public void cleanup(){
+        Core.atlas = null;
+        Core.batch = null;
+    }
+
+    @Test
+    public void handlesAreStable(){
+        AtlasRegion a = atlas.addRegion("a", texture, 0, 0, 8, 8);
+        int handle = atlas.handle("a");
+        assertEquals(handle, atlas.handle("a"));
+        assertSame(a, atlas.find(handle));
+
+        for(int i = 0; i < 100; i++){
+            atlas.addRegion("r" + i, texture, i % 8 * 8, i / 8 * 8, 8, 8);
+            assertNotEquals(handle, atlas.handle("r" + i));
+        }
+        assertEquals(handle, atlas.handle("a"));
+        assertSame(a, atlas.find(handle));
+
+        //replacing the region updates the handle
+        AtlasRegion replaced = atlas.addRegion("a", texture, 8, 8, 8, 8);
+        assertSame(replaced, atlas.find(handle));
+        assertSame(replaced, atlas.find("a"));
+
+        //looking up by handle doesn't hash names
+        atlas.resetLookups();
+        for(int i = 0; i < 10; i++) atlas.find(handle);
+        assertEquals(0, atlas.getLookups());
+    }
+
+    @Test
+    public void handlesForRegionsAddedLater(){
+        int early = atlas.handle("later");
+
+        //without an error region, missing regions fail like find(String)
+        try{
+            atlas.find(early);
+            fail("Expected a missing region to throw");
+        }catch(IllegalArgumentException expected){
+        }
+
+        AtlasRegion error = atlas.addRegion("error", texture, 0, 0, 8, 8);
+        assertTrue(atlas.setErrorRegion("error"));
+        assertSame(error, atlas.find(early));
+
+        //the error region returned above isn't kept for the handle
+        AtlasRegion later = atlas.addRegion("later", texture, 8, 0, 8, 8);
+        assertSame(later, atlas.find(early));
+        assertEquals(early, atlas.handle("later"));
+
+        //a region added without going through addRegion is found on the first lookup
+        AtlasRegion direct = new AtlasRegion(texture, 16, 0, 8, 8);
+        direct.name = "direct";
+        int handle = atlas.handle("direct");
+        atlas.getRegionMap().put("direct", direct);
+        assertSame(direct, atlas.find(handle));
+    }
+
+    @Test
+    public void invalidHandles(){
+        atlas.addRegion("a", texture, 0, 0, 8, 8);
+        int handle = atlas.handle("a");
+
+        for(int invalid : new int[]{-1, handle + 1, 1000}){
+            try{
+                atlas.find(invalid);
+                fail("Expected handle " + invalid + " to be invalid");
+            }catch(IndexOutOfBoundsException expected){
+            }
+        }
+    }
+
+    @Test
+    public void drawRegion(){
+        AtlasRegion a = atlas.addRegion("a", texture, 0, 0, 8, 4);
+        Core.atlas = atlas;
+        Recorder batch = new Recorder();
+        Core.batch = batch;
+        int handle = atlas.handle("a");
+
+        Draw.scl = 1f;
+        Draw.region(handle, 10f, 20f);
+        Draw.region(handle, 10f, 20f, 16f, 8f);
+        Draw.region(handle, 10f, 20f, 45f);
+        Draw.region(handle, 10f, 20f, 16f, 8f, 90f);
+        Draw.region(handle, 10f, 20f, 16f, 8f, 1f, 2f, 180f);
+
+        assertEquals(5, batch.regions.size);
+        for(TextureRegion region : batch.regions) assertSame(a, region);
+        //centered on the position, like rect
+        assertArrayEquals(new float[]{6f, 18f, 0f, 0f, 8f, 4f, 0f}, batch.calls.get(0), 0f);
+        assertArrayEquals(new float[]{2f, 16f, 0f, 0f, 16f, 8f, 0f}, batch.calls.get(1), 0f);
+        assertArrayEquals(new float[]{6f, 18f, 4f, 2f, 8f, 4f, 45f}, batch.calls.get(2), 0f);
+        assertArrayEquals(new float[]{2f, 16f, 8f, 4f, 16f, 8f, 90f}, batch.calls.get(3), 0f);
+        assertArrayEquals(new float[]{2f, 16f, 1f, 2f, 16f, 8f, 180f}, batch.calls.get(4), 0f);
+    }
+
+    /** Records the regions drawn and their positions, sizes and rotations. */
+    static class Recorder extends SpriteBatch{
+        final Array<TextureRegion> regions = new Array<>();
+        final Array<float[]> calls = new Array<>();
+
+        Recorder(){
+            super(null);
+        }
+
+        @Override
+        protected void draw(TextureRegion region, float x, float y, float originX, float originY, float width, float height, float rotation){
+            regions.add(region);
+            calls.add(new float[]{x, y, originX, originY, width, height, rotation});
+        }
+    }
+}
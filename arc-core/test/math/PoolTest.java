@@ -6,7 +6,9 @@ import arc.util.*;
 import arc.util.pooling.*;
 import org.junit.*;
 
-import static org.junit.Assert.assertEquals;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
 
 public class PoolTest{
 
@@ -50,6 +52,49 @@ public class PoolTest{
         assertEquals("Memory usage of pools must be 0.", pre - post, 0);
     }
 
+    @Test
+    public void concurrent() throws InterruptedException{
+        AtomicInteger created = new AtomicInteger();
+        ConcurrentPool<int[]> pool = new ConcurrentPool<int[]>(8, 64){
+            @Override
+            protected int[] newObject(){
+                created.incrementAndGet();
+                return new int[1];
+            }
+        };
+
+        int threads = 4, iterations = 20000;
+        AtomicInteger errors = new AtomicInteger();
+        Thread[] workers = new Thread[threads];
+        for(int t = 0; t < threads; t++){
+            workers[t] = new Thread(() -> {
+                Array<int[]> held = new Array<>();
+                for(int i = 0; i < iterations; i++){
+                    int[] obj = pool.obtain();
+                    //an object handed out twice at once would be marked already
+                    if(obj[0] != 0) errors.incrementAndGet();
+                    obj[0] = 1;
+                    held.add(obj);
+                    if(held.size > 20 || i % 7 == 0){
+                        while(held.size > 0){
+                            int[] free = held.pop();
+                            free[0] = 0;
+                            pool.free(free);
+                        }
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for(Thread worker : workers) worker.join();
+
+        assertEquals(0, errors.get());
+        assertEquals(threads * iterations, pool.getHits() + pool.getMisses());
+        assertEquals(created.get(), pool.getMisses());
+        assertTrue(pool.getHits() > pool.getMisses());
+        assertTrue(pool.peak <= 64);
+    }
+
     long memory(){
         return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
     }
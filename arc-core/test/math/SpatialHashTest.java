@@ -0,0 +1,93 @@
+package math;
+
+import arc.math.*;
+import arc.math.geom.*;
+import arc.math.geom.QuadTree.*;
+import arc.struct.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SpatialHashTest{
+
+    @Test
+    public void matchesBruteForce(){
+        Rand rand = new Rand(1);
+        SpatialHash<Box> hash = new SpatialHash<>(16f, 4);
+        Array<Box> boxes = new Array<>();
+        IntArray handles = new IntArray();
+
+        for(int i = 0; i < 500; i++){
+            Box box = new Box(rand.range(400f), rand.range(400f), rand.random(1f, 40f), rand.random(1f, 40f));
+            boxes.add(box);
+            handles.add(hash.insert(box));
+        }
+
+        for(int step = 0; step < 20; step++){
+            for(Box box : boxes){
+                box.rect.x += rand.range(30f);
+                box.rect.y += rand.range(30f);
+            }
+            hash.updateAll();
+
+            //remove and re-add a few objects to exercise handle reuse
+            for(int i = 0; i < 10; i++){
+                int index = rand.random(0, boxes.size - 1);
+                hash.remove(handles.get(index));
+                handles.set(index, hash.insert(boxes.get(index)));
+            }
+
+            for(int q = 0; q < 20; q++){
+                Rect query = new Rect(rand.range(400f), rand.range(400f), rand.random(1f, 300f), rand.random(1f, 300f));
+                Array<Box> found = new Array<>();
+                hash.intersect(query, found);
+
+                int expected = 0;
+                for(Box box : boxes){
+                    if(box.rect.overlaps(query)){
+                        expected++;
+                        assertTrue(found.contains(box, true));
+                    }
+                }
+                assertEquals(expected, found.size);
+            }
+        }
+
+        assertEquals(500, hash.size());
+    }
+
+    @Test
+    public void removeAndClear(){
+        SpatialHash<Box> hash = new SpatialHash<>(10f);
+        int a = hash.insert(new Box(0, 0, 5, 5));
+        hash.insert(new Box(3, 3, 5, 5));
+
+        int[] count = {0};
+        hash.intersect(0, 0, 10, 10, box -> count[0]++);
+        assertEquals(2, count[0]);
+
+        hash.remove(a);
+        count[0] = 0;
+        hash.intersect(0, 0, 10, 10, box -> count[0]++);
+        assertEquals(1, count[0]);
+
+        hash.clear();
+        assertEquals(0, hash.size());
+        count[0] = 0;
+        hash.intersect(-100, -100, 200, 200, box -> count[0]++);
+        assertEquals(0, count[0]);
+    }
+
+    static class Box implements QuadTreeObject{
+        final Rect rect;
+
+        Box(float x, float y, float w, float h){
+            rect = new Rect(x, y, w, h);
+        }
+
+        @Override
+        public void hitbox(Rect out){
+            out.set(rect);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package scene;
+
+import arc.math.*;
+import arc.math.geom.*;
+import arc.scene.*;
+import arc.struct.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class GroupIndexTest{
+    private final Array<Element> drawn = new Array<>();
+
+    @Test
+    public void hitMatchesLinear(){
+        Rand rand = new Rand(1);
+        Group plain = new Group(){}, indexed = new Group(){};
+        indexed.setIndexed(true);
+        fill(rand, plain, indexed);
+
+        for(int i = 0; i < 5000; i++){
+            float x = rand.random(-20f, 520f), y = rand.random(-20f, 4100f);
+            assertHit(plain, indexed, x, y);
+        }
+
+        //moving and reordering children through their setters must update the index
+        for(int i = 0; i < 50; i++){
+            int child = rand.random(0, plain.getChildren().size - 1);
+            float x = rand.random(0f, 500f), y = rand.random(0f, 4000f);
+            plain.getChildren().get(child).setPosition(x, y);
+            indexed.getChildren().get(child).setPosition(x, y);
+            plain.getChildren().get(child).setZIndex(0);
+            indexed.getChildren().get(child).setZIndex(0);
+        }
+        plain.getChildren().get(3).setTranslation(0, 2000);
+        indexed.getChildren().get(3).setTranslation(0, 2000);
+
+        for(int i = 0; i < 5000; i++){
+            float x = rand.random(-20f, 520f), y = rand.random(-20f, 4100f);
+            assertHit(plain, indexed, x, y);
+        }
+    }
+
+    @Test
+    public void cullingMatchesLinear(){
+        Rand rand = new Rand(2);
+        Group plain = new Group(){}, indexed = new Group(){};
+        indexed.setIndexed(true);
+        fill(rand, plain, indexed);
+
+        for(int i = 0; i < 200; i++){
+            Rect area = new Rect(rand.random(-50f, 500f), rand.random(-50f, 4000f), rand.random(0f, 300f), rand.random(0f, 600f));
+            plain.setCullingArea(area);
+            indexed.setCullingArea(area);
+
+            Array<String> expected = draw(plain), actual = draw(indexed);
+            assertEquals(area.toString(), expected, actual);
+        }
+    }
+
+    /** Adds the same overlapping, randomly sized children to both groups, some of them invisible. */
+    private void fill(Rand rand, Group plain, Group indexed){
+        for(int i = 0; i < 1000; i++){
+            float x = rand.random(0f, 500f), y = rand.random(0f, 4000f), width = rand.random(1f, 60f), height = rand.random(1f, 60f);
+            boolean visible = rand.chance(0.9);
+            for(Group group : new Group[]{plain, indexed}){
+                Element element = new Element(){
+                    @Override
+                    public void draw(){
+                        drawn.add(this);
+                    }
+                };
+                element.setName(String.valueOf(i));
+                element.setBounds(x, y, width, height);
+                element.visible(visible);
+                group.addChild(element);
+            }
+        }
+    }
+
+    private Array<String> draw(Group group){
+        drawn.clear();
+        group.draw();
+        Array<String> names = new Array<>();
+        for(Element element : drawn) names.add(element.getName());
+        return names;
+    }
+
+    private void assertHit(Group plain, Group indexed, float x, float y){
+        Element expected = plain.hit(x, y, true), actual = indexed.hit(x, y, true);
+        assertEquals(x + ", " + y, expected == null ? null : expected.getName(), actual == null ? null : actual.getName());
+    }
+}
@@ -0,0 +1,316 @@
+package scene;
+
+import arc.*;
+import arc.graphics.*;
+import arc.mock.*;
+import arc.scene.*;
+import arc.scene.actions.*;
+import org.junit.*;
+
+import java.lang.reflect.*;
+
+import static org.junit.Assert.*;
+
+public class SceneActTest{
+
+    @Before
+    public void setup(){
+        Core.app = new MockApplication();
+        Core.graphics = new TestGraphics();
+        Core.gl = (GL20)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{GL20.class}, (proxy, method, args) -> null);
+    }
+
+    @Test
+    public void onlyActiveElementsAreActed(){
+        Scene scene = new Scene();
+        scene.setActTracking(true);
+
+        Group group = new Group(){};
+        Counting[] statics = new Counting[100];
+        for(int i = 0; i < statics.length; i++) group.addChild(statics[i] = new Counting());
+
+        Counting updated = new Counting();
+        int[] updates = {0};
+        updated.update(() -> updates[0]++);
+        group.addChild(updated);
+
+        Counting animated = new Counting();
+        animated.addAction(Actions.delay(0.25f));
+        group.addChild(animated);
+
+        Group hidden = new Group(){};
+        hidden.visible(false);
+        Counting hiddenChild = new Counting();
+        hiddenChild.update(() -> {});
+        hidden.addChild(hiddenChild);
+        group.addChild(hidden);
+
+        scene.add(group);
+        for(int i = 0; i < 10; i++) scene.act(0.1f);
+
+        for(Counting element : statics) assertEquals(0, element.acts);
+        assertEquals(10, updated.acts);
+        assertEquals(10, updates[0]);
+        //dropped once its action is done
+        assertEquals(3, animated.acts);
+        assertFalse(animated.hasActions());
+        assertEquals(0, hiddenChild.acts);
+
+        //elements that start needing act are picked up again
+        statics[5].addAction(Actions.delay(0.15f));
+        scene.act(0.1f);
+        scene.act(0.1f);
+        scene.act(0.1f);
+        assertEquals(2, statics[5].acts);
+        assertEquals(0, statics[6].acts);
+    }
+
+    @Test
+    public void actOverridesAreActed(){
+        Scene scene = new Scene();
+        scene.setActTracking(true);
+
+        int[] acts = {0};
+        scene.add(new Element(){
+            @Override
+            public void act(float delta){
+                super.act(delta);
+                acts[0]++;
+            }
+        });
+        Counting still = new Counting();
+        scene.add(still);
+
+        for(int i = 0; i < 5; i++) scene.act(0.1f);
+        assertEquals(5, acts[0]);
+        assertEquals(0, still.acts);
+    }
+
+    @Test
+    public void untrackedActsEverything(){
+        Scene scene = new Scene();
+        Counting still = new Counting();
+        scene.add(still);
+
+        for(int i = 0; i < 5; i++) scene.act(0.1f);
+        assertEquals(5, still.acts);
+    }
+
+    /** Counts calls to act(), while only needing it for the default reasons. */
+    static class Counting extends Element{
+        int acts;
+
+        @Override
+        public void act(float delta){
+            super.act(delta);
+            acts++;
+        }
+
+        @Override
+        public boolean needsAct(){
+            return super.needsAct();
+        }
+    }
+
+    static class TestGraphics extends Graphics{
+        @Override
+        public boolean isGL30Available(){
+            return false;
+        }
+
+        @Override
+        public GL20 getGL20(){
+            return null;
+        }
+
+        @Override
+        public void setGL20(GL20 gl20){
+        }
+
+        @Override
+        public GL30 getGL30(){
+            return null;
+        }
+
+        @Override
+        public void setGL30(GL30 gl30){
+        }
+
+        @Override
+        public int getWidth(){
+            return 800;
+        }
+
+        @Override
+        public int getHeight(){
+            return 600;
+        }
+
+        @Override
+        public int getBackBufferWidth(){
+            return 800;
+        }
+
+        @Override
+        public int getBackBufferHeight(){
+            return 600;
+        }
+
+        @Override
+        public long getFrameId(){
+            return 0;
+        }
+
+        @Override
+        public float getDeltaTime(){
+            return 0;
+        }
+
+        @Override
+        public float getRawDeltaTime(){
+            return 0;
+        }
+
+        @Override
+        public int getFramesPerSecond(){
+            return 0;
+        }
+
+        @Override
+        public arc.graphics.gl.GLVersion getGLVersion(){
+            return null;
+        }
+
+        @Override
+        public float getPpiX(){
+            return 0;
+        }
+
+        @Override
+        public float getPpiY(){
+            return 0;
+        }
+
+        @Override
+        public float getPpcX(){
+            return 0;
+        }
+
+        @Override
+        public float getPpcY(){
+            return 0;
+        }
+
+        @Override
+        public float getDensity(){
+            return 1;
+        }
+
+        @Override
+        public boolean supportsDisplayModeChange(){
+            return false;
+        }
+
+        @Override
+        public Monitor getPrimaryMonitor(){
+            return null;
+        }
+
+        @Override
+        public Monitor getMonitor(){
+            return null;
+        }
+
+        @Override
+        public Monitor[] getMonitors(){
+            return null;
+        }
+
+        @Override
+        public DisplayMode[] getDisplayModes(){
+            return null;
+        }
+
+        @Override
+        public DisplayMode[] getDisplayModes(Monitor monitor){
+            return null;
+        }
+
+        @Override
+        public DisplayMode getDisplayMode(){
+            return null;
+        }
+
+        @Override
+        public DisplayMode getDisplayMode(Monitor monitor){
+            return null;
+        }
+
+        @Override
+        public boolean setFullscreenMode(DisplayMode displayMode){
+            return false;
+        }
+
+        @Override
+        public boolean setWindowedMode(int width, int height){
+            return false;
+        }
+
+        @Override
+        public void setTitle(String title){
+        }
+
+        @Override
+        public void setUndecorated(boolean undecorated){
+        }
+
+        @Override
+        public void setResizable(boolean resizable){
+        }
+
+        @Override
+        public void setVSync(boolean vsync){
+        }
+
+        @Override
+        public BufferFormat getBufferFormat(){
+            return null;
+        }
+
+        @Override
+        public boolean supportsExtension(String extension){
+            return false;
+        }
+
+        @Override
+        public boolean isContinuousRendering(){
+            return false;
+        }
+
+        @Override
+        public void setContinuousRendering(boolean isContinuous){
+        }
+
+        @Override
+        public void requestRendering(){
+        }
+
+        @Override
+        public boolean isFullscreen(){
+            return false;
+        }
+
+        @Override
+        public Cursor newCursor(Pixmap pixmap, int xHotspot, int yHotspot){
+            return null;
+        }
+
+        @Override
+        protected void setCursor(Cursor cursor){
+        }
+
+        @Override
+        protected void setSystemCursor(Cursor.SystemCursor systemCursor){
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package utils;
+
+import arc.*;
+import arc.func.*;
+import arc.struct.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class EventsTest{
+
+    @Before
+    public void setup(){
+        Events.dispose();
+    }
+
+    @Test
+    public void priorityOrder(){
+        Array<String> calls = new Array<>();
+        Events.on(Event.class, e -> calls.add("default"));
+        Events.on(Event.class, 10, e -> calls.add("high"));
+        Events.on(Event.class, -10, e -> calls.add("low"));
+        Events.on(Event.class, 10, e -> calls.add("high2"));
+
+        Events.fire(new Event());
+        assertEquals(Array.with("high", "high2", "default", "low"), calls);
+    }
+
+    @Test
+    public void objectsAndClasses(){
+        int[] counts = new int[3];
+        Events.on(Trigger.update, () -> counts[0]++);
+        Events.on(Trigger.update, 5, () -> counts[1]++);
+        Events.on(Trigger.class, e -> counts[2]++);
+
+        Events.fire(Trigger.update);
+        Events.fire(Trigger.draw);
+        assertArrayEquals(new int[]{1, 1, 2}, counts);
+    }
+
+    @Test
+    public void remove(){
+        int[] counts = new int[2];
+        Runnable runnable = () -> counts[0]++;
+        Cons<Event> cons = e -> counts[1]++;
+        Events.on(Trigger.update, runnable);
+        Events.on(Event.class, cons);
+
+        assertTrue(Events.remove(Trigger.update, runnable));
+        assertFalse(Events.remove(Trigger.update, runnable));
+        assertFalse(Events.remove(Trigger.draw, () -> {}));
+        assertTrue(Events.remove(Event.class, cons));
+
+        Events.fire(Trigger.update);
+        Events.fire(new Event());
+        assertArrayEquals(new int[]{0, 0}, counts);
+    }
+
+    @Test
+    public void changesDuringFire(){
+        Array<String> calls = new Array<>();
+        Runnable second = () -> calls.add("second");
+        Events.on(Trigger.update, () -> {
+            calls.add("first");
+            //neither affects the event being fired
+            Events.remove(Trigger.update, second);
+            Events.on(Trigger.update, () -> calls.add("added"));
+        });
+        Events.on(Trigger.update, second);
+
+        Events.fire(Trigger.update);
+        assertEquals(Array.with("first", "second"), calls);
+
+        calls.clear();
+        Events.fire(Trigger.update);
+        assertEquals(Array.with("first", "added"), calls);
+    }
+
+    @Test
+    public void runnableAndCons(){
+        int[] counts = new int[2];
+        Both both = new Both(counts);
+        Events.on(Trigger.update, both);
+        Events.on(Event.class, (Cons<Event>)both);
+
+        Events.fire(Trigger.update);
+        Events.fire(new Event());
+        assertArrayEquals(new int[]{1, 1}, counts);
+    }
+
+    static class Event{
+    }
+
+    enum Trigger{
+        update, draw
+    }
+
+    static class Both implements Runnable, Cons<Event>{
+        final int[] counts;
+
+        Both(int[] counts){
+            this.counts = counts;
+        }
+
+        @Override
+        public void run(){
+            counts[0]++;
+        }
+
+        @Override
+        public void get(Event event){
+            counts[1]++;
+        }
+    }
+}
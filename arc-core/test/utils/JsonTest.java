@@ -0,0 +1,212 @@
+package utils;
+
+import arc.math.*;
+import arc.struct.*;
+import arc.util.serialization.*;
+import arc.util.serialization.BaseJsonStreamReader.*;
+import org.junit.*;
+
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+public class JsonTest{
+
+    @Test
+    public void primitiveFields(){
+        Json json = new Json();
+        Data data = new Data();
+        data.f = 1.5f;
+        data.i = -7;
+        data.l = 1L << 40;
+        data.d = 0.25;
+        data.s = 300;
+        data.b = 12;
+        data.bool = true;
+        data.name = "test";
+        data.list.add(3, 4);
+
+        Data read = json.fromJson(Data.class, json.toJson(data));
+        assertEquals(1.5f, read.f, 0f);
+        assertEquals(-7, read.i);
+        assertEquals(1L << 40, read.l);
+        assertEquals(0.25, read.d, 0);
+        assertEquals(300, read.s);
+        assertEquals(12, read.b);
+        assertTrue(read.bool);
+        assertEquals("test", read.name);
+        assertEquals(data.list, read.list);
+    }
+
+    @Test
+    public void primitivesFromStrings(){
+        Data read = new Json().fromJson(Data.class, "{f: \"2.5\", i: \"3\", bool: \"true\"}");
+        assertEquals(2.5f, read.f, 0f);
+        assertEquals(3, read.i);
+        assertTrue(read.bool);
+    }
+
+    @Test
+    public void primitiveSerializer(){
+        Json json = new Json();
+        json.setSerializer(int.class, new Json.Serializer<Integer>(){
+            @Override
+            public void write(Json json, Integer object, Class knownType){
+                json.writeValue(object);
+            }
+
+            @Override
+            public Integer read(Json json, JsonValue jsonData, Class type){
+                return jsonData.asInt() * 2;
+            }
+        });
+        Data read = json.fromJson(Data.class, "{i: 4, f: 4}");
+        assertEquals(8, read.i);
+        assertEquals(4f, read.f, 0f);
+    }
+
+    @Test
+    public void primitiveOutput(){
+        Data data = new Data();
+        data.f = 2f;
+        data.i = 3;
+        data.l = 1L << 40;
+        data.d = 0.1;
+        data.bool = true;
+
+        Json json = new Json();
+        assertEquals("{f:2,i:3,l:1099511627776,d:0.1,bool:true}", json.toJson(data));
+
+        json.setOutputType(JsonWriter.OutputType.json);
+        json.setQuoteLongValues(true);
+        assertEquals("{\"f\":2,\"i\":3,\"l\":\"1099511627776\",\"d\":\"0.1\",\"bool\":true}", json.toJson(data));
+    }
+
+    @Test
+    public void copyFields(){
+        Json json = new Json();
+        Data from = new Data(), to = new Data();
+        from.i = 5;
+        from.name = "copy";
+        json.copyFields(from, to);
+        assertEquals(5, to.i);
+        assertEquals("copy", to.name);
+        assertSame(from.list, to.list);
+    }
+
+    @Test
+    public void streamMatchesTree(){
+        String[] documents = {
+        "{a: 1, b: -2.5e3, c: \"str\\n\", d: [1, 2, 3,], e: {}, f: [], g: true, h: null, i: unquoted value}",
+        "// comment\n{\n  name: test /* block */\n  list: [a, b\n c]\n  \"quoted name\": 0.1\n}",
+        "[1e400, -0.0, 123456789012345678, 9223372036854775807, 9223372036854775808, 1.5f, +3, .5, 5.]",
+        "plain string",
+        "42"
+        };
+
+        for(String document : documents){
+            JsonValue expected = new JsonReader().parse(document);
+            JsonStreamReader stream = new JsonStreamReader(new StringReader(document), 2);
+            stream.nextToken();
+            JsonValue actual = stream.readTree();
+            assertEquals(Token.end, stream.nextToken());
+            assertEquals(document, expected.toJson(JsonWriter.OutputType.json), actual.toJson(JsonWriter.OutputType.json));
+        }
+    }
+
+    @Test
+    public void streamNumbers(){
+        Rand rand = new Rand(7);
+        StringBuilder builder = new StringBuilder("[");
+        double[] values = new double[2000];
+        for(int i = 0; i < values.length; i++){
+            values[i] = i % 2 == 0 ? rand.nextDouble() * Math.pow(10, rand.random(-30, 30)) : rand.random(-100000, 100000) / 1000.0;
+            builder.append(values[i]).append(',');
+        }
+        builder.append(']');
+
+        JsonStreamReader stream = new JsonStreamReader(builder.toString());
+        assertEquals(Token.arrayStart, stream.nextToken());
+        for(double value : values){
+            stream.nextToken();
+            assertEquals(value, stream.getDouble(), 0);
+        }
+        assertEquals(Token.arrayEnd, stream.nextToken());
+    }
+
+    @Test
+    public void streamSkip(){
+        JsonStreamReader stream = new JsonStreamReader("{skip: {a: [1, {b: 2}], c: {}}, keep: 3}");
+        stream.nextToken();
+        assertEquals(Token.name, stream.nextToken());
+        stream.skipValue();
+        assertEquals(Token.objectEnd, stream.token());
+        assertEquals(Token.name, stream.nextToken());
+        assertEquals("keep", stream.getString());
+        stream.nextToken();
+        assertEquals(3, stream.getInt());
+        assertEquals(Token.objectEnd, stream.nextToken());
+        assertEquals(Token.end, stream.nextToken());
+    }
+
+    @Test
+    public void streamObjects(){
+        Json json = new Json();
+        Data data = new Data();
+        data.f = 2.25f;
+        data.name = "stream";
+        data.list.add(1, 2, 3);
+        data.children.add(new Data(), new Data());
+        data.children.first().i = 9;
+        data.map.put("key", new Data());
+        data.floats = new float[]{1, 2.5f};
+        data.names = new String[]{"a", null};
+
+        String text = json.toJson(data);
+        Data read = json.fromJson(Data.class, null, new JsonStreamReader(text));
+        assertEquals(text, json.toJson(read));
+    }
+
+    @Test
+    public void streamBinary() throws IOException{
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        UBJsonWriter writer = new UBJsonWriter(out);
+        writer.object().set("f", 2.5f).set("i", 70000).set("name", "binary").set("bool", true);
+        writer.array("floats").value(1f).value(2f).pop();
+        writer.object("map").object("key").set("l", 1L << 40).pop().pop();
+        writer.pop();
+        writer.close();
+        byte[] bytes = out.toByteArray();
+
+        JsonValue expected = new UBJsonReader().parse(new ByteArrayInputStream(bytes));
+        UBJsonStreamReader stream = new UBJsonStreamReader(new ByteArrayInputStream(bytes));
+        stream.nextToken();
+        assertEquals(expected.toJson(JsonWriter.OutputType.json), stream.readTree().toJson(JsonWriter.OutputType.json));
+        assertEquals(Token.end, stream.nextToken());
+
+        Data read = new Json().fromJson(Data.class, null, new UBJsonStreamReader(new ByteArrayInputStream(bytes)));
+        assertEquals(2.5f, read.f, 0f);
+        assertEquals(70000, read.i);
+        assertEquals("binary", read.name);
+        assertTrue(read.bool);
+        assertEquals(2, read.floats.length);
+        assertEquals(2f, read.floats[1], 0f);
+        assertEquals(1L << 40, read.map.get("key").l);
+    }
+
+    public static class Data{
+        public float f;
+        public int i;
+        public long l;
+        public double d;
+        public short s;
+        public byte b;
+        public boolean bool;
+        public String name;
+        public final IntArray list = new IntArray();
+        public Array<Data> children = new Array<>();
+        public ObjectMap<String, Data> map = new ObjectMap<>();
+        public float[] floats;
+        public String[] names;
+    }
+}
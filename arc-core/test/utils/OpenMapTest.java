@@ -0,0 +1,104 @@
+package utils;
+
+import arc.struct.*;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class OpenMapTest{
+
+    @Test
+    public void objectMapMatchesHashMap(){
+        Random random = new Random(1);
+        ObjectMap<Integer, Integer> map = new ObjectMap<>(4);
+        HashMap<Integer, Integer> expected = new HashMap<>();
+
+        for(int i = 0; i < 20000; i++){
+            //a small key range with many colliding hashes causes lots of long probe chains and shifts
+            Integer key = random.nextInt(300) * 64;
+            switch(random.nextInt(3)){
+                case 0:
+                case 1:
+                    assertEquals(expected.put(key, i), map.put(key, i));
+                    break;
+                default:
+                    assertEquals(expected.remove(key), map.remove(key));
+            }
+            assertEquals(expected.size(), map.size);
+        }
+
+        for(Map.Entry<Integer, Integer> entry : expected.entrySet()){
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void iteratorRemove(){
+        Random random = new Random(2);
+        for(int round = 0; round < 50; round++){
+            LongMap<Long> map = new LongMap<>();
+            HashSet<Long> expected = new HashSet<>();
+            for(int i = 0; i < 200; i++){
+                long key = random.nextInt(1000) - 500;
+                map.put(key, key);
+                expected.add(key);
+            }
+
+            HashSet<Long> seen = new HashSet<>();
+            for(Iterator<LongMap.Entry<Long>> it = map.entries().iterator(); it.hasNext(); ){
+                LongMap.Entry<Long> entry = it.next();
+                assertTrue("visited twice: " + entry.key, seen.add(entry.key));
+                if(random.nextBoolean()){
+                    it.remove();
+                    expected.remove(entry.key);
+                }
+            }
+
+            assertEquals(expected.size(), map.size);
+            for(long key : expected){
+                assertEquals((Long)key, map.get(key));
+            }
+        }
+    }
+
+    @Test
+    public void primitiveMaps(){
+        Random random = new Random(3);
+        IntIntMap ints = new IntIntMap();
+        IntMap<String> objects = new IntMap<>();
+        ObjectIntMap<String> names = new ObjectIntMap<>();
+        HashMap<Integer, Integer> expected = new HashMap<>();
+
+        for(int i = 0; i < 20000; i++){
+            int key = random.nextInt(500) - 250;
+            if(random.nextInt(3) == 0){
+                Integer old = expected.remove(key);
+                assertEquals(old == null ? -1 : old, ints.remove(key, -1));
+                assertEquals(old == null ? null : old + "", objects.remove(key));
+                assertEquals(old == null ? -1 : old, names.remove(key + "", -1));
+            }else{
+                expected.put(key, i);
+                ints.put(key, i);
+                objects.put(key, i + "");
+                names.put(key + "", i);
+            }
+        }
+
+        assertEquals(expected.size(), ints.size);
+        assertEquals(expected.size(), objects.size);
+        assertEquals(expected.size(), names.size);
+        for(Map.Entry<Integer, Integer> entry : expected.entrySet()){
+            assertEquals((int)entry.getValue(), ints.get(entry.getKey(), -1));
+            assertEquals(entry.getValue() + "", objects.get(entry.getKey()));
+            assertEquals((int)entry.getValue(), names.get(entry.getKey() + "", -1));
+        }
+
+        ints.shrink(0);
+        objects.clear(4);
+        assertEquals(expected.size(), ints.size);
+        assertEquals(0, objects.size);
+        assertNull(objects.get(1));
+    }
+}
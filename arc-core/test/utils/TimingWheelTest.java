@@ -0,0 +1,130 @@
+package utils;
+
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class TimingWheelTest{
+
+    @Test
+    public void expiresInDeadlineOrder(){
+        TimingWheel wheel = new TimingWheel();
+        FloatArray expired = new FloatArray();
+        float[] delays = {0f, 0.5f, 3f, 63f, 64f, 65f, 4095.5f, 4096f, 300000f};
+
+        for(float delay : delays){
+            wheel.schedule(new TimingWheel.Entry(){
+                @Override
+                protected void expire(){
+                    assertTrue("Expired early: " + delay, wheel.time() >= delay);
+                    assertTrue("Expired late: " + delay, wheel.time() <= delay + 0.25f);
+                    expired.add(delay);
+                }
+            }, delay);
+        }
+        assertEquals(delays.length, wheel.size());
+
+        for(double time = 0.25; expired.size < delays.length; time += 0.25){
+            wheel.advance(time);
+        }
+
+        assertEquals(0, wheel.size());
+        for(int i = 0; i < delays.length; i++){
+            assertEquals(delays[i], expired.get(i), 0f);
+        }
+    }
+
+    @Test
+    public void dueWithinCurrentTick(){
+        TimingWheel wheel = new TimingWheel();
+        double[] expiredAt = {-1, -1};
+        wheel.advance(100.3);
+
+        wheel.schedule(new TimingWheel.Entry(){
+            @Override
+            protected void expire(){
+                expiredAt[0] = wheel.time();
+            }
+        }, 0);
+        //due later within the current tick, so it is kept in the current slot by the first advance
+        wheel.schedule(new TimingWheel.Entry(){
+            @Override
+            protected void expire(){
+                expiredAt[1] = wheel.time();
+            }
+        }, 0.5);
+
+        wheel.advance(100.4);
+        assertEquals(100.4, expiredAt[0], 0);
+        assertEquals(-1, expiredAt[1], 0);
+
+        wheel.advance(101.4);
+        assertEquals(101.4, expiredAt[1], 0);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void nextAdvanceAfterFractionalTime(){
+        TimingWheel wheel = new TimingWheel();
+        for(double start = 0.3; start < 300; start += 7.7){
+            wheel.advance(start);
+            double[] expiredAt = {-1};
+            wheel.schedule(new TimingWheel.Entry(){
+                @Override
+                protected void expire(){
+                    expiredAt[0] = wheel.time();
+                }
+            }, 0);
+
+            wheel.advance(start + 1);
+            assertEquals("Scheduled at " + start, start + 1, expiredAt[0], 0);
+        }
+    }
+
+    @Test
+    public void cancel(){
+        TimingWheel wheel = new TimingWheel();
+        int[] count = {0};
+        Array<TimingWheel.Entry> entries = new Array<>();
+        for(int i = 0; i < 100; i++){
+            TimingWheel.Entry entry = new TimingWheel.Entry(){
+                @Override
+                protected void expire(){
+                    count[0]++;
+                }
+            };
+            entries.add(entry);
+            wheel.schedule(entry, i * 10);
+        }
+
+        for(int i = 0; i < 100; i += 2){
+            assertTrue(entries.get(i).cancel());
+            assertFalse(entries.get(i).isScheduled());
+        }
+        assertEquals(50, wheel.size());
+
+        wheel.advance(2000);
+        assertEquals(50, count[0]);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void rescheduleWhileExpiring(){
+        TimingWheel wheel = new TimingWheel();
+        int[] count = {0};
+        TimingWheel.Entry entry = new TimingWheel.Entry(){
+            @Override
+            protected void expire(){
+                if(++count[0] < 10) wheel.schedule(this, 1);
+            }
+        };
+        wheel.schedule(entry, 1);
+
+        for(int i = 1; i <= 20; i++){
+            wheel.advance(i);
+        }
+        assertEquals(10, count[0]);
+    }
+}
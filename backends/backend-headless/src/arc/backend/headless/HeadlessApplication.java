@@ -8,6 +8,8 @@ import arc.struct.*;
 import arc.util.*;
 import arc.util.async.*;
 
+import java.util.concurrent.locks.*;
+
 /**
  * a headless implementation of a GDX Application primarily intended to be used in servers
  * @author Jon Renner
@@ -22,6 +24,8 @@ public class HeadlessApplication implements Application{
     protected final Array<Runnable> executedRunnables = new Array<>();
     protected final Cons<Throwable> exceptionHandler;
     private final long renderInterval;
+    private final HeadlessApplicationConfiguration config;
+    private final TickStats stats;
     protected Thread mainLoopThread;
     protected boolean running = true;
 
@@ -51,6 +55,8 @@ public class HeadlessApplication implements Application{
         Core.input = input;
 
         renderInterval = config.renderInterval > 0 ? (long)(config.renderInterval * 1000000000f) : (config.renderInterval < 0 ? -1 : 0);
+        this.config = config;
+        this.stats = new TickStats(config.statSamples, renderInterval);
 
         initialize();
     }
@@ -76,8 +82,11 @@ public class HeadlessApplication implements Application{
             }
         }
 
-        long t = Time.nanos() + renderInterval;
-        if(renderInterval >= 0f){
+        if(renderInterval > 0 && config.fixedStep){
+            fixedStepLoop();
+        }else if(renderInterval >= 0f){
+            long t = Time.nanos() + renderInterval;
+            long last = Time.nanos();
             while(running){
                 final long n = Time.nanos();
                 if(t > n){
@@ -86,14 +95,11 @@ public class HeadlessApplication implements Application{
                 }else
                     t = n + renderInterval;
 
-                executeRunnables();
-                graphics.incrementFrameId();
-                synchronized(listeners){
-                    for(ApplicationListener listener : listeners){
-                        listener.update();
-                    }
-                }
+                long start = Time.nanos();
+                tick();
                 graphics.updateTime();
+                stats.record(start - last, Time.nanos() - start);
+                last = start;
 
                 // If one of the runnables set running to false, for example after an exit().
                 if(!running) break;
@@ -109,6 +115,56 @@ public class HeadlessApplication implements Application{
         }
     }
 
+    /**
+     * Runs ticks at fixed deadlines, each exactly one interval after the previous one, so sleep inaccuracy doesn't
+     * accumulate into drift. Waits by parking until shortly before the deadline, then spinning. After a stall, up to
+     * {@link HeadlessApplicationConfiguration#maxCatchUpTicks} ticks are run back to back; the rest are dropped.
+     * Every tick, including catch-up ticks, reports exactly one interval as its delta time.
+     */
+    private void fixedStepLoop(){
+        float step = renderInterval / 1000000000f;
+        long deadline = Time.nanos() + renderInterval;
+        long last = Time.nanos();
+        while(running){
+            long remaining;
+            while((remaining = deadline - Time.nanos()) > 0){
+                if(remaining > config.spinNanos){
+                    LockSupport.parkNanos(remaining - config.spinNanos);
+                }else{
+                    Thread.yield();
+                }
+            }
+
+            long start = Time.nanos();
+            long behind = (start - deadline) / renderInterval;
+            if(behind > config.maxCatchUpTicks){
+                stats.drop(behind - config.maxCatchUpTicks);
+                deadline += (behind - config.maxCatchUpTicks) * renderInterval;
+            }
+            deadline += renderInterval;
+
+            graphics.updateTime(step);
+            tick();
+            stats.record(start - last, Time.nanos() - start);
+            last = start;
+        }
+    }
+
+    private void tick(){
+        executeRunnables();
+        graphics.incrementFrameId();
+        synchronized(listeners){
+            for(ApplicationListener listener : listeners){
+                listener.update();
+            }
+        }
+    }
+
+    /** @return timing statistics of recent ticks. */
+    public TickStats getTickStats(){
+        return stats;
+    }
+
     public void executeRunnables(){
         synchronized(runnables){
             for(int i = runnables.size - 1; i >= 0; i--)
@@ -160,5 +216,16 @@ public class HeadlessApplication implements Application{
     public static class HeadlessApplicationConfiguration{
         /** The minimum time (in seconds) between each call to the render method or negative to not call the render method at all. */
         public float renderInterval = 1f / 60f;
+        /**
+         * Whether to schedule ticks on a fixed timestep: every tick is due exactly one interval after the previous one, and
+         * waiting uses precise parking followed by a short spin instead of a millisecond sleep.
+         */
+        public boolean fixedStep = false;
+        /** With a fixed step, the maximum number of late ticks run back to back to catch up after a stall. */
+        public int maxCatchUpTicks = 5;
+        /** With a fixed step, how long before a deadline to stop parking and spin instead, in nanoseconds. */
+        public long spinNanos = 1000000;
+        /** The number of recent ticks kept for {@link TickStats}. 0 only counts ticks, without tick times. */
+        public int statSamples = 600;
     }
 }
@@ -0,0 +1,96 @@
+package arc.backend.headless;
+
+import java.util.*;
+
+/**
+ * Timing statistics of the most recent ticks of a {@link HeadlessApplication}. Can be read from any thread.
+ */
+public class TickStats{
+    private final long[] work, intervals;
+    private final long targetNanos;
+    private int index, count;
+    private long ticks, overruns, dropped;
+
+    TickStats(int samples, long targetNanos){
+        if(samples < 0) throw new IllegalArgumentException("samples must not be negative: " + samples);
+        this.work = new long[samples];
+        this.intervals = new long[samples];
+        this.targetNanos = targetNanos;
+    }
+
+    synchronized void record(long intervalNanos, long workNanos){
+        if(work.length > 0){
+            intervals[index] = intervalNanos;
+            work[index] = workNanos;
+            index = (index + 1) % work.length;
+            count = Math.min(count + 1, work.length);
+        }
+        ticks++;
+        if(targetNanos > 0 && workNanos > targetNanos) overruns++;
+    }
+
+    synchronized void drop(long ticks){
+        dropped += ticks;
+    }
+
+    /** @return the total number of ticks run. */
+    public synchronized long getTicks(){
+        return ticks;
+    }
+
+    /** @return the number of ticks that took longer than the tick interval. */
+    public synchronized long getOverruns(){
+        return overruns;
+    }
+
+    /** @return the number of ticks skipped because the loop fell too far behind to catch up. */
+    public synchronized long getDroppedTicks(){
+        return dropped;
+    }
+
+    /** @return the mean time spent running a tick, in nanoseconds. */
+    public synchronized long getMeanTickNanos(){
+        return mean(work);
+    }
+
+    /** @param percentile a value from 0 to 1, such as 0.99. */
+    public synchronized long getTickNanos(float percentile){
+        return percentile(work, percentile);
+    }
+
+    /** @return the mean time between the starts of consecutive ticks, in nanoseconds. */
+    public synchronized long getMeanIntervalNanos(){
+        return mean(intervals);
+    }
+
+    /** @param percentile a value from 0 to 1, such as 0.99. */
+    public synchronized long getIntervalNanos(float percentile){
+        return percentile(intervals, percentile);
+    }
+
+    public synchronized void reset(){
+        index = count = 0;
+        ticks = overruns = dropped = 0;
+    }
+
+    private long mean(long[] values){
+        if(count == 0) return 0;
+        long sum = 0;
+        for(int i = 0; i < count; i++) sum += values[i];
+        return sum / count;
+    }
+
+    private long percentile(long[] values, float percentile){
+        if(count == 0) return 0;
+        long[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+        return sorted[Math.min((int)(percentile * count), count - 1)];
+    }
+
+    @Override
+    public synchronized String toString(){
+        return "TickStats{ticks=" + ticks + ", meanMs=" + getMeanTickNanos() / 1000000f + ", p99Ms=" + getTickNanos(0.99f) / 1000000f +
+        ", meanIntervalMs=" + getMeanIntervalNanos() / 1000000f + ", p99IntervalMs=" + getIntervalNanos(0.99f) / 1000000f +
+        ", overruns=" + overruns + ", dropped=" + dropped + "}";
+    }
+}
@@ -183,7 +183,16 @@ public class MockGraphics extends Graphics{
 
     public void updateTime(){
         long time = System.nanoTime();
-        deltaTime = (time - lastTime) / 1000000000.0f;
+        updateTime(time, (time - lastTime) / 1000000000.0f);
+    }
+
+    /** Reports a fixed delta for this frame instead of the measured time since the last one. */
+    public void updateTime(float deltaTime){
+        updateTime(System.nanoTime(), deltaTime);
+    }
+
+    private void updateTime(long time, float deltaTime){
+        this.deltaTime = deltaTime;
         lastTime = time;
 
         if(time - frameStart >= 1000000000){
@@ -0,0 +1,140 @@
+package arc.net;
+
+import arc.struct.*;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A pool of direct byte buffers grouped into power of two size classes. A pool can be shared by every
+ * connection of a {@link Server} or {@link Client}: connections take their TCP buffers from it when they
+ * connect and return them when they are closed, so closed connections don't hold on to any memory and
+ * socket reads and writes don't go through an intermediate heap copy.
+ * <p>
+ * This class is thread safe.
+ */
+public class BufferPool{
+    private final FreeBuffers[] free = new FreeBuffers[31];
+    private final int maxFreePerClass;
+
+    private int obtains, allocations, frees, discards;
+    private long bytesInUse, bytesFree, peakBytesInUse;
+
+    /** Creates a pool that keeps every freed buffer. */
+    public BufferPool(){
+        this(Integer.MAX_VALUE);
+    }
+
+    /** @param maxFreePerClass The maximum number of free buffers kept for each size class. */
+    public BufferPool(int maxFreePerClass){
+        this.maxFreePerClass = maxFreePerClass;
+    }
+
+    /**
+     * Returns a cleared direct buffer with a capacity of at least the specified size, rounded up to the
+     * next power of two.
+     */
+    public synchronized ByteBuffer obtain(int size){
+        if(size <= 0) throw new IllegalArgumentException("size must be positive: " + size);
+        int sizeClass = sizeClass(size);
+        FreeBuffers buffers = free[sizeClass];
+
+        ByteBuffer buffer;
+        if(buffers != null && buffers.size > 0){
+            buffer = buffers.pop();
+            bytesFree -= buffer.capacity();
+        }else{
+            buffer = ByteBuffer.allocateDirect(1 << sizeClass);
+            allocations++;
+        }
+
+        obtains++;
+        bytesInUse += buffer.capacity();
+        peakBytesInUse = Math.max(peakBytesInUse, bytesInUse);
+        buffer.clear();
+        return buffer;
+    }
+
+    /** Returns a buffer obtained from this pool. The buffer must not be used afterwards. */
+    public synchronized void free(ByteBuffer buffer){
+        if(buffer == null) throw new IllegalArgumentException("buffer cannot be null.");
+        int capacity = buffer.capacity();
+        if(!buffer.isDirect() || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Buffer was not obtained from this pool.");
+
+        frees++;
+        bytesInUse -= capacity;
+
+        int sizeClass = Integer.numberOfTrailingZeros(capacity);
+        FreeBuffers buffers = free[sizeClass];
+        if(buffers == null) buffers = free[sizeClass] = new FreeBuffers();
+
+        if(buffers.size < maxFreePerClass){
+            buffers.add(buffer);
+            bytesFree += capacity;
+        }else{
+            discards++;
+        }
+    }
+
+    /** Drops all free buffers so their memory can be reclaimed. Buffers currently in use are not affected. */
+    public synchronized void clear(){
+        for(FreeBuffers buffers : free){
+            if(buffers != null) buffers.clear();
+        }
+        bytesFree = 0;
+    }
+
+    /** @return The number of buffers handed out by {@link #obtain(int)}. */
+    public synchronized int getObtainCount(){
+        return obtains;
+    }
+
+    /** @return The number of times {@link #obtain(int)} had to allocate a new buffer. */
+    public synchronized int getAllocationCount(){
+        return allocations;
+    }
+
+    /** @return The number of buffers returned with {@link #free(ByteBuffer)}. */
+    public synchronized int getFreeCount(){
+        return frees;
+    }
+
+    /** @return The number of freed buffers that were dropped because their size class was full. */
+    public synchronized int getDiscardCount(){
+        return discards;
+    }
+
+    /** @return The total capacity of all buffers currently obtained from this pool. */
+    public synchronized long getBytesInUse(){
+        return bytesInUse;
+    }
+
+    /** @return The highest value {@link #getBytesInUse()} has reached. */
+    public synchronized long getPeakBytesInUse(){
+        return peakBytesInUse;
+    }
+
+    /** @return The total capacity of all free buffers waiting to be reused. */
+    public synchronized long getBytesFree(){
+        return bytesFree;
+    }
+
+    @Override
+    public synchronized String toString(){
+        return "BufferPool{obtains=" + obtains + ", allocations=" + allocations + ", frees=" + frees + ", discards=" + discards +
+        ", bytesInUse=" + bytesInUse + ", peakBytesInUse=" + peakBytesInUse + ", bytesFree=" + bytesFree + "}";
+    }
+
+    private static int sizeClass(int size){
+        int sizeClass = 32 - Integer.numberOfLeadingZeros(size - 1);
+        if(sizeClass >= 31) throw new IllegalArgumentException("size is too large: " + size);
+        return sizeClass;
+    }
+
+    /** The free buffers of one size class; a named type so the size classes can be held in a plain array. */
+    private static class FreeBuffers extends Array<ByteBuffer>{
+        FreeBuffers(){
+            super(false, 8);
+        }
+    }
+}
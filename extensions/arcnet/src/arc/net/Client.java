@@ -89,7 +89,7 @@ public class Client extends Connection implements EndPoint{
 
         this.serialization = serialization;
 
-        initialize(serialization, writeBufferSize, objectBufferSize);
+        initialize(serialization, writeBufferSize, objectBufferSize, null);
 
         try{
             selector = Selector.open();
@@ -98,6 +98,15 @@ public class Client extends Connection implements EndPoint{
         }
     }
 
+    /**
+     * Sets the pool that the TCP read and write buffers are taken from on the next connect. Pooled
+     * buffers are direct and are returned to the pool when the client is closed.
+     * @param pool The pool to use, or null to allocate the buffers once on the heap (the default).
+     */
+    public void setBufferPool(BufferPool pool){
+        tcp.setPool(pool);
+    }
+
     public void setDiscoveryPacket(Prov<DatagramPacket> discoveryPacket){
         discoveryPacket = discoveryPacket;
     }
@@ -155,7 +164,7 @@ public class Client extends Connection implements EndPoint{
         try{
             if(udpPort != -1)
                 udp = new UdpConnection(serialization,
-                tcp.readBuffer.capacity());
+                tcp.objectBufferSize);
 
             long endTime;
             synchronized(updateLock){
@@ -318,6 +327,7 @@ public class Client extends Connection implements EndPoint{
                                 if(udp.readFromAddress() == null)
                                     continue;
                                 Object object = udp.readObject();
+                                stats.received(1, udp.lastReadLength);
                                 if(object == null)
                                     continue;
                                 notifyReceived(object);
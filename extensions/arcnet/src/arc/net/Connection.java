@@ -24,6 +24,7 @@ import arc.net.FrameworkMessage.Ping;
 import java.io.IOException;
 import java.net.Socket;
 import java.net.*;
+import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 
 /**
@@ -38,7 +39,7 @@ public class Connection{
     EndPoint endPoint;
     TcpConnection tcp;
     UdpConnection udp;
-    InetSocketAddress udpRemoteAddress;
+    volatile InetSocketAddress udpRemoteAddress;
     private NetListener[] listeners = {};
     private final Object listenerLock = new Object();
     private int lastPingID;
@@ -47,13 +48,14 @@ public class Connection{
     volatile boolean isConnected;
     volatile ArcNetException lastProtocolError;
     private Object arbitraryData;
+    final NetStats stats = new NetStats();
 
     protected Connection(){
     }
 
-    void initialize(NetSerializer serialization, int writeBufferSize, int objectBufferSize){
+    void initialize(NetSerializer serialization, int writeBufferSize, int objectBufferSize, BufferPool pool){
         tcp = new TcpConnection(serialization, writeBufferSize,
-        objectBufferSize);
+        objectBufferSize, pool, stats);
     }
 
     /**
@@ -104,22 +106,63 @@ public class Connection{
     public int sendUDP(Object object){
         if(object == null)
             throw new IllegalArgumentException("object cannot be null.");
-        SocketAddress address = udpRemoteAddress;
-        if(address == null && udp != null)
-            address = udp.connectedAddress;
-        if(address == null && isConnected)
-            throw new IllegalStateException("Connection is not connected via UDP.");
+        SocketAddress address = udpAddress();
 
         try{
             if(address == null) throw new SocketException("Connection is closed.");
 
-            return udp.send(object, address);
+            int length = udp.send(object, address);
+            if(length > 0)
+                stats.sent(1, length);
+            return length;
+        }catch(IOException | ArcNetException ex){
+            close(DcReason.error);
+            return 0;
+        }
+    }
+
+    /**
+     * Queues a TCP frame that was already serialized, length included.
+     * @return The number of bytes sent.
+     */
+    int sendTCPFrame(ByteBuffer frame){
+        try{
+            return tcp.sendFrame(frame);
         }catch(IOException | ArcNetException ex){
             close(DcReason.error);
             return 0;
         }
     }
 
+    /**
+     * Sends a UDP datagram that was already serialized.
+     * @return The number of bytes sent.
+     */
+    int sendUDPFrame(ByteBuffer frame){
+        SocketAddress address = udpAddress();
+
+        try{
+            if(address == null) throw new SocketException("Connection is closed.");
+
+            int length = udp.sendFrame(frame, address);
+            if(length > 0)
+                stats.sent(1, length);
+            return length;
+        }catch(IOException | ArcNetException ex){
+            close(DcReason.error);
+            return 0;
+        }
+    }
+
+    private SocketAddress udpAddress(){
+        SocketAddress address = udpRemoteAddress;
+        if(address == null && udp != null)
+            address = udp.connectedAddress;
+        if(address == null && isConnected)
+            throw new IllegalStateException("Connection is not connected via UDP.");
+        return address;
+    }
+
     public void close(DcReason reason){
         boolean wasConnected = isConnected;
         isConnected = false;
@@ -253,6 +296,7 @@ public class Connection{
                 if(ping.id == lastPingID - 1){
                     returnTripTime = (int)(System.currentTimeMillis()
                     - lastPingSendTime);
+                    stats.returnTripTime(returnTripTime);
                 }
             }else{
                 ping.isReply = true;
@@ -325,15 +369,53 @@ public class Connection{
      * socket, if any.
      */
     public int getTcpWriteBufferSize(){
-        return tcp.writeBuffer.position();
+        ByteBuffer writeBuffer = tcp.writeBuffer;
+        return writeBuffer == null ? 0 : writeBuffer.position();
+    }
+
+    /**
+     * Returns the traffic counters of this connection. They can be read from
+     * any thread. Comparing {@link NetStats#getPacketsSent()} with
+     * {@link NetStats#getSocketWrites()} shows how well writes are being
+     * coalesced.
+     */
+    public NetStats getStats(){
+        return stats;
+    }
+
+    /**
+     * If positive, objects sent over TCP are queued instead of being written
+     * immediately. Everything queued is written with a single socket write
+     * the next time the selector for this connection runs, or as soon as at
+     * least the specified number of bytes are queued. A server's selector is
+     * woken at most once per pass for this, however many of its connections
+     * queue objects. This trades a little latency for fewer system calls
+     * when many small objects are sent at once. Set to zero to write every
+     * object immediately (the default).
+     */
+    public void setWriteCoalescing(int thresholdBytes){
+        tcp.coalesceThreshold = thresholdBytes;
+    }
+
+    /**
+     * Sets the largest object that can be received over TCP, in bytes.
+     * Objects that don't fit in the object buffer but are no larger than this
+     * are received into a temporary buffer of their own, which is taken from
+     * the {@link BufferPool} if there is one. This requires a serializer whose
+     * length encoding can represent such sizes, such as a
+     * {@link VarintSerializer}. Defaults to the object buffer size.
+     */
+    public void setMaxFrameSize(int maxFrameSize){
+        tcp.maxFrameSize = maxFrameSize;
     }
 
     /**
      * @see #setIdleThreshold(float)
      */
     public boolean isIdle(){
-        return tcp.writeBuffer.position()
-        / (float)tcp.writeBuffer.capacity() < tcp.idleThreshold;
+        ByteBuffer writeBuffer = tcp.writeBuffer;
+        return writeBuffer == null || writeBuffer.position()
+        / (float)writeBuffer.capacity() < tcp.idleThreshold;
     }
 
     /**
@@ -0,0 +1,70 @@
+package arc.net;
+
+import arc.func.*;
+import arc.util.pooling.Pool.*;
+import arc.util.pooling.*;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A received object that has not been deserialized yet. A {@link NetSerializer} can return one of these from
+ * {@link NetSerializer#read(ByteBuffer)} instead of decoding the object on the network thread; the frame is
+ * then passed to {@link NetListener#received(Connection, Object)} and can be decoded later, for example on the
+ * game thread. Frames are pooled: call {@link #free()} once done with one.
+ * <pre>
+ * public Object read(ByteBuffer buffer){
+ *     if(buffer.get(buffer.position()) == worldDataID) return NetFrame.obtain(buffer);
+ *     ...
+ * }
+ * </pre>
+ */
+public class NetFrame implements Poolable{
+    private ByteBuffer buffer = ByteBuffer.allocate(0);
+
+    /**
+     * Copies all remaining bytes of the buffer into a pooled frame, advancing the buffer's position to its limit.
+     * The frame doesn't reference the buffer afterwards, so the network thread can reuse it.
+     */
+    public static NetFrame obtain(ByteBuffer source){
+        NetFrame frame = Pools.obtain(NetFrame.class, NetFrame::new);
+        frame.set(source);
+        return frame;
+    }
+
+    private void set(ByteBuffer source){
+        int length = source.remaining();
+        if(buffer.capacity() < length){
+            buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 3 / 2));
+        }
+        buffer.clear();
+        buffer.put(source);
+        buffer.flip();
+    }
+
+    /** @return A view of the frame's bytes. Its position is independent of the frame's. */
+    public ByteBuffer buffer(){
+        return buffer.duplicate();
+    }
+
+    /** @return The number of bytes in this frame. */
+    public int length(){
+        return buffer.limit();
+    }
+
+    /** Decodes the frame with the specified function, starting from the first byte each time. */
+    public <T> T decode(Func<ByteBuffer, T> decoder){
+        buffer.position(0);
+        return decoder.get(buffer);
+    }
+
+    /** Returns this frame to the pool. It must not be used afterwards. */
+    public void free(){
+        Pools.free(this);
+    }
+
+    @Override
+    public void reset(){
+        buffer.clear();
+        buffer.limit(0);
+    }
+}
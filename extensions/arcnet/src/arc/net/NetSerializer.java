@@ -37,12 +37,33 @@ public interface NetSerializer{
     /**
      * The fixed number of bytes that will be written by
      * {@link #writeLength(ByteBuffer, int)} and read by
-     * {@link #readLength(ByteBuffer)}.
+     * {@link #readLength(ByteBuffer)}. For variable length encodings, this is
+     * the maximum number of bytes.
      */
     default int getLengthLength(){
         return 2;
     }
 
+    /**
+     * The number of bytes {@link #writeLength(ByteBuffer, int)} uses for the
+     * specified length. Used to reserve room for the length before an object
+     * is serialized, based on the length of the previous one, and to place
+     * the length once the object's length is known.
+     */
+    default int getLengthLength(int length){
+        return getLengthLength();
+    }
+
+    /**
+     * Returns the number of bytes taken by the length at the buffer's
+     * position, without changing the position, or -1 if more bytes must be
+     * received before this is known.
+     */
+    default int peekLengthLength(ByteBuffer buffer){
+        int lengthLength = getLengthLength();
+        return buffer.remaining() >= lengthLength ? lengthLength : -1;
+    }
+
     default void writeLength(ByteBuffer buffer, int length){
         buffer.putShort((short)length);
     }
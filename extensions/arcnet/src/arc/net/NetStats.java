@@ -0,0 +1,146 @@
+package arc.net;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * Traffic counters for a {@link Connection}, or for all connections of a {@link Server}. Counters are updated by the
+ * network threads without allocating and can be read from any thread at any time. Every value recorded on a connection
+ * is also recorded on its parent, if any.
+ */
+public class NetStats{
+    /** Upper bounds, in milliseconds, of each return trip time histogram bucket. The last bucket has no upper bound. */
+    public static final int[] rttBuckets = {10, 25, 50, 100, 200, 500, 1000};
+
+    /** Stats that everything recorded here is also added to, or null. */
+    volatile NetStats parent;
+
+    private final AtomicLong bytesSent = new AtomicLong(), bytesReceived = new AtomicLong();
+    private final AtomicLong packetsSent = new AtomicLong(), packetsReceived = new AtomicLong();
+    private final AtomicLong socketWrites = new AtomicLong(), serializeNanos = new AtomicLong();
+    private final AtomicInteger queuedBytes = new AtomicInteger(), peakQueuedBytes = new AtomicInteger();
+    private final AtomicInteger lastReturnTripTime = new AtomicInteger(-1);
+    private final AtomicLongArray rttHistogram = new AtomicLongArray(rttBuckets.length + 1);
+
+    void sent(int packets, int bytes){
+        for(NetStats stats = this; stats != null; stats = stats.parent){
+            stats.packetsSent.addAndGet(packets);
+            stats.bytesSent.addAndGet(bytes);
+        }
+    }
+
+    void received(int packets, int bytes){
+        for(NetStats stats = this; stats != null; stats = stats.parent){
+            stats.packetsReceived.addAndGet(packets);
+            stats.bytesReceived.addAndGet(bytes);
+        }
+    }
+
+    void serialized(long nanos){
+        for(NetStats stats = this; stats != null; stats = stats.parent)
+            stats.serializeNanos.addAndGet(nanos);
+    }
+
+    void socketWrite(){
+        for(NetStats stats = this; stats != null; stats = stats.parent)
+            stats.socketWrites.incrementAndGet();
+    }
+
+    /** Records the number of bytes waiting in the TCP write buffer. The parent only tracks the peak. */
+    void queued(int bytes){
+        queuedBytes.set(bytes);
+        for(NetStats stats = this; stats != null; stats = stats.parent){
+            AtomicInteger peak = stats.peakQueuedBytes;
+            int current;
+            while(bytes > (current = peak.get()) && !peak.compareAndSet(current, bytes)){
+            }
+        }
+    }
+
+    void returnTripTime(int millis){
+        for(NetStats stats = this; stats != null; stats = stats.parent){
+            stats.lastReturnTripTime.set(millis);
+            stats.rttHistogram.incrementAndGet(bucket(millis));
+        }
+    }
+
+    private static int bucket(int millis){
+        for(int i = 0; i < rttBuckets.length; i++){
+            if(millis <= rttBuckets[i]) return i;
+        }
+        return rttBuckets.length;
+    }
+
+    /** @return The number of bytes written to the TCP socket or sent over UDP. */
+    public long getBytesSent(){
+        return bytesSent.get();
+    }
+
+    /** @return The number of bytes read from the TCP socket or received over UDP. */
+    public long getBytesReceived(){
+        return bytesReceived.get();
+    }
+
+    /** @return The number of objects sent over TCP or UDP. Broadcasts count once per connection. */
+    public long getPacketsSent(){
+        return packetsSent.get();
+    }
+
+    /** @return The number of objects received over TCP or UDP. */
+    public long getPacketsReceived(){
+        return packetsReceived.get();
+    }
+
+    /** @return The number of write calls made on TCP sockets. */
+    public long getSocketWrites(){
+        return socketWrites.get();
+    }
+
+    /** @return The total time spent serializing objects, in nanoseconds. */
+    public long getSerializeNanos(){
+        return serializeNanos.get();
+    }
+
+    /** @return The number of bytes currently waiting in the TCP write buffer. Always 0 for aggregate stats. */
+    public int getQueuedBytes(){
+        return queuedBytes.get();
+    }
+
+    /** @return The largest number of bytes that have been waiting in a TCP write buffer at once. */
+    public int getPeakQueuedBytes(){
+        return peakQueuedBytes.get();
+    }
+
+    /** @return The last measured return trip time in milliseconds, or -1 if none has been measured yet. */
+    public int getLastReturnTripTime(){
+        return lastReturnTripTime.get();
+    }
+
+    /**
+     * @param bucket An index into {@link #rttBuckets}, or its length for the bucket above the last bound.
+     * @return The number of return trip times measured that fell in the bucket.
+     */
+    public long getReturnTripTimeCount(int bucket){
+        return rttHistogram.get(bucket);
+    }
+
+    /** Resets all counters, but not those of the parent. */
+    public void reset(){
+        bytesSent.set(0);
+        bytesReceived.set(0);
+        packetsSent.set(0);
+        packetsReceived.set(0);
+        socketWrites.set(0);
+        serializeNanos.set(0);
+        peakQueuedBytes.set(queuedBytes.get());
+        lastReturnTripTime.set(-1);
+        for(int i = 0; i < rttHistogram.length(); i++)
+            rttHistogram.set(i, 0);
+    }
+
+    @Override
+    public String toString(){
+        return "NetStats{sent=" + getPacketsSent() + "/" + getBytesSent() + "b, received=" + getPacketsReceived() + "/" + getBytesReceived() +
+        "b, writes=" + getSocketWrites() + ", serializeMs=" + getSerializeNanos() / 1000000 + ", queued=" + getQueuedBytes() +
+        "b, peakQueued=" + getPeakQueuedBytes() + "b, rtt=" + getLastReturnTripTime() + "ms}";
+    }
+}
@@ -29,6 +29,8 @@ import java.net.*;
 import java.nio.*;
 import java.nio.channels.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 /**
  * Manages TCP and optionally UDP connections from many {@linkplain Client
@@ -39,6 +41,8 @@ public class Server implements EndPoint{
     private final NetSerializer serializer;
     private final int writeBufferSize, objectBufferSize;
     private final Selector selector;
+    private final ByteBuffer broadcastBuffer;
+    private final Object broadcastLock = new Object();
     private int emptySelects;
     private ServerSocketChannel serverChannel;
     private UdpConnection udp;
@@ -55,6 +59,15 @@ public class Server implements EndPoint{
     private InetAddress multicastGroup;
     private DiscoveryReceiver discoveryReceiver;
     private ServerDiscoveryHandler discoveryHandler;
+    private int selectorThreadCount, nextSelectorThread;
+    private SelectorThread[] selectorThreads = {};
+    private BlockingQueue<QueuedEvent> eventQueue;
+    private final AtomicBoolean dispatchPending = new AtomicBoolean();
+    /** Whether a coalesced frame woke {@link #selector} since its last select. */
+    private final AtomicBoolean wakePending = new AtomicBoolean();
+    private BufferPool bufferPool;
+    private int coalesceThreshold, maxFrameSize;
+    private final NetStats stats = new NetStats();
 
     private NetListener dispatchListener = new NetListener(){
         public void connected(Connection connection){
@@ -111,6 +124,7 @@ public class Server implements EndPoint{
         this.writeBufferSize = writeBufferSize;
         this.objectBufferSize = objectBufferSize;
         this.serializer = serializer;
+        this.broadcastBuffer = ByteBuffer.allocate(writeBufferSize);
 
         this.discoveryHandler = (address, handler) -> handler.respond(ByteBuffer.allocate(0));
 
@@ -138,6 +152,52 @@ public class Server implements EndPoint{
         discoveryHandler = newDiscoveryHandler;
     }
 
+    /**
+     * Sets the pool that connections accepted from now on take their TCP read and write buffers from.
+     * Pooled buffers are direct and are returned to the pool when a connection is closed.
+     * @param pool The pool to use, or null to give every connection its own heap buffers (the default).
+     */
+    public void setBufferPool(BufferPool pool){
+        this.bufferPool = pool;
+    }
+
+    public BufferPool getBufferPool(){
+        return bufferPool;
+    }
+
+    /**
+     * Sets the write coalescing threshold of connections accepted from now on.
+     * @see Connection#setWriteCoalescing(int)
+     */
+    public void setWriteCoalescing(int thresholdBytes){
+        this.coalesceThreshold = thresholdBytes;
+    }
+
+    /**
+     * Sets the largest frame connections accepted from now on will receive.
+     * @see Connection#setMaxFrameSize(int)
+     */
+    public void setMaxFrameSize(int maxFrameSize){
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * Shards TCP connections across several selector threads. Each connection stays on the thread it was
+     * assigned when accepted; that thread reads, deserializes and writes for it. Received objects and
+     * disconnects are handed back through a bounded queue and dispatched to listeners on the thread calling
+     * {@link #update(int)}, so listeners are still only called from a single thread. Accepting connections
+     * and UDP remain on the update thread. Takes effect on the next {@link #bind(int)}.
+     * @param threads The number of selector threads, or 0 to handle everything on the update thread (the default).
+     * @param queueCapacity The maximum number of received objects waiting to be dispatched. Selector threads
+     * stop reading while the queue is full.
+     */
+    public void setSelectorThreads(int threads, int queueCapacity){
+        if(threads < 0) throw new IllegalArgumentException("threads cannot be negative.");
+        if(queueCapacity <= 0) throw new IllegalArgumentException("queueCapacity must be positive.");
+        this.selectorThreadCount = threads;
+        this.eventQueue = threads == 0 ? null : new ArrayBlockingQueue<>(queueCapacity);
+    }
+
     /**
      * Opens a TCP only server.
      * @throws IOException if the server could not be opened.
@@ -175,6 +235,14 @@ public class Server implements EndPoint{
                     udp.bind(selector, udpPort);
                 }
 
+                if(selectorThreadCount > 0){
+                    selectorThreads = new SelectorThread[selectorThreadCount];
+                    for(int i = 0; i < selectorThreadCount; i++){
+                        selectorThreads[i] = new SelectorThread(i);
+                        selectorThreads[i].start();
+                    }
+                }
+
                 if(multicastGroup != null && (udpPort == null || multicastPort != udpPort.getPort())){
                     discoveryReceiver = new DiscoveryReceiver(multicastPort);
                     discoveryReceiver.start();
@@ -201,12 +269,14 @@ public class Server implements EndPoint{
         }
         long startTime = System.currentTimeMillis();
         int select;
+        wakePending.set(false);
         if(timeout > 0){
             select = selector.select(timeout);
         }else{
             select = selector.selectNow();
         }
-        if(select == 0){
+        int dispatched = dispatchQueued();
+        if(select == 0 && dispatched == 0){
             emptySelects++;
             if(emptySelects == 100){
                 emptySelects = 0;
@@ -218,7 +288,7 @@ public class Server implements EndPoint{
                 }catch(InterruptedException ignored){
                 }
             }
-        }else{
+        }else if(select != 0){
             emptySelects = 0;
             Set<SelectionKey> keys = selector.selectedKeys();
             synchronized(keys){
@@ -233,7 +303,8 @@ public class Server implements EndPoint{
 
                         if(fromConnection != null){ // Must be a TCP read or
                             // write operation.
-                            if(udp != null && fromConnection.udpRemoteAddress == null){
+                            // Coalesced writes may be flushed before UDP is registered.
+                            if(udp != null && fromConnection.udpRemoteAddress == null && (ops & SelectionKey.OP_READ) == SelectionKey.OP_READ){
                                 fromConnection.close(DcReason.error);
                                 continue;
                             }
@@ -333,6 +404,7 @@ public class Server implements EndPoint{
                         }
 
                         if(fromConnection != null){
+                            fromConnection.stats.received(1, udp.lastReadLength);
                             fromConnection.notifyReceived(object);
                             continue;
                         }
@@ -360,6 +432,25 @@ public class Server implements EndPoint{
         }
     }
 
+    /** Dispatches objects and disconnects queued by the selector threads. */
+    private int dispatchQueued(){
+        BlockingQueue<QueuedEvent> queue = eventQueue;
+        if(queue == null || selectorThreads.length == 0) return 0;
+        dispatchPending.set(false);
+
+        int count = 0;
+        QueuedEvent event;
+        while((event = queue.poll()) != null){
+            if(event.reason != null){
+                event.connection.close(event.reason);
+            }else{
+                event.connection.notifyReceived(event.object);
+            }
+            count++;
+        }
+        return count;
+    }
+
     private void keepAlive(){
         long time = System.currentTimeMillis();
         Connection[] connections = this.connections;
@@ -395,15 +486,27 @@ public class Server implements EndPoint{
     private void acceptOperation(SocketChannel socketChannel){
         Connection connection = newConnection();
         connection.initialize(serializer,
-        writeBufferSize, objectBufferSize);
+        writeBufferSize, objectBufferSize, bufferPool);
         connection.endPoint = this;
+        connection.stats.parent = stats;
+        connection.setWriteCoalescing(coalesceThreshold);
+        if(maxFrameSize > 0)
+            connection.setMaxFrameSize(maxFrameSize);
         UdpConnection udp = this.udp;
         if(udp != null)
             connection.udp = udp;
         try{
-            SelectionKey selectionKey = connection.tcp.accept(selector,
-            socketChannel);
-            selectionKey.attach(connection);
+            SelectionKey selectionKey;
+            SelectorThread[] selectorThreads = this.selectorThreads;
+            if(selectorThreads.length > 0){
+                SelectorThread thread = selectorThreads[nextSelectorThread++ % selectorThreads.length];
+                connection.tcp.wakePending = thread.wakePending;
+                selectionKey = thread.register(connection, socketChannel);
+            }else{
+                connection.tcp.wakePending = wakePending;
+                selectionKey = connection.tcp.accept(selector, socketChannel);
+                selectionKey.attach(connection);
+            }
 
             int id = nextConnectionID++;
             if(nextConnectionID == -1)
@@ -451,24 +554,16 @@ public class Server implements EndPoint{
         pendingConnections.remove(connection.id);
     }
 
-    // BOZO - Provide mechanism for sending to multiple clients without
-    // serializing multiple times.
-
+    /**
+     * Sends an object to every connection over TCP. The object is serialized only once and the
+     * resulting frame is copied into the write buffer of each connection.
+     */
     public void sendToAllTCP(Object object){
-        Connection[] connections = this.connections;
-        for(int i = 0, n = connections.length; i < n; i++){
-            Connection connection = connections[i];
-            connection.sendTCP(object);
-        }
+        broadcastTCP(object, -1);
     }
 
     public void sendToAllExceptTCP(int connectionID, Object object){
-        Connection[] connections = this.connections;
-        for(int i = 0, n = connections.length; i < n; i++){
-            Connection connection = connections[i];
-            if(connection.id != connectionID)
-                connection.sendTCP(object);
-        }
+        broadcastTCP(object, connectionID);
     }
 
     public void sendToTCP(int connectionID, Object object){
@@ -482,21 +577,16 @@ public class Server implements EndPoint{
         }
     }
 
+    /**
+     * Sends an object to every connection over UDP. The object is serialized only once and the
+     * same datagram is sent to each remote address.
+     */
     public void sendToAllUDP(Object object){
-        Connection[] connections = this.connections;
-        for(int i = 0, n = connections.length; i < n; i++){
-            Connection connection = connections[i];
-            connection.sendUDP(object);
-        }
+        broadcastUDP(object, -1);
     }
 
     public void sendToAllExceptUDP(int connectionID, Object object){
-        Connection[] connections = this.connections;
-        for(int i = 0, n = connections.length; i < n; i++){
-            Connection connection = connections[i];
-            if(connection.id != connectionID)
-                connection.sendUDP(object);
-        }
+        broadcastUDP(object, connectionID);
     }
 
     public void sendToUDP(int connectionID, Object object){
@@ -510,6 +600,78 @@ public class Server implements EndPoint{
         }
     }
 
+    /** @param exceptID The ID of a connection to skip, or -1, which is never assigned to a connection. */
+    private void broadcastTCP(Object object, int exceptID){
+        if(object == null) throw new IllegalArgumentException("object cannot be null.");
+        Connection[] connections = this.connections;
+        if(connections.length == 0) return;
+
+        synchronized(broadcastLock){
+            ByteBuffer frame = serializeBroadcast(object, true);
+            if(frame == null) return;
+
+            for(int i = 0, n = connections.length; i < n; i++){
+                Connection connection = connections[i];
+                if(connection.id != exceptID)
+                    connection.sendTCPFrame(frame);
+            }
+        }
+    }
+
+    /** @param exceptID The ID of a connection to skip, or -1, which is never assigned to a connection. */
+    private void broadcastUDP(Object object, int exceptID){
+        if(object == null) throw new IllegalArgumentException("object cannot be null.");
+        Connection[] connections = this.connections;
+        if(connections.length == 0) return;
+
+        synchronized(broadcastLock){
+            ByteBuffer frame = serializeBroadcast(object, false);
+            if(frame == null) return;
+
+            for(int i = 0, n = connections.length; i < n; i++){
+                Connection connection = connections[i];
+                if(connection.id != exceptID)
+                    connection.sendUDPFrame(frame);
+            }
+        }
+    }
+
+    /**
+     * Serializes an object into the shared broadcast buffer. TCP frames are prefixed with their length.
+     * Must be called while holding the broadcast lock.
+     * @return The serialized frame, or null if serialization failed.
+     */
+    private ByteBuffer serializeBroadcast(Object object, boolean tcp){
+        ByteBuffer buffer = broadcastBuffer;
+        buffer.clear();
+        int lengthLength = tcp ? serializer.getLengthLength() : 0;
+
+        try{
+            // Leave room for length.
+            buffer.position(lengthLength);
+            long startTime = System.nanoTime();
+            serializer.write(buffer, object);
+            stats.serialized(System.nanoTime() - startTime);
+        }catch(Throwable ex){
+            errorHandler.get(new ArcNetException("Error serializing object of type: " + object.getClass().getName(), ex));
+            return null;
+        }
+        int end = buffer.position();
+
+        int start = 0;
+        if(tcp){
+            // Write the length right before the object, so it never has to be moved.
+            int length = end - lengthLength;
+            start = lengthLength - serializer.getLengthLength(length);
+            buffer.position(start);
+            serializer.writeLength(buffer, length);
+        }
+
+        buffer.position(start);
+        buffer.limit(end);
+        return buffer;
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -579,6 +741,13 @@ public class Server implements EndPoint{
             this.udp = null;
         }
 
+        SelectorThread[] selectorThreads = this.selectorThreads;
+        for(SelectorThread thread : selectorThreads)
+            thread.close();
+        this.selectorThreads = new SelectorThread[0];
+        if(eventQueue != null)
+            eventQueue.clear();
+
         synchronized(updateLock){ // Blocks to avoid a select while the
             // selector is used to bind the server
             // connection.
@@ -603,6 +772,15 @@ public class Server implements EndPoint{
         return updateThread;
     }
 
+    /**
+     * Returns the traffic counters of all connections combined. They can be
+     * read from any thread.
+     * @see Connection#getStats()
+     */
+    public NetStats getStats(){
+        return stats;
+    }
+
     /**
      * Returns the current connections. The array returned should not be
      * modified.
@@ -611,6 +789,125 @@ public class Server implements EndPoint{
         return connections;
     }
 
+    static class QueuedEvent{
+        final Connection connection;
+        final Object object;
+        final DcReason reason;
+
+        QueuedEvent(Connection connection, Object object, DcReason reason){
+            this.connection = connection;
+            this.object = object;
+            this.reason = reason;
+        }
+    }
+
+    /** Reads and writes for a subset of the TCP connections on its own selector. */
+    class SelectorThread implements Runnable{
+        final Selector selector;
+        final Object registerLock = new Object();
+        final AtomicBoolean wakePending = new AtomicBoolean();
+        final int index;
+        volatile boolean running = true;
+        Thread thread;
+
+        SelectorThread(int index) throws IOException{
+            this.index = index;
+            this.selector = Selector.open();
+        }
+
+        void start(){
+            thread = Threads.daemon("Server Selector " + index, this);
+        }
+
+        SelectionKey register(Connection connection, SocketChannel socketChannel) throws IOException{
+            synchronized(registerLock){
+                selector.wakeup();
+                SelectionKey selectionKey = connection.tcp.accept(selector, socketChannel);
+                selectionKey.attach(connection);
+                return selectionKey;
+            }
+        }
+
+        void close(){
+            running = false;
+            selector.wakeup();
+            if(thread != null && thread != Thread.currentThread())
+                thread.interrupt();
+        }
+
+        @Override
+        public void run(){
+            try{
+                while(running){
+                    synchronized(registerLock){ // Blocks to avoid a select while a
+                        // connection is being registered.
+                    }
+                    wakePending.set(false);
+                    if(selector.select(250) == 0)
+                        continue;
+
+                    Set<SelectionKey> keys = selector.selectedKeys();
+                    for(Iterator<SelectionKey> iter = keys.iterator(); iter.hasNext();){
+                        SelectionKey selectionKey = iter.next();
+                        iter.remove();
+                        Connection connection = (Connection)selectionKey.attachment();
+                        try{
+                            int ops = selectionKey.readyOps();
+
+                            if(udp != null && connection.udpRemoteAddress == null && (ops & SelectionKey.OP_READ) == SelectionKey.OP_READ){
+                                disconnect(connection, DcReason.error);
+                                continue;
+                            }
+                            if((ops & SelectionKey.OP_READ) == SelectionKey.OP_READ){
+                                try{
+                                    while(true){
+                                        Object object = connection.tcp.readObject();
+                                        if(object == null)
+                                            break;
+                                        enqueue(new QueuedEvent(connection, object, null));
+                                    }
+                                }catch(IOException | ArcNetException ex){
+                                    errorHandler.get(new ArcNetException("Error reading TCP from connection: " + connection, ex));
+                                    disconnect(connection, ex.getMessage() != null && ex.getMessage().contains("closed") ? DcReason.closed : DcReason.error);
+                                    continue;
+                                }
+                            }
+                            if((ops & SelectionKey.OP_WRITE) == SelectionKey.OP_WRITE){
+                                try{
+                                    connection.tcp.writeOperation();
+                                }catch(IOException ex){
+                                    disconnect(connection, ex.getMessage() != null && ex.getMessage().contains("closed") ? DcReason.closed : DcReason.error);
+                                }
+                            }
+                        }catch(CancelledKeyException ex){
+                            disconnect(connection, DcReason.error);
+                        }
+                    }
+                }
+            }catch(InterruptedException ignored){
+            }catch(IOException ex){
+                errorHandler.get(ex);
+            }finally{
+                try{
+                    selector.close();
+                }catch(IOException ignored){
+                }
+            }
+        }
+
+        /** Closes the socket right away so nothing more is read, and lets the update thread notify listeners. */
+        private void disconnect(Connection connection, DcReason reason) throws InterruptedException{
+            connection.tcp.close();
+            enqueue(new QueuedEvent(connection, null, reason));
+        }
+
+        private void enqueue(QueuedEvent event) throws InterruptedException{
+            eventQueue.put(event);
+            if(dispatchPending.compareAndSet(false, true))
+                Server.this.selector.wakeup();
+        }
+    }
+
     class DiscoveryReceiver{
         MulticastSocket socket = null;
         Thread multicastThread;
@@ -24,6 +24,7 @@ import java.net.Socket;
 import java.net.*;
 import java.nio.ByteBuffer;
 import java.nio.channels.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author Nathan Sweet <misc@n4te.com>
@@ -31,29 +32,109 @@ import java.nio.channels.*;
 class TcpConnection{
     SocketChannel socketChannel;
     int keepAliveMillis = 8000;
-    final ByteBuffer readBuffer, writeBuffer;
+    /** Null while the connection is closed if the buffers come from a {@link BufferPool}. */
+    ByteBuffer readBuffer, writeBuffer;
+    final int writeBufferSize, objectBufferSize;
+    /** The pool buffers are taken from when connecting, or null to allocate them once on the heap. */
+    BufferPool pool;
     boolean bufferPositionFix;
     int timeoutMillis = 12000;
     float idleThreshold = 0.1f;
+    /** When positive, sent frames are only written once this many bytes are queued or the selector next runs. */
+    int coalesceThreshold;
+    /**
+     * Shared by the connections of one selector, which clears it before every select. Set by the first coalesced
+     * frame that wakes the selector, so it is woken at most once per pass. Null to always wake it.
+     */
+    AtomicBoolean wakePending;
+    /** Length of the last serialized object, used to guess how many bytes the next length takes. */
+    private int lastObjectLength;
+    final NetStats stats;
 
     final NetSerializer serialization;
     private SelectionKey selectionKey;
     private volatile long lastWriteTime, lastReadTime;
     private int currentObjectLength;
+    /** Frames larger than the read buffer but no larger than this are received into a temporary buffer. */
+    int maxFrameSize;
+    private ByteBuffer largeFrame;
     private final Object writeLock = new Object();
+    private final Object readLock = new Object();
+    private BufferPool bufferOwner;
 
-    public TcpConnection(NetSerializer serialization, int writeBufferSize, int objectBufferSize){
+    public TcpConnection(NetSerializer serialization, int writeBufferSize, int objectBufferSize, BufferPool pool, NetStats stats){
         this.serialization = serialization;
-        writeBuffer = ByteBuffer.allocate(writeBufferSize);
-        readBuffer = ByteBuffer.allocate(objectBufferSize);
-        readBuffer.flip();
+        this.stats = stats;
+        this.writeBufferSize = writeBufferSize;
+        this.objectBufferSize = objectBufferSize;
+        this.pool = pool;
+        this.maxFrameSize = objectBufferSize;
+        if(pool == null){
+            writeBuffer = ByteBuffer.allocate(writeBufferSize);
+            readBuffer = ByteBuffer.allocate(objectBufferSize);
+            readBuffer.flip();
+        }
+    }
+
+    /** Takes buffers from the pool if they were returned when closing, and resets them. */
+    private void prepareBuffers(){
+        synchronized(writeLock){
+            synchronized(readLock){
+                if(writeBuffer == null){
+                    if(pool == null){
+                        writeBuffer = ByteBuffer.allocate(writeBufferSize);
+                        readBuffer = ByteBuffer.allocate(objectBufferSize);
+                    }else{
+                        writeBuffer = pool.obtain(writeBufferSize);
+                        readBuffer = pool.obtain(objectBufferSize);
+                        bufferOwner = pool;
+                    }
+                }
+                writeBuffer.clear();
+                readBuffer.clear();
+                readBuffer.flip();
+                currentObjectLength = 0;
+                releaseLargeFrame();
+            }
+        }
+    }
+
+    private void releaseLargeFrame(){
+        if(largeFrame != null && pool != null)
+            pool.free(largeFrame);
+        largeFrame = null;
+    }
+
+    /** Changes the buffer pool. Buffers that are not in use are dropped so the next connect takes them from the new pool. */
+    void setPool(BufferPool pool){
+        synchronized(writeLock){
+            synchronized(readLock){
+                if(socketChannel == null){
+                    releaseBuffers();
+                    writeBuffer = readBuffer = null;
+                }
+                this.pool = pool;
+            }
+        }
+    }
+
+    /** Returns pooled buffers once the connection is closed. */
+    private void releaseBuffers(){
+        synchronized(writeLock){
+            synchronized(readLock){
+                releaseLargeFrame();
+                if(bufferOwner != null && writeBuffer != null){
+                    bufferOwner.free(writeBuffer);
+                    bufferOwner.free(readBuffer);
+                    writeBuffer = readBuffer = null;
+                    bufferOwner = null;
+                }
+            }
+        }
     }
 
     public SelectionKey accept(Selector selector, SocketChannel socketChannel) throws IOException{
-        writeBuffer.clear();
-        readBuffer.clear();
-        readBuffer.flip();
-        currentObjectLength = 0;
+        prepareBuffers();
         try{
             this.socketChannel = socketChannel;
             socketChannel.configureBlocking(false);
@@ -74,10 +155,7 @@ class TcpConnection{
 
     public void connect(Selector selector, SocketAddress remoteAddress, int timeout) throws IOException{
         close();
-        writeBuffer.clear();
-        readBuffer.clear();
-        readBuffer.flip();
-        currentObjectLength = 0;
+        prepareBuffers();
         try{
             SocketChannel socketChannel = selector.provider().openSocketChannel();
             Socket socket = socketChannel.socket();
@@ -100,22 +178,35 @@ class TcpConnection{
     }
 
     public Object readObject() throws IOException{
+        synchronized(readLock){
+            Object object = readObjectLocked();
+            if(object != null)
+                stats.received(1, 0);
+            return object;
+        }
+    }
+
+    private Object readObjectLocked() throws IOException{
         SocketChannel socketChannel = this.socketChannel;
         if(socketChannel == null)
             throw new SocketException("Connection is closed.");
+        ByteBuffer readBuffer = this.readBuffer;
+
+        if(largeFrame != null)
+            return readLargeFrame(socketChannel);
 
         if(currentObjectLength == 0){
             // Read the length of the next object from the socket.
-            int lengthLength = serialization.getLengthLength();
-            if(readBuffer.remaining() < lengthLength){
+            if(serialization.peekLengthLength(readBuffer) == -1){
                 readBuffer.compact();
                 int bytesRead = socketChannel.read(readBuffer);
                 readBuffer.flip();
                 if(bytesRead == -1)
                     throw new SocketException("Connection is closed.");
                 lastReadTime = System.currentTimeMillis();
+                stats.received(0, bytesRead);
 
-                if(readBuffer.remaining() < lengthLength)
+                if(serialization.peekLengthLength(readBuffer) == -1)
                     return null;
             }
             currentObjectLength = serialization.readLength(readBuffer);
@@ -123,10 +214,18 @@ class TcpConnection{
             if(currentObjectLength <= 0)
                 throw new ArcNetException(
                 "Invalid object length: " + currentObjectLength);
-            if(currentObjectLength > readBuffer.capacity())
-                throw new ArcNetException(
-                "Unable to read object larger than read buffer: "
-                + currentObjectLength);
+            if(currentObjectLength > readBuffer.capacity()){
+                if(currentObjectLength > maxFrameSize)
+                    throw new ArcNetException(
+                    "Unable to read object larger than read buffer: "
+                    + currentObjectLength);
+
+                // Too large for the read buffer, receive it into a buffer of its own.
+                largeFrame = pool == null ? ByteBuffer.allocate(currentObjectLength) : pool.obtain(currentObjectLength);
+                largeFrame.limit(currentObjectLength);
+                largeFrame.put(readBuffer);
+                return readLargeFrame(socketChannel);
+            }
         }
 
         int length = currentObjectLength;
@@ -138,6 +237,7 @@ class TcpConnection{
             if(bytesRead == -1)
                 throw new SocketException("Connection is closed.");
             lastReadTime = System.currentTimeMillis();
+            stats.received(0, bytesRead);
 
             if(readBuffer.remaining() < length)
                 return null;
@@ -163,6 +263,69 @@ class TcpConnection{
         return object;
     }
 
+    private Object readLargeFrame(SocketChannel socketChannel) throws IOException{
+        ByteBuffer frame = largeFrame;
+        if(frame.hasRemaining()){
+            int bytesRead = socketChannel.read(frame);
+            if(bytesRead == -1)
+                throw new SocketException("Connection is closed.");
+            lastReadTime = System.currentTimeMillis();
+            stats.received(0, bytesRead);
+
+            if(frame.hasRemaining())
+                return null;
+        }
+        largeFrame = null;
+        currentObjectLength = 0;
+
+        frame.flip();
+        try{
+            Object object;
+            try{
+                object = serialization.read(frame);
+            }catch(Exception ex){
+                throw new ArcNetException("Error during deserialization.", ex);
+            }
+
+            if(frame.hasRemaining())
+                throw new ArcNetException("Incorrect number of bytes ("
+                + frame.remaining()
+                + " remaining) used to deserialize object: " + object);
+            return object;
+        }finally{
+            if(pool != null)
+                pool.free(frame);
+        }
+    }
+
+    /**
+     * Writes the length in front of a frame whose object was serialized after
+     * {@code reserved} bytes. If the length takes a different number of
+     * bytes, the object is moved so the frame stays contiguous.
+     * @return The new end position of the frame.
+     */
+    static int writeFrameLength(NetSerializer serialization, ByteBuffer buffer, int start, int reserved, int end){
+        int length = end - reserved - start;
+        int lengthLength = serialization.getLengthLength(length);
+
+        if(lengthLength != reserved){
+            int moved = end + lengthLength - reserved;
+            if(moved > buffer.limit())
+                throw new ArcNetException("Write buffer overflow: " + (moved - buffer.limit()) + " more bytes needed to frame the object.");
+            ByteBuffer object = buffer.duplicate();
+            object.limit(end);
+            object.position(start + reserved);
+            buffer.position(start + lengthLength);
+            buffer.put(object);
+            end = moved;
+        }
+
+        buffer.position(start);
+        serialization.writeLength(buffer, length);
+        buffer.position(end);
+        return end;
+    }
+
     public void writeOperation() throws IOException{
         synchronized(writeLock){
             if(writeToSocket()){
@@ -179,16 +342,22 @@ class TcpConnection{
             throw new SocketException("Connection is closed.");
 
         ByteBuffer buffer = writeBuffer;
+        if(buffer == null)
+            throw new SocketException("Connection is closed.");
         buffer.flip();
         while(buffer.hasRemaining()){
             if(bufferPositionFix){
                 buffer.compact();
                 buffer.flip();
             }
-            if(socketChannel.write(buffer) == 0)
+            int written = socketChannel.write(buffer);
+            stats.socketWrite();
+            if(written == 0)
                 break;
+            stats.sent(0, written);
         }
         buffer.compact();
+        stats.queued(buffer.position());
 
         return buffer.position() == 0;
     }
@@ -201,40 +370,91 @@ class TcpConnection{
         if(socketChannel == null)
             throw new SocketException("Connection is closed.");
         synchronized(writeLock){
+            if(writeBuffer == null)
+                throw new SocketException("Connection is closed.");
 
             int start = writeBuffer.position();
-            int lengthLength = serialization.getLengthLength();
+            // Guess that the object takes as many bytes as the last one, so
+            // variable length lengths rarely need the object to be moved.
+            int lengthLength = serialization.getLengthLength(lastObjectLength);
 
             try{
                 // Leave room for length.
                 writeBuffer.position(writeBuffer.position() + lengthLength);
 
                 // Write data.
+                long startTime = System.nanoTime();
                 serialization.write(writeBuffer, object);
+                stats.serialized(System.nanoTime() - startTime);
             }catch(Throwable ex){
                 throw new ArcNetException("Error serializing object of type: "
                 + object.getClass().getName(), ex);
             }
-            int end = writeBuffer.position();
-
             // Write data length.
-            writeBuffer.position(start);
-            serialization.writeLength(writeBuffer, end - lengthLength - start);
-            writeBuffer.position(end);
+            int objectEnd = writeBuffer.position();
+            lastObjectLength = objectEnd - start - lengthLength;
+            int end = writeFrameLength(serialization, writeBuffer, start, lengthLength, objectEnd);
 
-            // Write to socket if no data was queued.
-            if(start == 0 && !writeToSocket()){
-                // A partial write, set OP_WRITE to be notified when more
-                // writing can occur.
-                selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
-            }else{
-                // Full write, wake up selector so idle event will be fired.
+            return flushQueued(start, end);
+        }
+    }
+
+    /**
+     * Queues a frame that has already been serialized, including its length prefix. The position
+     * of the frame is left untouched, so the same frame can be passed to many connections.
+     * This method is thread safe.
+     */
+    public int sendFrame(ByteBuffer frame) throws IOException{
+        SocketChannel socketChannel = this.socketChannel;
+        if(socketChannel == null)
+            throw new SocketException("Connection is closed.");
+        synchronized(writeLock){
+            if(writeBuffer == null)
+                throw new SocketException("Connection is closed.");
+            int start = writeBuffer.position();
+            int length = frame.remaining();
+            if(length > writeBuffer.remaining())
+                throw new ArcNetException("Write buffer overflow: " + length + " bytes queued with only " + writeBuffer.remaining() + " remaining.");
+
+            int position = frame.position();
+            writeBuffer.put(frame);
+            frame.position(position);
+
+            return flushQueued(start, writeBuffer.position());
+        }
+    }
+
+    private int flushQueued(int start, int end) throws IOException{
+        stats.sent(1, 0);
+        stats.queued(end);
+
+        if(coalesceThreshold > 0){
+            if(end >= coalesceThreshold){
+                // Enough data was queued, write it all at once.
+                selectionKey.interestOps(writeToSocket() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
                 selectionKey.selector().wakeup();
+            }else if(start == 0){
+                // First frame since the last write. The next selector pass
+                // flushes everything queued until then with a single write.
+                // Wake the selector for that pass unless another frame
+                // already did.
+                selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                AtomicBoolean wakePending = this.wakePending;
+                if(wakePending == null || wakePending.compareAndSet(false, true))
+                    selectionKey.selector().wakeup();
             }
-
-            lastWriteTime = System.currentTimeMillis();
-            return end - start;
+        }else if(start == 0 && !writeToSocket()){
+            // Write to socket if no data was queued.
+            // A partial write, set OP_WRITE to be notified when more
+            // writing can occur.
+            selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }else{
+            // Full write, wake up selector so idle event will be fired.
+            selectionKey.selector().wakeup();
         }
+
+        lastWriteTime = System.currentTimeMillis();
+        return end - start;
     }
 
     public void close(){
@@ -247,6 +467,7 @@ class TcpConnection{
             }
         }catch(IOException ignored){
         }
+        releaseBuffers();
     }
 
     public boolean needsKeepAlive(long time){
@@ -36,6 +36,8 @@ class UdpConnection{
     private SelectionKey selectionKey;
     private final Object writeLock = new Object();
     private long lastCommunicationTime;
+    /** The size of the last datagram passed to {@link #readObject()}. */
+    int lastReadLength;
 
     public UdpConnection(NetSerializer serialization, int bufferSize){
         this.serialization = serialization;
@@ -95,6 +97,7 @@ class UdpConnection{
 
     public Object readObject(){
         readBuffer.flip();
+        lastReadLength = readBuffer.remaining();
         try{
             try{
                 Object object = serialization.read(readBuffer);
@@ -140,6 +143,31 @@ class UdpConnection{
         }
     }
 
+    /**
+     * Sends a datagram that has already been serialized. The position of the frame is left
+     * untouched, so the same frame can be sent to many addresses.
+     * This method is thread safe.
+     */
+    public int sendFrame(ByteBuffer frame, SocketAddress address) throws IOException{
+        DatagramChannel datagramChannel = this.datagramChannel;
+        if(datagramChannel == null)
+            throw new SocketException("Connection is closed.");
+        synchronized(writeLock){
+            int position = frame.position();
+            int length = frame.remaining();
+            try{
+                datagramChannel.send(frame, address);
+
+                lastCommunicationTime = System.currentTimeMillis();
+
+                boolean wasFullWrite = !frame.hasRemaining();
+                return wasFullWrite ? length : -1;
+            }finally{
+                frame.position(position);
+            }
+        }
+    }
+
     public void close(){
         connectedAddress = null;
         try{
@@ -0,0 +1,60 @@
+package arc.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link NetSerializer} that frames TCP objects with variable length lengths instead of a fixed two bytes.
+ * Lengths are written 7 bits at a time, low bits first, with the high bit of each byte set if another byte
+ * follows. Small objects take a single byte of overhead, and objects up to 2 GB can be framed, which together
+ * with {@link Connection#setMaxFrameSize(int)} allows sending large objects without splitting them up.
+ */
+public interface VarintSerializer extends NetSerializer{
+    /** The largest number of bytes a length can take. */
+    int maxLengthLength = 5;
+
+    @Override
+    default int getLengthLength(){
+        return maxLengthLength;
+    }
+
+    @Override
+    default int getLengthLength(int length){
+        if((length & ~0x7F) == 0) return 1;
+        if((length & ~0x3FFF) == 0) return 2;
+        if((length & ~0x1FFFFF) == 0) return 3;
+        if((length & ~0xFFFFFFF) == 0) return 4;
+        return 5;
+    }
+
+    @Override
+    default int peekLengthLength(ByteBuffer buffer){
+        int position = buffer.position(), available = Math.min(buffer.remaining(), maxLengthLength);
+        for(int i = 0; i < available; i++){
+            if((buffer.get(position + i) & 0x80) == 0)
+                return i + 1;
+        }
+        // A malformed length is reported by readLength.
+        return available == maxLengthLength ? maxLengthLength : -1;
+    }
+
+    @Override
+    default void writeLength(ByteBuffer buffer, int length){
+        while((length & ~0x7F) != 0){
+            buffer.put((byte)((length & 0x7F) | 0x80));
+            length >>>= 7;
+        }
+        buffer.put((byte)length);
+    }
+
+    @Override
+    default int readLength(ByteBuffer buffer){
+        int result = 0;
+        for(int shift = 0; shift < 35; shift += 7){
+            byte b = buffer.get();
+            result |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0)
+                return result;
+        }
+        throw new ArcNetException("Malformed length.");
+    }
+}
@@ -16,6 +16,7 @@ import static arc.ecs.Aspect.all;
  * @see EntitySubscription
  */
 @SkipWire
+@Reads
 public class AspectSubscriptionManager extends BaseSystem{
 
     private final Map<Aspect.Builder, EntitySubscription> subscriptionMap;
@@ -2,6 +2,7 @@ package arc.ecs;
 
 import arc.ecs.injection.*;
 import arc.ecs.utils.*;
+import arc.files.*;
 
 import java.util.*;
 
@@ -43,6 +44,9 @@ public class Base{
 
     final boolean alwaysDelayComponentRemoval;
 
+    /** Used by {@link #writeSnapshot(Fi, boolean)} and {@link #readSnapshot(Fi)}, created on demand. */
+    private Snapshot snapshot;
+
     /**
      * Creates a world without custom systems.
      * <p>
@@ -413,6 +417,33 @@ public class Base{
         return (T)invocationStrategy;
     }
 
+    /**
+     * @return the snapshot used by {@link #writeSnapshot(Fi, boolean)} and {@link #readSnapshot(Fi)}, to register
+     * codecs with.
+     */
+    public Snapshot getSnapshot(){
+        if(snapshot == null) snapshot = new Snapshot();
+        return snapshot;
+    }
+
+    /**
+     * Writes all entities and their components to the file.
+     * @param compress whether to deflate the data.
+     * @see Snapshot
+     */
+    public void writeSnapshot(Fi file, boolean compress){
+        getSnapshot().write(this, file, compress);
+    }
+
+    /**
+     * Restores the entities of a file written by {@link #writeSnapshot(Fi, boolean)}. No entities may have been created
+     * in this world yet.
+     * @see Snapshot
+     */
+    public void readSnapshot(Fi file){
+        getSnapshot().read(this, file);
+    }
+
     static class BaseSegment{
         /** Contains all systems and systems classes mapped. */
         final Map<Class<?>, BaseSystem> systems;
@@ -13,6 +13,9 @@ import static arc.ecs.utils.ArReflect.implementsAnyObserver;
 public abstract class BaseEntitySystem extends BaseSystem implements EntitySubscription.SubscriptionListener{
     private final Aspect.Builder aspectConfiguration;
     protected EntitySubscription subscription;
+    /** Change trackers by component type index, created on demand. */
+    private Bag<ChangeTracker> changeTrackers;
+    private final IntBag changedEntities = new IntBag();
 
     public BaseEntitySystem(){
         this(null);
@@ -67,6 +70,27 @@ public abstract class BaseEntitySystem extends BaseSystem implements EntitySubsc
         return (all != null || exclude != null || one != null) ? aspect : null;
     }
 
+    /**
+     * Returns the entities of this system whose component of the type changed since the last call with the same type,
+     * as reported to a {@link ChangeTracker}. The first call returns all entities of this system, so that consumers
+     * such as network synchronization start from a full update.
+     * @param type the component type to check for changes
+     * @return the changed entities; the bag is reused by the next call.
+     */
+    protected IntBag getChanged(Class<? extends Component> type){
+        if(changeTrackers == null) changeTrackers = new Bag<>(ChangeTracker.class);
+
+        int index = base.getComponentManager().getTypeFactory().getIndexFor(type);
+        ChangeTracker tracker = changeTrackers.safeGet(index);
+        if(tracker == null){
+            tracker = base.getMapper(type).trackChanges();
+            tracker.markAll(subscription);
+            changeTrackers.set(index, tracker);
+        }
+
+        return tracker.drain(subscription, changedEntities);
+    }
+
     /** @return entity subscription backing this system.*/
     public EntitySubscription getSubscription(){
         return base.getAspectSubscriptionManager().get(aspectConfiguration);
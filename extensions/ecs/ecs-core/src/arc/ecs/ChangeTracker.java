@@ -0,0 +1,107 @@
+package arc.ecs;
+
+import arc.ecs.utils.*;
+
+/**
+ * Collects the entities whose component of one type changed, for a single consumer.
+ * <p>
+ * A component is marked as changed by {@link Mapper#create(int)}, {@link Mapper#modify(int)},
+ * {@link Mapper#markChanged(int)} and, for {@link PackedComponent packed} types, by every field write. Writes to the
+ * fields of regular components are not seen. Each tracker is independent, so several systems can consume the changes
+ * of the same type at different times.
+ * <p>
+ * Changes are marked directly on the thread that created the mapper. Other threads must collect their marks in a
+ * {@link Buffer}, which {@link arc.ecs.systems.ParallelIteratingSystem} does for each chunk; marks made by other
+ * threads outside a buffer are not thread safe.
+ * @see Mapper#trackChanges()
+ * @see BaseEntitySystem#getChanged(Class)
+ */
+public class ChangeTracker{
+    final BitVector changed = new BitVector();
+    private final Mapper<?> mapper;
+
+    ChangeTracker(Mapper<?> mapper){
+        this.mapper = mapper;
+    }
+
+    /** @return whether the component of the entity changed since the tracker was last cleared. */
+    public boolean isChanged(int entityId){
+        return changed.get(entityId);
+    }
+
+    /** @return whether no component changed since the tracker was last cleared. */
+    public boolean isEmpty(){
+        return changed.isEmpty();
+    }
+
+    /** Marks every active entity of the subscription as changed, e.g. to force a full update. */
+    public void markAll(EntitySubscription subscription){
+        changed.or(subscription.getActiveEntityIds());
+    }
+
+    /**
+     * Decodes the changed entities that are in the subscription, then clears the tracker.
+     * @param out decoded entity ids end up here, after the bag is reset
+     * @return Same as out
+     */
+    public IntBag drain(EntitySubscription subscription, IntBag out){
+        changed.and(subscription.getActiveEntityIds());
+        changed.toIntBag(out);
+        changed.clear();
+        return out;
+    }
+
+    /** Forgets all changes. */
+    public void clear(){
+        changed.clear();
+    }
+
+    /** Stops tracking changes. */
+    public void dispose(){
+        mapper.untrack(this);
+    }
+
+    /** Collects the changes marked on one thread, to be applied to the trackers later on the thread that owns them. */
+    public static class Buffer{
+        static final ThreadLocal<Buffer> current = new ThreadLocal<>();
+
+        private final Bag<Mapper> mappers = new Bag<>(Mapper.class);
+        private final IntBag entities = new IntBag();
+
+        /**
+         * Collects the changes marked on the calling thread in this buffer, until {@link #end(Buffer)}.
+         * @return the buffer that was collecting before, to pass to {@link #end(Buffer)}
+         */
+        public Buffer begin(){
+            Buffer previous = current.get();
+            current.set(this);
+            return previous;
+        }
+
+        /** Stops collecting changes, restoring the buffer returned by {@link #begin()}. */
+        public void end(Buffer previous){
+            current.set(previous);
+        }
+
+        void add(Mapper<?> mapper, int entityId){
+            mappers.add(mapper);
+            entities.add(entityId);
+        }
+
+        /** Marks the collected changes in the trackers, then clears the buffer. */
+        public void apply(){
+            Mapper[] data = mappers.getData();
+            int[] ids = entities.getData();
+            for(int i = 0, s = entities.size(); s > i; i++){
+                data[i].markChanged(ids[i]);
+            }
+            clear();
+        }
+
+        /** Forgets the collected changes. */
+        public void clear(){
+            mappers.clear();
+            entities.setSize(0);
+        }
+    }
+}
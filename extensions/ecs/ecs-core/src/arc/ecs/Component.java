@@ -4,7 +4,8 @@ package arc.ecs;
  * Components are pure data classes with optionally some helper methods.
  * <p/>
  * Extend to create your own components. Decorate with {@link arc.ecs.annotations.PooledWeaver}
- * or manually extend {@link PooledComponent} to make the component pooled.
+ * or manually extend {@link PooledComponent} to make the component pooled. Decorate with
+ * {@link arc.ecs.annotations.PackedWeaver} to store its fields in arrays.
  * @author Arni Arent
  * @see PooledComponent
  * @see arc.ecs.annotations.PooledWeaver
@@ -13,6 +13,7 @@ import arc.ecs.utils.*;
  * @author Arni Arent
  */
 @SkipWire
+@Reads
 public class ComponentManager extends BaseSystem{
     /** Adrian's secret rebellion. */
     static final int NO_COMPONENTS = 0;
@@ -89,6 +90,7 @@ public class ComponentManager extends BaseSystem{
 
     /**
      * Get all components from all entities for a given type.
+     * For {@link PackedComponent packed} types, every element is the shared flyweight.
      * @param type the type of components to get
      * @return a bag containing all components of the given type
      */
@@ -209,6 +211,7 @@ public class ComponentManager extends BaseSystem{
         entityToIdentity.ensureCapacity(newSize);
         for(Mapper mapper : mappers){
             mapper.components.ensureCapacity(newSize);
+            mapper.ensurePackedCapacity(newSize);
         }
     }
 
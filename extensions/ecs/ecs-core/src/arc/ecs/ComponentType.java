@@ -11,6 +11,7 @@ package arc.ecs;
  */
 public class ComponentType{
     public final boolean isPooled;
+    public final boolean isPacked;
 
     /** The class type of the component type. */
     private final Class<? extends Component> type;
@@ -22,6 +23,7 @@ public class ComponentType{
         this.index = index;
         this.type = type;
         isPooled = (PooledComponent.class.isAssignableFrom(type));
+        isPacked = (PackedComponent.class.isAssignableFrom(type));
     }
 
     /**
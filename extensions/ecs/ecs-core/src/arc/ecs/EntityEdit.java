@@ -60,7 +60,7 @@ public final class EntityEdit{
      * @see #create(Class)
      */
     public EntityEdit add(Component component, ComponentType type){
-        if(type.isPooled){
+        if(type.isPooled || type.isPacked){
             throw new InvalidComponentException(component.getClass(),
             "Use EntityEdit#create(Class<Component>) for adding non-basic component types");
         }
@@ -11,6 +11,7 @@ import static arc.ecs.Aspect.all;
  * @author Adrian Papari
  */
 @SkipWire
+@Reads
 public class EntityManager extends BaseSystem{
     /** Contains all entities in the manager. */
     final Bag<Entity> entities;
@@ -3,6 +3,8 @@ package arc.ecs;
 import arc.ecs.annotations.*;
 import arc.ecs.utils.*;
 
+import java.lang.reflect.*;
+
 /**
  * Provide high performance component access and mutation from within a System.
  * <p>
@@ -17,6 +19,20 @@ public class Mapper<A extends Component> extends BaseComponentMapper<A>{
      * Holds all components of given type in the world.
      */
     final Bag<A> components;
+    /** The single instance of a packed type, which every entity's slot refers to; null for other types. */
+    final PackedComponent flyweight;
+    /** The thread that created the mapper, which uses {@link #flyweight} directly. Other threads get their own view. */
+    private final Thread owner = Thread.currentThread();
+    /** Flyweights of threads other than the owner, sharing the arrays of {@link #flyweight}. */
+    private final ThreadLocal<PackedView> views;
+    /** The instance fields of the packed type, copied to views. */
+    private final Field[] packedFields;
+    /** Incremented whenever views must copy the arrays or the mapper of {@link #flyweight} again. */
+    private volatile int packedVersion;
+    /** The number of entities the arrays of {@link #flyweight} are known to hold. */
+    private int packedCapacity;
+    /** Consumers of changes to this component type. */
+    private final Bag<ChangeTracker> trackers = new Bag<>(ChangeTracker.class);
     private final EntityTransmuter createTransmuter;
     private final EntityTransmuter removeTransmuter;
     private final ComponentPool pool;
@@ -32,6 +48,12 @@ public class Mapper<A extends Component> extends BaseComponentMapper<A>{
         ? new ComponentPool(type)
         : null;
 
+        flyweight = (this.type.isPacked)
+        ? (PackedComponent)ComponentManager.newInstance(type)
+        : null;
+        views = (flyweight != null) ? new ThreadLocal<>() : null;
+        packedFields = (flyweight != null) ? packedFields(type) : null;
+
         if(base.isAlwaysDelayComponentRemoval() || type.isAnnotationPresent(DelayedComponentRemoval.class))
             purgatory = new DelayedComponentRemover<>(components, pool, base.batchProcessor);
         else
@@ -51,13 +73,22 @@ public class Mapper<A extends Component> extends BaseComponentMapper<A>{
      * <p>
      * Only exception are components marked with {@link DelayedComponentRemoval}, when calling
      * this method from within a subscription listener.
+     * <p>
+     * For {@link PackedComponent packed} types, the returned flyweight is pointed at this entity. Each thread gets its
+     * own flyweight, so packed components can be read and written from a {@link arc.ecs.systems.ParallelIteratingSystem}.
      * @param entityId the entity that should possess the component
      * @return the instance of the component.
      * @throws ArrayIndexOutOfBoundsException if the component was removed or never existed
      */
     @Override
     public A get(int entityId){
-        return components.get(entityId);
+        A component = components.get(entityId);
+        if(flyweight != null && component != null){
+            PackedComponent view = flyweight();
+            view.forEntity(entityId);
+            return (A)view;
+        }
+        return component;
     }
 
     /**
@@ -116,28 +147,152 @@ public class Mapper<A extends Component> extends BaseComponentMapper<A>{
         if(component == null || purgatory.unmark(entityId)){
             // running transmuter first, as it performs som validation
             createTransmuter.transmuteNoOperation(entityId);
-            component = createNew();
+            component = createNew(entityId);
             components.unsafeSet(entityId, component);
+            if(flyweight != null) component = get(entityId);
         }
 
+        markChanged(entityId);
         return component;
     }
 
+    /**
+     * Retrieves a component for writing, marking it as changed for all {@link ChangeTracker trackers}.
+     * @param entityId the entity that possesses the component
+     * @return the instance of the component.
+     * @see #get(int)
+     */
+    public A modify(int entityId){
+        markChanged(entityId);
+        return get(entityId);
+    }
+
+    /**
+     * Marks the component of the entity as changed for all {@link ChangeTracker trackers}. On threads other than the one
+     * that created the mapper, the change is collected in the current {@link ChangeTracker.Buffer} if there is one.
+     */
+    public void markChanged(int entityId){
+        if(trackers.isEmpty()) return;
+        if(Thread.currentThread() != owner){
+            ChangeTracker.Buffer buffer = ChangeTracker.Buffer.current.get();
+            if(buffer != null){
+                buffer.add(this, entityId);
+                return;
+            }
+        }
+
+        ChangeTracker[] data = trackers.getData();
+        for(int i = 0, s = trackers.size(); s > i; i++){
+            data[i].changed.set(entityId);
+        }
+    }
+
+    /**
+     * Starts collecting changes to this component type for a new consumer.
+     * Only changes made after this call are collected.
+     * @return the tracker, which should be disposed when no longer needed.
+     */
+    public ChangeTracker trackChanges(){
+        ChangeTracker tracker = new ChangeTracker(this);
+        trackers.add(tracker);
+        if(flyweight != null && flyweight.mapper == null){
+            flyweight.mapper = this;
+            packedVersion++;
+        }
+        return tracker;
+    }
+
+    void untrack(ChangeTracker tracker){
+        trackers.remove(tracker);
+        if(flyweight != null && trackers.isEmpty()){
+            flyweight.mapper = null;
+            packedVersion++;
+        }
+    }
+
     @Override
     public A internalCreate(int entityId){
         A component = get(entityId);
         if(component == null || purgatory.unmark(entityId)){
-            component = createNew();
+            component = createNew(entityId);
             components.unsafeSet(entityId, component);
+            if(flyweight != null) component = get(entityId);
         }
 
+        markChanged(entityId);
         return component;
     }
 
-    private A createNew(){
+    private A createNew(int entityId){
+        if(flyweight != null){
+            ensurePackedCapacity(entityId + 1);
+            flyweight.forEntity(entityId);
+            flyweight.reset();
+            return (A)flyweight;
+        }
+
         return (A)((pool != null)
         ? pool.obtain()
         : ComponentManager.newInstance(type.getType()));
     }
 
+    /** Grows the arrays of a packed type to hold at least the specified number of entities. */
+    void ensurePackedCapacity(int capacity){
+        if(flyweight == null || capacity <= packedCapacity) return;
+
+        packedCapacity = Math.max(Math.max(capacity, packedCapacity * 2), 64);
+        flyweight.ensureCapacity(packedCapacity);
+        packedVersion++;
+    }
+
+    /** @return the flyweight of the current thread, with the current arrays. */
+    private PackedComponent flyweight(){
+        if(Thread.currentThread() == owner) return flyweight;
+
+        PackedView view = views.get();
+        if(view == null){
+            view = new PackedView((PackedComponent)ComponentManager.newInstance(type.getType()));
+            views.set(view);
+        }
+        int version = packedVersion;
+        if(view.version != version){
+            view.version = version;
+            share(view.component);
+        }
+        return view.component;
+    }
+
+    /** Points the view at the arrays and mapper of the shared flyweight. */
+    private void share(PackedComponent view){
+        try{
+            for(Field field : packedFields){
+                field.set(view, field.get(flyweight));
+            }
+        }catch(IllegalAccessException e){
+            throw new InvalidComponentException(type.getType(), "Unable to share packed fields.", e);
+        }
+        view.mapper = flyweight.mapper;
+    }
+
+    private static Field[] packedFields(Class<?> type){
+        Bag<Field> fields = new Bag<>(Field.class);
+        for(Field field : type.getDeclaredFields()){
+            if(Modifier.isStatic(field.getModifiers())) continue;
+            field.setAccessible(true);
+            fields.add(field);
+        }
+        Field[] result = new Field[fields.size()];
+        for(int i = 0; i < result.length; i++) result[i] = fields.get(i);
+        return result;
+    }
+
+    /** The flyweight of one thread. */
+    private static class PackedView{
+        final PackedComponent component;
+        int version = -1;
+
+        PackedView(PackedComponent component){
+            this.component = component;
+        }
+    }
 }
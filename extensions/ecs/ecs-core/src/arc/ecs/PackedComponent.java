@@ -0,0 +1,82 @@
+package arc.ecs;
+
+import java.util.*;
+
+/**
+ * Component type whose primitive fields are stored in arrays indexed by entity id, rather than in one object per
+ * entity.
+ * <p>
+ * Each {@link Mapper} holds a flyweight per thread that {@link Mapper#get(int)} points at the requested entity before
+ * returning it. References returned by earlier calls on the same thread therefore read and write the most recently
+ * requested entity, so don't hold on to them. Threads can access different entities concurrently, e.g. in a
+ * {@link arc.ecs.systems.ParallelIteratingSystem}. Changes written on other threads are only thread safe inside a
+ * {@link ChangeTracker.Buffer}, which parallel systems set up for each chunk.
+ * @see arc.ecs.annotations.PackedWeaver to generate packed components.
+ */
+public abstract class PackedComponent extends Component{
+    /** The entity whose values are currently read and written. */
+    protected int entityId;
+    /** The mapper to report changes to, if any changes are tracked. */
+    Mapper<?> mapper;
+
+    /** Points this flyweight at the entity. */
+    protected void forEntity(int entityId){
+        this.entityId = entityId;
+    }
+
+    /** Marks the current entity's component as changed, if changes are tracked. Called by generated setters. */
+    protected final void changed(){
+        if(mapper != null) mapper.markChanged(entityId);
+    }
+
+    /** Grows the backing arrays so that they hold at least the specified number of entities. */
+    protected abstract void ensureCapacity(int capacity);
+
+    /** Called when the component is created for an entity. Implementation should reset the entity's values. */
+    protected abstract void reset();
+
+    /** Returns the array, or a copy with room for at least the specified number of elements if it is too small. */
+    protected static boolean[] grow(boolean[] array, int capacity){
+        if(array == null) return new boolean[newSize(0, capacity)];
+        return array.length >= capacity ? array : Arrays.copyOf(array, newSize(array.length, capacity));
+    }
+
+    protected static byte[] grow(byte[] array, int capacity){
+        if(array == null) return new byte[newSize(0, capacity)];
+        return array.length >= capacity ? array : Arrays.copyOf(array, newSize(array.length, capacity));
+    }
+
+    protected static char[] grow(char[] array, int capacity){
+        if(array == null) return new char[newSize(0, capacity)];
+        return array.length >= capacity ? array : Arrays.copyOf(array, newSize(array.length, capacity));
+    }
+
+    protected static short[] grow(short[] array, int capacity){
+        if(array == null) return new short[newSize(0, capacity)];
+        return array.length >= capacity ? array : Arrays.copyOf(array, newSize(array.length, capacity));
+    }
+
+    protected static int[] grow(int[] array, int capacity){
+        if(array == null) return new int[newSize(0, capacity)];
+        return array.length >= capacity ? array : Arrays.copyOf(array, newSize(array.length, capacity));
+    }
+
+    protected static long[] grow(long[] array, int capacity){
+        if(array == null) return new long[newSize(0, capacity)];
+        return array.length >= capacity ? array : Arrays.copyOf(array, newSize(array.length, capacity));
+    }
+
+    protected static float[] grow(float[] array, int capacity){
+        if(array == null) return new float[newSize(0, capacity)];
+        return array.length >= capacity ? array : Arrays.copyOf(array, newSize(array.length, capacity));
+    }
+
+    protected static double[] grow(double[] array, int capacity){
+        if(array == null) return new double[newSize(0, capacity)];
+        return array.length >= capacity ? array : Arrays.copyOf(array, newSize(array.length, capacity));
+    }
+
+    private static int newSize(int length, int capacity){
+        return Math.max(Math.max(capacity, length * 2), 64);
+    }
+}
@@ -0,0 +1,150 @@
+package arc.ecs;
+
+import arc.ecs.annotations.*;
+import arc.ecs.utils.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Invocation strategy that runs systems which don't access the same components concurrently.
+ * <p>
+ * Each system's component accesses are taken from its {@link Reads} and {@link Writes} annotations, plus the types of
+ * its aspect, which count as read. Two systems conflict if either writes a type the other reads or writes. Systems
+ * without annotations conflict with every other system, so they always run alone, on the calling thread, and in
+ * order.
+ * <p>
+ * Systems are grouped into stages: each system is placed in the stage after the last stage containing an earlier
+ * system it conflicts with. Stages run in order, and the systems of a stage run concurrently on a fork-join pool.
+ * Entity state changes are applied between stages, since annotated systems don't make structural changes.
+ * @see DefaultInvoker
+ */
+public class ParallelInvoker extends SystemInvoker{
+    private final ForkJoinPool pool;
+    /** Indices of the systems in each stage. */
+    private int[][] stages;
+    private SystemTask[] tasks;
+    private final Bag<SystemTask> running = new Bag<>(SystemTask.class);
+    private final StageTask stageTask = new StageTask(running);
+
+    /** Runs systems on the common pool. */
+    public ParallelInvoker(){
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelInvoker(ForkJoinPool pool){
+        this.pool = pool;
+    }
+
+    @Override
+    protected void initialize(){
+        int count = systems.size();
+        BitVector[] reads = new BitVector[count], writes = new BitVector[count];
+        boolean[] exclusive = new boolean[count];
+        ComponentTypeFactory types = base.getComponentManager().getTypeFactory();
+
+        for(int i = 0; i < count; i++){
+            BaseSystem system = systems.get(i);
+            Reads read = system.getClass().getAnnotation(Reads.class);
+            Writes write = system.getClass().getAnnotation(Writes.class);
+            exclusive[i] = read == null && write == null;
+            reads[i] = new BitVector();
+            writes[i] = new BitVector();
+
+            if(read != null) for(Class<? extends Component> type : read.value()) reads[i].set(types.getIndexFor(type));
+            if(write != null) for(Class<? extends Component> type : write.value()) writes[i].set(types.getIndexFor(type));
+            if(system instanceof BaseEntitySystem){
+                Aspect aspect = ((BaseEntitySystem)system).getSubscription().getAspect();
+                reads[i].or(aspect.getAllSet());
+                reads[i].or(aspect.getOneSet());
+            }
+        }
+
+        int[] stageOf = new int[count];
+        int stageCount = 0;
+        for(int i = 0; i < count; i++){
+            int stage = 0;
+            for(int j = 0; j < i; j++){
+                boolean conflict = exclusive[i] || exclusive[j] || writes[i].intersects(reads[j]) || writes[i].intersects(writes[j])
+                || writes[j].intersects(reads[i]);
+                if(conflict) stage = Math.max(stage, stageOf[j] + 1);
+            }
+            stageOf[i] = stage;
+            stageCount = Math.max(stageCount, stage + 1);
+        }
+
+        int[] sizes = new int[stageCount];
+        for(int i = 0; i < count; i++) sizes[stageOf[i]]++;
+        stages = new int[stageCount][];
+        for(int i = 0; i < stageCount; i++) stages[i] = new int[sizes[i]];
+        int[] filled = new int[stageCount];
+        for(int i = 0; i < count; i++) stages[stageOf[i]][filled[stageOf[i]]++] = i;
+
+        tasks = new SystemTask[count];
+        for(int i = 0; i < count; i++) tasks[i] = new SystemTask(systems.get(i));
+    }
+
+    /** @return the number of stages the systems were grouped into. */
+    public int getStageCount(){
+        return stages.length;
+    }
+
+    /**
+     * Processes all stages in order, applying entity state changes before each stage and after the last one.
+     */
+    @Override
+    protected void process(){
+        for(int[] stage : stages){
+            Bag<SystemTask> running = this.running;
+            running.clear();
+            for(int index : stage){
+                if(!disabled.get(index)) running.add(tasks[index]);
+            }
+            if(running.isEmpty()) continue;
+
+            updateEntityStates();
+            if(running.size() == 1){
+                running.get(0).system.process();
+            }else{
+                for(int i = 0; i < running.size(); i++){
+                    SystemTask task = running.get(i);
+                    //systems with the same aspect share a subscription, which rebuilds its entities lazily and not
+                    //thread safely, so rebuild them before any system runs
+                    if(task.system instanceof BaseEntitySystem) ((BaseEntitySystem)task.system).getSubscription().getEntities();
+                    task.reinitialize();
+                }
+                stageTask.reinitialize();
+                pool.invoke(stageTask);
+            }
+        }
+        running.clear();
+
+        updateEntityStates();
+    }
+
+    private static class StageTask extends RecursiveAction{
+        final Bag<SystemTask> tasks;
+
+        StageTask(Bag<SystemTask> tasks){
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected void compute(){
+            invokeAll(Arrays.asList(tasks.getData()).subList(0, tasks.size()));
+        }
+    }
+
+    private static class SystemTask extends RecursiveAction{
+        final BaseSystem system;
+
+        SystemTask(BaseSystem system){
+            this.system = system;
+        }
+
+        @Override
+        protected void compute(){
+            system.process();
+        }
+    }
+}
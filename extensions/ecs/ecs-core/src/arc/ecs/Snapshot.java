@@ -0,0 +1,553 @@
+package arc.ecs;
+
+import arc.ecs.utils.*;
+import arc.files.*;
+import arc.struct.ObjectMap;
+import arc.util.*;
+import arc.util.io.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.*;
+import java.util.Arrays;
+import java.util.zip.*;
+
+/**
+ * Writes all entities of a {@link Base} and their components in a compact binary format, and restores them into a
+ * fresh world.
+ * <p>
+ * Entities are grouped by composition. Each group stores its component types and entity ids once, followed by one
+ * table per component type with the data of all its entities. Restoring creates each entity from an {@link Archetype}
+ * of its group, so entity ids are preserved and references to entities stored as ids stay valid.
+ * <p>
+ * Component data is written by the {@link Codec} registered for its type, or by the component itself if it implements
+ * {@link Persistent}. The arrays of other {@link PackedComponent packed} types are written a column at a time. Any
+ * other type falls back to a codec that looks up its primitive and String fields once and then accesses them through
+ * typed reflection, which is considerably slower; a warning is logged the first time each such type is written or read.
+ * <p>
+ * Snapshots capture the entities as of the last {@link Base#process()}, so take them between calls to it.
+ */
+public class Snapshot{
+    private static final int magic = 0x41524353, version = 2;
+
+    private final ObjectMap<Class<?>, Codec<?>> codecs = new ObjectMap<>();
+    private final ObjectMap<Class<?>, PackedCodec> packedCodecs = new ObjectMap<>();
+
+    private final ByteBufferOutput bufferOutput = new ByteBufferOutput();
+    private final ByteBufferInput bufferInput = new ByteBufferInput();
+    private final Writes bufferWrites = new Writes(bufferOutput);
+    private final Reads bufferReads = new Reads(bufferInput);
+
+    /** Entities by composition id, and the composition ids in use. */
+    private final Bag<IntBag> groups = new Bag<>(IntBag.class);
+    private final IntBag compositions = new IntBag();
+
+    /** Uses the codec for components of the type, instead of {@link Persistent} or reflection. */
+    public <T extends Component> Snapshot register(Class<T> type, Codec<T> codec){
+        codecs.put(type, codec);
+        return this;
+    }
+
+    /** Copies the registered codecs of another snapshot. */
+    public Snapshot set(Snapshot other){
+        codecs.putAll(other.codecs);
+        return this;
+    }
+
+    /** Writes all entities to the file, optionally compressed. */
+    public void write(Base base, Fi file, boolean compress){
+        OutputStream stream = file.write(false, Streams.DEFAULT_BUFFER_SIZE);
+        try{
+            stream.write(compress ? 1 : 0);
+            if(compress) stream = new BufferedOutputStream(new FastDeflaterOutputStream(stream), Streams.DEFAULT_BUFFER_SIZE);
+            write(base, new Writes(new DataOutputStream(stream)));
+        }catch(IOException e){
+            throw new ArcRuntimeException("Error writing snapshot: " + file, e);
+        }finally{
+            Streams.close(stream);
+        }
+    }
+
+    /** Restores the entities of a file written by {@link #write(Base, Fi, boolean)}. */
+    public void read(Base base, Fi file){
+        InputStream stream = file.read(Streams.DEFAULT_BUFFER_SIZE);
+        try{
+            int compressed = stream.read();
+            if(compressed == -1) throw new ArcRuntimeException("Empty snapshot: " + file);
+            if(compressed == 1) stream = new BufferedInputStream(new InflaterInputStream(stream), Streams.DEFAULT_BUFFER_SIZE);
+            read(base, new Reads(new DataInputStream(stream)));
+        }catch(IOException e){
+            throw new ArcRuntimeException("Error reading snapshot: " + file, e);
+        }finally{
+            Streams.close(stream);
+        }
+    }
+
+    /**
+     * Writes all entities to the buffer, starting at its position. If the buffer is too small, the snapshot is written
+     * to a new buffer of at least twice the capacity instead, starting at 0.
+     * @return the buffer holding the snapshot, which ends at the buffer's position.
+     */
+    public ByteBuffer write(Base base, ByteBuffer buffer){
+        while(true){
+            int start = buffer.position();
+            try{
+                bufferOutput.setBuffer(buffer);
+                write(base, bufferWrites);
+                return buffer;
+            }catch(BufferOverflowException e){
+                buffer.position(start);
+                int capacity = Math.max(buffer.capacity() * 2, 1024);
+                ByteBuffer larger = buffer.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+                buffer = larger.order(buffer.order());
+            }finally{
+                bufferOutput.setBuffer(null);
+            }
+        }
+    }
+
+    /** Restores the entities of a buffer written by {@link #write(Base, ByteBuffer)}, starting at its position. */
+    public void read(Base base, ByteBuffer buffer){
+        try{
+            bufferInput.setBuffer(buffer);
+            read(base, bufferReads);
+        }finally{
+            bufferInput.setBuffer(null);
+        }
+    }
+
+    /** Writes all entities that were active at the end of the last {@link Base#process()}. */
+    public void write(Base base, Writes write){
+        ComponentManager cm = base.getComponentManager();
+        ComponentTypeFactory types = cm.getTypeFactory();
+
+        //group entities by composition, keeping ids in ascending order
+        IntBag entities = base.getAspectSubscriptionManager().get(Aspect.all()).getEntities();
+        int[] ids = entities.getData();
+        clearGroups();
+        for(int i = 0, s = entities.size(); s > i; i++){
+            int cid = cm.getIdentity(ids[i]);
+            IntBag group = groups.safeGet(cid);
+            if(group == null) groups.set(cid, group = new IntBag());
+            if(group.isEmpty()) compositions.add(cid);
+            group.add(ids[i]);
+        }
+
+        //only the types in use are written, by name
+        BitVector used = new BitVector();
+        for(int i = 0, s = compositions.size(); s > i; i++){
+            used.or(bits(cm, compositions.get(i)));
+        }
+        int[] localIndex = new int[used.length()];
+        int typeCount = 0;
+
+        write.i(magic);
+        write.b(version);
+        write.i(used.cardinality());
+        for(int i = used.nextSetBit(0); i >= 0; i = used.nextSetBit(i + 1)){
+            localIndex[i] = typeCount++;
+            write.str(types.getTypeFor(i).getType().getName());
+        }
+
+        write.i(compositions.size());
+        for(int i = 0, s = compositions.size(); s > i; i++){
+            BitVector bits = bits(cm, compositions.get(i));
+            write.i(bits.cardinality());
+            for(int t = bits.nextSetBit(0); t >= 0; t = bits.nextSetBit(t + 1)){
+                write.i(localIndex[t]);
+            }
+
+            IntBag group = groups.get(compositions.get(i));
+            int[] groupIds = group.getData();
+            write.i(group.size());
+            for(int e = 0, es = group.size(); es > e; e++){
+                write.i(groupIds[e]);
+            }
+        }
+
+        for(int i = 0, s = compositions.size(); s > i; i++){
+            BitVector bits = bits(cm, compositions.get(i));
+            IntBag group = groups.get(compositions.get(i));
+            for(int t = bits.nextSetBit(0); t >= 0; t = bits.nextSetBit(t + 1)){
+                writeTable(cm.getMapper(types.getTypeFor(t).getType()), group, write);
+            }
+        }
+        clearGroups();
+    }
+
+    /** Empties the groups, which may be left filled by a failed write. */
+    private void clearGroups(){
+        IntBag[] data = groups.getData();
+        for(int i = 0, s = groups.size(); s > i; i++){
+            if(data[i] != null) data[i].setSize(0);
+        }
+        compositions.setSize(0);
+    }
+
+    /**
+     * Restores the entities of a snapshot. The world must be fresh: no entities may have been created in it, so that
+     * the restored entities get their original ids.
+     * @throws IllegalStateException if the world isn't fresh
+     */
+    @SuppressWarnings("unchecked")
+    public void read(Base base, Reads read){
+        if(read.i() != magic) throw new IllegalArgumentException("Not a snapshot.");
+        int fileVersion = read.b();
+        if(fileVersion != version) throw new IllegalArgumentException("Unsupported snapshot version: " + fileVersion);
+
+        Class<? extends Component>[] types = new Class[read.i()];
+        for(int i = 0; i < types.length; i++){
+            String name = read.str();
+            try{
+                types[i] = (Class<? extends Component>)Class.forName(name);
+            }catch(ClassNotFoundException e){
+                throw new IllegalArgumentException("Unknown component type in snapshot: " + name, e);
+            }
+        }
+
+        int groupCount = read.i();
+        Class<? extends Component>[][] groupTypes = new Class[groupCount][];
+        Archetype[] archetypes = new Archetype[groupCount];
+        int[][] groupIds = new int[groupCount][];
+        int maxId = -1;
+        for(int g = 0; g < groupCount; g++){
+            groupTypes[g] = new Class[read.i()];
+            for(int t = 0; t < groupTypes[g].length; t++){
+                groupTypes[g][t] = types[read.i()];
+            }
+            if(groupTypes[g].length > 0) archetypes[g] = new ArchetypeBuilder().add(groupTypes[g]).build(base);
+
+            groupIds[g] = new int[read.i()];
+            for(int e = 0; e < groupIds[g].length; e++){
+                maxId = Math.max(maxId, groupIds[g][e] = read.i());
+            }
+        }
+
+        //entities must be created in id order to get their original ids; gaps are filled and deleted again
+        int[] groupOf = new int[maxId + 1];
+        Arrays.fill(groupOf, -1);
+        for(int g = 0; g < groupCount; g++){
+            for(int id : groupIds[g]) groupOf[id] = g;
+        }
+        IntBag gaps = new IntBag();
+        for(int id = 0; id <= maxId; id++){
+            Archetype archetype = groupOf[id] == -1 ? null : archetypes[groupOf[id]];
+            int created = archetype == null ? base.create() : base.create(archetype);
+            if(created != id) throw new IllegalStateException("Snapshots can only be restored into a fresh world.");
+            if(groupOf[id] == -1) gaps.add(id);
+        }
+        for(int i = 0, s = gaps.size(); s > i; i++){
+            base.delete(gaps.get(i));
+        }
+
+        for(int g = 0; g < groupCount; g++){
+            for(Class<? extends Component> type : groupTypes[g]){
+                readTable(base.getMapper(type), groupIds[g], read);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Component> void writeTable(Mapper<T> mapper, IntBag group, Writes write){
+        int[] ids = group.getData();
+        PackedCodec packed = packedCodec(mapper);
+        if(packed != null){
+            packed.write(mapper.flyweight, ids, group.size(), write);
+            return;
+        }
+
+        Codec<T> codec = (Codec<T>)codec(mapper.type.getType());
+        for(int i = 0, s = group.size(); s > i; i++){
+            codec.write(mapper.get(ids[i]), write);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Component> void readTable(Mapper<T> mapper, int[] ids, Reads read){
+        PackedCodec packed = packedCodec(mapper);
+        if(packed != null){
+            packed.read(mapper.flyweight, ids, read);
+            return;
+        }
+
+        Codec<T> codec = (Codec<T>)codec(mapper.type.getType());
+        for(int id : ids){
+            codec.read(mapper.get(id), read);
+        }
+    }
+
+    private Codec<?> codec(Class<? extends Component> type){
+        Codec<?> codec = codecs.get(type);
+        if(codec == null){
+            if(Persistent.class.isAssignableFrom(type)){
+                codec = PersistentCodec.instance;
+            }else{
+                codec = new FieldCodec(type);
+                Log.warn("Snapshot: " + type.getName() + " has no codec and isn't Persistent; accessing its fields through reflection.");
+            }
+            codecs.put(type, codec);
+        }
+        return codec;
+    }
+
+    /** @return the codec for the arrays of a packed type, or null if the type isn't packed or has its own codec. */
+    private PackedCodec packedCodec(Mapper<?> mapper){
+        Class<? extends Component> type = mapper.type.getType();
+        if(mapper.flyweight == null || codecs.containsKey(type) || Persistent.class.isAssignableFrom(type)) return null;
+
+        PackedCodec codec = packedCodecs.get(type);
+        if(codec == null) packedCodecs.put(type, codec = new PackedCodec(type));
+        return codec;
+    }
+
+    /** @return the component types of a composition with at least one entity in {@link #groups}. */
+    private BitVector bits(ComponentManager cm, int compositionId){
+        return cm.componentBits(groups.get(compositionId).get(0));
+    }
+
+    /** Writes and reads the data of one component type. */
+    public interface Codec<T extends Component>{
+        void write(T component, Writes write);
+
+        /** Reads the data into a component that was just created. */
+        void read(T component, Reads read);
+    }
+
+    /** A component that writes and reads its own data. */
+    public interface Persistent{
+        void write(Writes write);
+
+        void read(Reads read);
+    }
+
+    private static class PersistentCodec implements Codec<Component>{
+        static final PersistentCodec instance = new PersistentCodec();
+
+        @Override
+        public void write(Component component, Writes write){
+            ((Persistent)component).write(write);
+        }
+
+        @Override
+        public void read(Component component, Reads read){
+            ((Persistent)component).read(read);
+        }
+    }
+
+    /** Accesses the primitive and String fields of a component through typed reflection, without boxing. */
+    private static class FieldCodec implements Codec<Component>{
+        final Field[] fields;
+        final int[] types;
+
+        FieldCodec(Class<? extends Component> type){
+            fields = fields(type, false);
+            types = types(fields, false);
+        }
+
+        @Override
+        public void write(Component component, Writes write){
+            try{
+                for(int i = 0; i < fields.length; i++){
+                    Field field = fields[i];
+                    switch(types[i]){
+                        case typeInt: write.i(field.getInt(component)); break;
+                        case typeFloat: write.f(field.getFloat(component)); break;
+                        case typeBoolean: write.bool(field.getBoolean(component)); break;
+                        case typeLong: write.l(field.getLong(component)); break;
+                        case typeDouble: write.d(field.getDouble(component)); break;
+                        case typeByte: write.b(field.getByte(component)); break;
+                        case typeShort: write.s(field.getShort(component)); break;
+                        case typeChar: write.s(field.getChar(component)); break;
+                        default:
+                            String value = (String)field.get(component);
+                            write.bool(value != null);
+                            if(value != null) write.str(value);
+                    }
+                }
+            }catch(IllegalAccessException e){
+                throw new InvalidComponentException(component.getClass(), "Unable to write component.", e);
+            }
+        }
+
+        @Override
+        public void read(Component component, Reads read){
+            try{
+                for(int i = 0; i < fields.length; i++){
+                    Field field = fields[i];
+                    switch(types[i]){
+                        case typeInt: field.setInt(component, read.i()); break;
+                        case typeFloat: field.setFloat(component, read.f()); break;
+                        case typeBoolean: field.setBoolean(component, read.bool()); break;
+                        case typeLong: field.setLong(component, read.l()); break;
+                        case typeDouble: field.setDouble(component, read.d()); break;
+                        case typeByte: field.setByte(component, read.b()); break;
+                        case typeShort: field.setShort(component, read.s()); break;
+                        case typeChar: field.setChar(component, (char)read.s()); break;
+                        default: field.set(component, read.bool() ? read.str() : null);
+                    }
+                }
+            }catch(IllegalAccessException e){
+                throw new InvalidComponentException(component.getClass(), "Unable to read component.", e);
+            }
+        }
+    }
+
+    /**
+     * Writes the arrays of a packed component a column at a time: each array is looked up once per table, then the
+     * values of all entities in the table are copied from or into it.
+     */
+    private static class PackedCodec{
+        final Field[] fields;
+        final int[] types;
+
+        PackedCodec(Class<? extends Component> type){
+            fields = fields(type, true);
+            types = types(fields, true);
+        }
+
+        void write(PackedComponent flyweight, int[] ids, int count, Writes write){
+            try{
+                for(int f = 0; f < fields.length; f++){
+                    Object array = fields[f].get(flyweight);
+                    switch(types[f]){
+                        case typeInt:{
+                            int[] values = (int[])array;
+                            for(int i = 0; i < count; i++) write.i(values[ids[i]]);
+                            break;
+                        }
+                        case typeFloat:{
+                            float[] values = (float[])array;
+                            for(int i = 0; i < count; i++) write.f(values[ids[i]]);
+                            break;
+                        }
+                        case typeBoolean:{
+                            boolean[] values = (boolean[])array;
+                            for(int i = 0; i < count; i++) write.bool(values[ids[i]]);
+                            break;
+                        }
+                        case typeLong:{
+                            long[] values = (long[])array;
+                            for(int i = 0; i < count; i++) write.l(values[ids[i]]);
+                            break;
+                        }
+                        case typeDouble:{
+                            double[] values = (double[])array;
+                            for(int i = 0; i < count; i++) write.d(values[ids[i]]);
+                            break;
+                        }
+                        case typeByte:{
+                            byte[] values = (byte[])array;
+                            for(int i = 0; i < count; i++) write.b(values[ids[i]]);
+                            break;
+                        }
+                        case typeShort:{
+                            short[] values = (short[])array;
+                            for(int i = 0; i < count; i++) write.s(values[ids[i]]);
+                            break;
+                        }
+                        case typeChar:{
+                            char[] values = (char[])array;
+                            for(int i = 0; i < count; i++) write.s(values[ids[i]]);
+                            break;
+                        }
+                    }
+                }
+            }catch(IllegalAccessException e){
+                throw new InvalidComponentException(flyweight.getClass(), "Unable to write component.", e);
+            }
+        }
+
+        void read(PackedComponent flyweight, int[] ids, Reads read){
+            try{
+                for(int f = 0; f < fields.length; f++){
+                    Object array = fields[f].get(flyweight);
+                    switch(types[f]){
+                        case typeInt:{
+                            int[] values = (int[])array;
+                            for(int id : ids) values[id] = read.i();
+                            break;
+                        }
+                        case typeFloat:{
+                            float[] values = (float[])array;
+                            for(int id : ids) values[id] = read.f();
+                            break;
+                        }
+                        case typeBoolean:{
+                            boolean[] values = (boolean[])array;
+                            for(int id : ids) values[id] = read.bool();
+                            break;
+                        }
+                        case typeLong:{
+                            long[] values = (long[])array;
+                            for(int id : ids) values[id] = read.l();
+                            break;
+                        }
+                        case typeDouble:{
+                            double[] values = (double[])array;
+                            for(int id : ids) values[id] = read.d();
+                            break;
+                        }
+                        case typeByte:{
+                            byte[] values = (byte[])array;
+                            for(int id : ids) values[id] = read.b();
+                            break;
+                        }
+                        case typeShort:{
+                            short[] values = (short[])array;
+                            for(int id : ids) values[id] = read.s();
+                            break;
+                        }
+                        case typeChar:{
+                            char[] values = (char[])array;
+                            for(int id : ids) values[id] = (char)read.s();
+                            break;
+                        }
+                    }
+                }
+            }catch(IllegalAccessException e){
+                throw new InvalidComponentException(flyweight.getClass(), "Unable to read component.", e);
+            }
+        }
+    }
+
+    private static final int typeInt = 0, typeFloat = 1, typeBoolean = 2, typeLong = 3, typeDouble = 4, typeByte = 5,
+    typeShort = 6, typeChar = 7, typeString = 8;
+
+    /** @return the fields written to snapshots: primitives and Strings, or the primitive arrays of a packed type. */
+    private static Field[] fields(Class<? extends Component> type, boolean packed){
+        Bag<Field> found = new Bag<>(Field.class);
+        for(Class<?> c = type; c != Component.class && c != PooledComponent.class && c != PackedComponent.class; c = c.getSuperclass()){
+            for(Field field : c.getDeclaredFields()){
+                int mods = field.getModifiers();
+                if(Modifier.isStatic(mods) || Modifier.isTransient(mods) || Modifier.isFinal(mods) || field.isSynthetic()) continue;
+
+                Class<?> fieldType = packed ? field.getType().getComponentType() : field.getType();
+                if(fieldType == null || !(fieldType.isPrimitive() || (!packed && fieldType == String.class))){
+                    throw new InvalidComponentException(type, "Field " + field.getName() + " can't be written to snapshots; " +
+                    "implement Snapshot.Persistent or register a codec.");
+                }
+                field.setAccessible(true);
+                found.add(field);
+            }
+        }
+        return Arrays.copyOf(found.getData(), found.size());
+    }
+
+    private static int[] types(Field[] fields, boolean packed){
+        int[] types = new int[fields.length];
+        for(int i = 0; i < fields.length; i++){
+            Class<?> type = packed ? fields[i].getType().getComponentType() : fields[i].getType();
+            types[i] =
+            type == int.class ? typeInt :
+            type == float.class ? typeFloat :
+            type == boolean.class ? typeBoolean :
+            type == long.class ? typeLong :
+            type == double.class ? typeDouble :
+            type == byte.class ? typeByte :
+            type == short.class ? typeShort :
+            type == char.class ? typeChar :
+            typeString;
+        }
+        return types;
+    }
+}
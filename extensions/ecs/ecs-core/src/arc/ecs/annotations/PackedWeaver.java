@@ -0,0 +1,25 @@
+package arc.ecs.annotations;
+
+import arc.ecs.*;
+
+import java.lang.annotation.*;
+
+/**
+ * Transforms a {@link Component} into a {@link PackedComponent}: each primitive field is replaced by an array indexed
+ * by entity id, so that iterating over a field of many entities reads memory linearly. Field reads and writes in all
+ * woven classes are replaced by calls to generated accessors, which the JIT inlines. Field writes mark the component as
+ * changed for any {@link ChangeTracker}. Transformation takes place in the
+ * same weaving step as {@link PooledWeaver}.
+ * <p>
+ * Only primitive fields are supported, and the component must not be subclassed. Constant field initializers, such as
+ * <code>int health = 100</code>, are applied again whenever the component is created for an entity, and other fields
+ * are zeroed. Other initializers are not evaluated per entity; assign such values in a <code>reset()</code> method,
+ * which runs after the fields are reset.
+ * <p>
+ * {@link Mapper#get(int)} returns a shared flyweight, see {@link PackedComponent}.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+@Documented
+public @interface PackedWeaver{
+}
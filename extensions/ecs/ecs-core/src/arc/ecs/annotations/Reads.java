@@ -0,0 +1,24 @@
+package arc.ecs.annotations;
+
+import arc.ecs.*;
+
+import java.lang.annotation.*;
+
+/**
+ * <p>Declares the component types a system reads, so that {@link ParallelInvoker} can run it alongside systems that
+ * don't write them. The types of the system's aspect are read implicitly.</p>
+ *
+ * <p>Systems with neither this annotation nor {@link Writes} are assumed to read and write everything. Declared systems
+ * must not create or delete entities or add or remove components, as they may run concurrently with other systems.</p>
+ * @see Writes
+ * @see ParallelInvoker
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Documented
+@UnstableApi
+public @interface Reads{
+
+    /** @return types read by the system */
+    Class<? extends Component>[] value() default {};
+}
@@ -0,0 +1,24 @@
+package arc.ecs.annotations;
+
+import arc.ecs.*;
+
+import java.lang.annotation.*;
+
+/**
+ * <p>Declares the component types a system modifies the fields of, so that {@link ParallelInvoker} doesn't run it
+ * alongside other systems that read or write them.</p>
+ *
+ * <p>Systems with neither this annotation nor {@link Reads} are assumed to read and write everything. Declared systems
+ * must not create or delete entities or add or remove components, as they may run concurrently with other systems.</p>
+ * @see Reads
+ * @see ParallelInvoker
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Documented
+@UnstableApi
+public @interface Writes{
+
+    /** @return types written by the system */
+    Class<? extends Component>[] value() default {};
+}
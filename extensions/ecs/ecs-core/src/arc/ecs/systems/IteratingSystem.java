@@ -9,6 +9,7 @@ import arc.ecs.utils.*;
  * <p>
  * Use this when you need to process entities matching an {@link Aspect},
  * and you want maximum performance.
+ * @see ParallelIteratingSystem
  * @author Arni Arent
  * @author Adrian Papari
  */
@@ -0,0 +1,237 @@
+package arc.ecs.systems;
+
+import arc.ecs.*;
+import arc.ecs.utils.*;
+import arc.func.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Iterates over {@link EntitySubscription} member entities on a fork-join pool.
+ * <p>
+ * The entities are split into chunks of consecutive ids, which are processed concurrently. Use this for systems with
+ * many entities and independent per-entity work, such as movement. {@link #process(int)} must only touch the
+ * components of the entity it is given, or otherwise be thread safe. {@link PackedComponent Packed} components can be
+ * used, as each thread gets its own flyweight. Changes marked for {@link ChangeTracker trackers} are collected per chunk
+ * and applied after all chunks are done.
+ * <p>
+ * Entities must not be created, deleted or edited directly while processing. Use {@link #create(Archetype, Intc)},
+ * {@link #delete(int)}, {@link #edit(int, Cons)} and {@link #defer(Runnable)} instead: calls made while processing are
+ * buffered per chunk and applied on the calling thread after all chunks are done, in the same order as if the entities
+ * had been processed one by one.
+ * @see IteratingSystem
+ */
+public abstract class ParallelIteratingSystem extends BaseEntitySystem{
+    private final ForkJoinPool pool;
+    private int chunkSize = 1024;
+
+    private final ThreadLocal<EditBuffer> buffer = new ThreadLocal<>();
+    private final Bag<Chunk> chunks = new Bag<>(Chunk.class);
+    private final ChunkGroup group = new ChunkGroup();
+
+    /**
+     * Creates a new ParallelIteratingSystem that runs on the common pool.
+     * @param aspect the aspect to match entities
+     */
+    public ParallelIteratingSystem(Aspect.Builder aspect){
+        this(aspect, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new ParallelIteratingSystem.
+     * @param aspect the aspect to match entities
+     * @param pool the pool to process chunks on
+     */
+    public ParallelIteratingSystem(Aspect.Builder aspect, ForkJoinPool pool){
+        super(aspect);
+        this.pool = pool;
+    }
+
+    /**
+     * Process a entity this system is interested in. Called concurrently for entities in different chunks.
+     * @param entity the entity to process
+     */
+    protected abstract void process(int entity);
+
+    /** @return the maximum number of entities processed by one task. */
+    public int getChunkSize(){
+        return chunkSize;
+    }
+
+    /**
+     * Sets the maximum number of entities processed by one task. Smaller chunks balance uneven work better, larger ones
+     * have less overhead. Subscriptions that fit in one chunk are processed on the calling thread.
+     */
+    public void setChunkSize(int chunkSize){
+        if(chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Creates an entity from the archetype, or with no components if it is null. Buffered while processing.
+     * @param init called with the id of the new entity, may be null
+     */
+    protected void create(Archetype archetype, Intc init){
+        EditBuffer edits = buffer.get();
+        if(edits == null){
+            int entity = archetype == null ? base.create() : base.create(archetype);
+            if(init != null) init.get(entity);
+        }else{
+            edits.add(EditBuffer.create, -1, archetype, init);
+        }
+    }
+
+    /** Deletes the entity. Buffered while processing. */
+    protected void delete(int entityId){
+        EditBuffer edits = buffer.get();
+        if(edits == null){
+            base.delete(entityId);
+        }else{
+            edits.add(EditBuffer.delete, entityId, null, null);
+        }
+    }
+
+    /** Edits the entity, e.g. to add or remove components. Buffered while processing. */
+    protected void edit(int entityId, Cons<EntityEdit> edit){
+        EditBuffer edits = buffer.get();
+        if(edits == null){
+            edit.get(base.edit(entityId));
+        }else{
+            edits.add(EditBuffer.edit, entityId, edit, null);
+        }
+    }
+
+    /** Runs any other change that isn't thread safe. Buffered while processing. */
+    protected void defer(Runnable runnable){
+        EditBuffer edits = buffer.get();
+        if(edits == null){
+            runnable.run();
+        }else{
+            edits.add(EditBuffer.run, -1, runnable, null);
+        }
+    }
+
+    /** @inheritDoc */
+    @Override
+    protected final void processSystem(){
+        IntBag actives = subscription.getEntities();
+        int size = actives.size();
+        if(size == 0) return;
+
+        int count = (size + chunkSize - 1) / chunkSize;
+        while(chunks.size() < count) chunks.add(new Chunk());
+
+        int[] ids = actives.getData();
+        Chunk[] data = chunks.getData();
+        for(int i = 0; i < count; i++){
+            data[i].set(ids, i * chunkSize, Math.min(size, (i + 1) * chunkSize));
+        }
+
+        if(count == 1){
+            data[0].compute();
+        }else{
+            group.count = count;
+            group.reinitialize();
+            pool.invoke(group);
+        }
+
+        for(int i = 0; i < count; i++){
+            data[i].changes.apply();
+        }
+        for(int i = 0; i < count; i++){
+            data[i].edits.apply(base);
+        }
+    }
+
+    private class ChunkGroup extends RecursiveAction{
+        int count;
+
+        @Override
+        protected void compute(){
+            invokeAll(Arrays.asList(chunks.getData()).subList(0, count));
+        }
+    }
+
+    private class Chunk extends RecursiveAction{
+        final EditBuffer edits = new EditBuffer();
+        final ChangeTracker.Buffer changes = new ChangeTracker.Buffer();
+        int[] ids;
+        int start, end;
+
+        void set(int[] ids, int start, int end){
+            this.ids = ids;
+            this.start = start;
+            this.end = end;
+            edits.clear();
+            changes.clear();
+            reinitialize();
+        }
+
+        @Override
+        protected void compute(){
+            //a thread may run other chunks while joining, so restore the previous buffers
+            EditBuffer previous = buffer.get();
+            ChangeTracker.Buffer previousChanges = changes.begin();
+            buffer.set(edits);
+            try{
+                int[] ids = this.ids;
+                for(int i = start, s = end; s > i; i++){
+                    process(ids[i]);
+                }
+            }finally{
+                buffer.set(previous);
+                changes.end(previousChanges);
+            }
+        }
+    }
+
+    /** Structural changes made by one chunk, in order. */
+    private static class EditBuffer{
+        static final int create = 0, delete = 1, edit = 2, run = 3;
+
+        /** Pairs of operation and entity id. */
+        final IntBag operations = new IntBag();
+        /** Pairs of arguments, one pair per operation. */
+        final Bag<Object> arguments = new Bag<>();
+
+        void add(int operation, int entityId, Object first, Object second){
+            operations.add(operation);
+            operations.add(entityId);
+            arguments.add(first);
+            arguments.add(second);
+        }
+
+        @SuppressWarnings("unchecked")
+        void apply(Base base){
+            int[] ops = operations.getData();
+            Object[] args = arguments.getData();
+            for(int i = 0, s = operations.size(); s > i; i += 2){
+                int entityId = ops[i + 1];
+                switch(ops[i]){
+                    case create:
+                        Archetype archetype = (Archetype)args[i];
+                        Intc init = (Intc)args[i + 1];
+                        int entity = archetype == null ? base.create() : base.create(archetype);
+                        if(init != null) init.get(entity);
+                        break;
+                    case delete:
+                        base.delete(entityId);
+                        break;
+                    case edit:
+                        ((Cons<EntityEdit>)args[i]).get(base.edit(entityId));
+                        break;
+                    case run:
+                        ((Runnable)args[i]).run();
+                        break;
+                }
+            }
+            clear();
+        }
+
+        void clear(){
+            operations.setSize(0);
+            arguments.clear();
+        }
+    }
+}
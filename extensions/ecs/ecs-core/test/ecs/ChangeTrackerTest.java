@@ -0,0 +1,105 @@
+package ecs;
+
+import arc.ecs.*;
+import arc.ecs.utils.*;
+import ecs.PackedComponentTest.*;
+import org.junit.*;
+
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class ChangeTrackerTest{
+
+    @Test
+    public void createdEntitiesAreChanged(){
+        Spawner spawner = new Spawner();
+        Sync sync = new Sync();
+        Base base = new Base(new BaseConfig().setSystem(spawner).setSystem(sync));
+
+        base.process();
+        //first call reports everything
+        assertEquals(3, sync.changed.size());
+
+        base.process();
+        assertEquals(3, sync.changed.size());
+        assertTrue(sync.changed.contains(spawner.fromArchetype));
+        assertTrue(sync.changed.contains(spawner.fromTransmuter));
+        assertTrue(sync.changed.contains(spawner.fromMapper));
+
+        spawner.spawn = false;
+        base.process();
+        assertEquals(0, sync.changed.size());
+
+        sync.mapper.modify(spawner.fromMapper).value = 2;
+        base.process();
+        assertEquals(1, sync.changed.size());
+        assertEquals(spawner.fromMapper, sync.changed.get(0));
+    }
+
+    @Test
+    public void parallelChangesAreMarked(){
+        ForkJoinPool pool = new ForkJoinPool(4);
+        Doubler doubler = new Doubler(pool);
+        doubler.setChunkSize(1);
+        Base base = new Base(new BaseConfig().setSystem(doubler));
+        Mapper<Value> mapper = base.getMapper(Value.class);
+        ChangeTracker tracker = mapper.trackChanges();
+
+        int count = 4096;
+        for(int i = 0; i < count; i++){
+            mapper.create(base.create()).set(i);
+        }
+        base.process();
+        tracker.clear();
+
+        for(int run = 0; run < 20; run++){
+            base.process();
+            IntBag changed = tracker.drain(doubler.getSubscription(), new IntBag());
+            assertEquals(count, changed.size());
+        }
+        pool.shutdown();
+    }
+
+    public static class A extends Component{
+        public int value;
+    }
+
+    public static class Spawner extends BaseSystem{
+        Mapper<A> mapper;
+        Archetype archetype;
+        EntityTransmuter transmuter;
+        boolean spawn = true;
+        int fromArchetype, fromTransmuter, fromMapper;
+
+        @Override
+        protected void initialize(){
+            archetype = new ArchetypeBuilder().add(A.class).build(base);
+            transmuter = new EntityTransmuterFactory(base).add(A.class).build();
+        }
+
+        @Override
+        protected void processSystem(){
+            if(!spawn) return;
+            fromArchetype = base.create(archetype);
+            transmuter.transmute(fromTransmuter = base.create());
+            mapper.create(fromMapper = base.create());
+        }
+    }
+
+    public static class Sync extends BaseEntitySystem{
+        Mapper<A> mapper;
+        final IntBag changed = new IntBag();
+
+        public Sync(){
+            super(Aspect.all(A.class));
+        }
+
+        @Override
+        protected void processSystem(){
+            IntBag entities = getChanged(A.class);
+            changed.setSize(0);
+            changed.addAll(entities);
+        }
+    }
+}
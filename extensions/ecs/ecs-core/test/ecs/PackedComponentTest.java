@@ -0,0 +1,98 @@
+package ecs;
+
+import arc.ecs.*;
+import arc.ecs.systems.*;
+import org.junit.*;
+
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class PackedComponentTest{
+
+    @Test
+    public void parallelAccess(){
+        ForkJoinPool pool = new ForkJoinPool(4);
+        Doubler doubler = new Doubler(pool);
+        doubler.setChunkSize(8);
+        Base base = new Base(new BaseConfig().setSystem(doubler));
+        Mapper<Value> mapper = base.getMapper(Value.class);
+
+        int count = 1000;
+        for(int i = 0; i < count; i++){
+            mapper.create(base.create()).set(i);
+        }
+
+        base.process();
+        base.process();
+        pool.shutdown();
+
+        for(int i = 0; i < count; i++){
+            assertEquals(i * 4, mapper.get(i).get());
+        }
+    }
+
+    @Test
+    public void threadsHaveOwnFlyweight() throws Exception{
+        Base base = new Base(new BaseConfig());
+        Mapper<Value> mapper = base.getMapper(Value.class);
+        mapper.create(base.create()).set(5);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Value other = executor.submit(() -> mapper.get(0)).get();
+        assertNotSame(mapper.get(0), other);
+        assertEquals(5, (int)executor.submit(() -> mapper.get(0).get()).get());
+
+        //grows the arrays, which the other thread must pick up
+        for(int i = 1; i < 500; i++){
+            mapper.create(base.create()).set(i + 5);
+        }
+        assertEquals(304, (int)executor.submit(() -> mapper.get(299).get()).get());
+        executor.submit(() -> mapper.get(499).set(-1)).get();
+        executor.shutdown();
+        assertEquals(-1, mapper.get(499).get());
+        assertEquals(5, mapper.get(0).get());
+    }
+
+    /** What the weaver generates for a component with a single <code>int value</code> field. */
+    public static class Value extends PackedComponent{
+        private int[] $value;
+
+        public Value(){
+            ensureCapacity(1);
+        }
+
+        public int get(){
+            return $value[entityId];
+        }
+
+        public void set(int value){
+            $value[entityId] = value;
+            changed();
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity){
+            $value = grow($value, capacity);
+        }
+
+        @Override
+        protected void reset(){
+            $value[entityId] = 0;
+        }
+    }
+
+    public static class Doubler extends ParallelIteratingSystem{
+        Mapper<Value> mapper;
+
+        public Doubler(ForkJoinPool pool){
+            super(Aspect.all(Value.class), pool);
+        }
+
+        @Override
+        protected void process(int entity){
+            Value value = mapper.get(entity);
+            value.set(value.get() * 2);
+        }
+    }
+}
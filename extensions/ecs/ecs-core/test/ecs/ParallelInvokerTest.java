@@ -0,0 +1,145 @@
+package ecs;
+
+import arc.ecs.*;
+import arc.ecs.annotations.*;
+import arc.ecs.systems.*;
+import arc.ecs.utils.*;
+import org.junit.*;
+
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class ParallelInvokerTest{
+    private ForkJoinPool pool;
+
+    @Before
+    public void setup(){
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void teardown(){
+        pool.shutdown();
+    }
+
+    @Test
+    public void stagesAndBarriers(){
+        ParallelInvoker invoker = new ParallelInvoker(pool);
+        Spawner spawner = new Spawner();
+        Sum sum = new Sum();
+        Reader first = new Reader(), second = new OtherReader();
+        Base base = new Base(new BaseConfig()
+        .setSystem(spawner).setSystem(new IncrementA()).setSystem(new IncrementB())
+        .setSystem(sum).setSystem(first).setSystem(second)
+        .setInvocationStrategy(invoker));
+
+        //the built-in managers, the spawner alone, both writers, then everything reading their results
+        assertEquals(4, invoker.getStageCount());
+
+        long expected = 0;
+        for(int tick = 1; tick <= 50; tick++){
+            base.process();
+
+            //the entity created on tick k has been incremented by both writers on every tick since, including k
+            expected += (long)tick * (tick + 1);
+            assertEquals(tick, spawner.created);
+            assertEquals(expected, sum.sum);
+            //both readers share a subscription, and must each see every entity
+            assertEquals(tick, first.seen);
+            assertEquals(tick, second.seen);
+            assertEquals(tick * (tick - 1L) / 2, first.idSum);
+            assertEquals(tick * (tick - 1L) / 2, second.idSum);
+        }
+    }
+
+    public static class A extends Component{
+        public int value;
+    }
+
+    public static class B extends Component{
+        public int value;
+    }
+
+    /** Unannotated, so it runs alone. */
+    public static class Spawner extends BaseSystem{
+        int created;
+
+        @Override
+        protected void processSystem(){
+            int entity = base.create();
+            base.edit(entity).create(A.class);
+            base.edit(entity).create(B.class);
+            created++;
+        }
+    }
+
+    @Writes(A.class)
+    public static class IncrementA extends IteratingSystem{
+        Mapper<A> mapper;
+
+        public IncrementA(){
+            super(Aspect.all(A.class));
+        }
+
+        @Override
+        protected void process(int entity){
+            mapper.get(entity).value++;
+        }
+    }
+
+    @Writes(B.class)
+    public static class IncrementB extends IteratingSystem{
+        Mapper<B> mapper;
+
+        public IncrementB(){
+            super(Aspect.all(B.class));
+        }
+
+        @Override
+        protected void process(int entity){
+            mapper.get(entity).value++;
+        }
+    }
+
+    @Reads({A.class, B.class})
+    public static class Sum extends IteratingSystem{
+        Mapper<A> a;
+        Mapper<B> b;
+        long sum;
+
+        public Sum(){
+            super(Aspect.all(A.class, B.class));
+        }
+
+        @Override
+        protected void process(int entity){
+            sum += a.get(entity).value + b.get(entity).value;
+        }
+    }
+
+    @Reads(A.class)
+    public static class Reader extends BaseEntitySystem{
+        int seen;
+        long idSum;
+
+        public Reader(){
+            super(Aspect.all(A.class));
+        }
+
+        @Override
+        protected void processSystem(){
+            IntBag entities = subscription.getEntities();
+            int[] ids = entities.getData();
+            seen = entities.size();
+            idSum = 0;
+            for(int i = 0; i < seen; i++){
+                idSum += ids[i];
+            }
+        }
+    }
+
+    @Reads(A.class)
+    public static class OtherReader extends Reader{
+    }
+}
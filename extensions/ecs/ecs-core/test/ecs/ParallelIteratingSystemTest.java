@@ -0,0 +1,154 @@
+package ecs;
+
+import arc.ecs.*;
+import arc.ecs.EntitySubscription.*;
+import arc.ecs.systems.*;
+import arc.ecs.utils.*;
+import org.junit.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+public class ParallelIteratingSystemTest{
+    private ForkJoinPool pool;
+
+    @Before
+    public void setup(){
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void teardown(){
+        pool.shutdown();
+    }
+
+    @Test
+    public void editsAreAppliedInOrder(){
+        Editor editor = new Editor(pool);
+        editor.setChunkSize(4);
+        Base base = new Base(new BaseConfig().setSystem(editor));
+        Mapper<Counter> counters = base.getMapper(Counter.class);
+        Mapper<Marker> markers = base.getMapper(Marker.class);
+
+        int count = 300;
+        for(int i = 0; i < count; i++){
+            counters.create(base.create()).value = i;
+        }
+        //the first pass only applies the creations above
+        editor.enabled = false;
+        base.process();
+
+        IntBag inserted = new IntBag(), removed = new IntBag();
+        base.getAspectSubscriptionManager().get(Aspect.all(Marker.class)).addSubscriptionListener(new SubscriptionListener(){
+            @Override
+            public void inserted(IntBag entities){
+                inserted.addAll(entities);
+            }
+
+            @Override
+            public void removed(IntBag entities){
+            }
+        });
+        base.getAspectSubscriptionManager().get(Aspect.all(Counter.class)).addSubscriptionListener(new SubscriptionListener(){
+            @Override
+            public void inserted(IntBag entities){
+            }
+
+            @Override
+            public void removed(IntBag entities){
+                removed.addAll(entities);
+            }
+        });
+
+        editor.enabled = true;
+        base.process();
+
+        //deletions are buffered, so every entity was processed
+        assertEquals(count, editor.processed.get());
+        //deferred runnables ran in entity order, one chunk after the other
+        assertEquals(count, editor.order.size());
+        for(int i = 0; i < count; i++) assertEquals(i, editor.order.get(i));
+
+        //created entities got consecutive ids in the order of the entities that created them
+        int created = 0;
+        for(int i = 0; i < count; i += 3){
+            int entity = count + created++;
+            assertTrue(markers.has(entity));
+            assertEquals(i, markers.get(entity).order);
+            assertFalse(counters.has(entity));
+        }
+
+        for(int i = 0; i < count; i++){
+            switch(i % 3){
+                case 0:
+                    assertTrue(counters.has(i));
+                    assertFalse(markers.has(i));
+                    break;
+                case 1:
+                    assertTrue(removed.contains(i));
+                    assertFalse(base.getAspectSubscriptionManager().get(Aspect.all()).getEntities().contains(i));
+                    break;
+                case 2:
+                    assertTrue(counters.has(i));
+                    assertEquals(-i, markers.get(i).order);
+                    break;
+            }
+        }
+
+        //listeners saw every created, edited and deleted entity
+        assertEquals(created + count / 3, inserted.size());
+        assertEquals(count / 3, removed.size());
+        for(int i = 2; i < count; i += 3) assertTrue(inserted.contains(i));
+    }
+
+    public static class Counter extends Component{
+        public int value;
+    }
+
+    public static class Marker extends Component{
+        public int order;
+    }
+
+    public static class Editor extends ParallelIteratingSystem{
+        Mapper<Counter> counters;
+        Mapper<Marker> markers;
+        Archetype archetype;
+        final AtomicInteger processed = new AtomicInteger();
+        final IntBag order = new IntBag();
+        boolean enabled;
+
+        public Editor(ForkJoinPool pool){
+            super(Aspect.all(Counter.class), pool);
+        }
+
+        @Override
+        protected void initialize(){
+            archetype = new ArchetypeBuilder().add(Marker.class).build(base);
+        }
+
+        @Override
+        protected boolean checkProcessing(){
+            return enabled;
+        }
+
+        @Override
+        protected void process(int entity){
+            processed.incrementAndGet();
+            int value = counters.get(entity).value;
+            switch(value % 3){
+                case 0:
+                    create(archetype, id -> markers.get(id).order = value);
+                    break;
+                case 1:
+                    delete(entity);
+                    break;
+                case 2:
+                    edit(entity, edit -> edit.create(Marker.class).order = -value);
+                    break;
+            }
+            defer(() -> order.add(entity));
+        }
+    }
+}
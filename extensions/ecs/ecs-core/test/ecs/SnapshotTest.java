@@ -0,0 +1,125 @@
+package ecs;
+
+import arc.ecs.*;
+import arc.ecs.utils.*;
+import arc.files.*;
+import arc.util.io.*;
+import ecs.PackedComponentTest.*;
+import org.junit.*;
+
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+public class SnapshotTest{
+    private File file;
+
+    @Before
+    public void setup() throws IOException{
+        file = File.createTempFile("snapshot", ".bin");
+    }
+
+    @After
+    public void cleanup(){
+        file.delete();
+    }
+
+    @Test
+    public void roundTrip(){
+        Base base = new Base(new BaseConfig());
+        Mapper<Stats> stats = base.getMapper(Stats.class);
+        Mapper<Value> values = base.getMapper(Value.class);
+        Mapper<Tag> tags = base.getMapper(Tag.class);
+
+        for(int i = 0; i < 200; i++){
+            int entity = base.create();
+            if(i % 2 == 0){
+                Stats s = stats.create(entity);
+                s.health = i;
+                s.speed = i * 0.5f;
+                s.alive = i % 4 == 0;
+                s.seed = i * 100000000000L;
+                s.weight = i / 3d;
+                s.level = (byte)i;
+                s.armor = (short)-i;
+                s.letter = (char)('a' + i % 26);
+                s.name = i % 6 == 0 ? null : "entity " + i;
+            }
+            if(i % 3 == 0) values.create(entity).set(i * 7);
+            if(i % 5 == 0) tags.create(entity).label = "tag" + i;
+        }
+        //leaves gaps in the ids, including at the end
+        for(int i = 0; i < 200; i += 7) base.delete(i);
+        base.delete(199);
+        base.process();
+
+        Snapshot snapshot = new Snapshot().register(Tag.class, new TagCodec());
+        snapshot.write(base, new Fi(file), true);
+
+        Base restored = new Base(new BaseConfig());
+        new Snapshot().set(snapshot).read(restored, new Fi(file));
+        restored.process();
+
+        Mapper<Stats> rstats = restored.getMapper(Stats.class);
+        Mapper<Value> rvalues = restored.getMapper(Value.class);
+        Mapper<Tag> rtags = restored.getMapper(Tag.class);
+        IntBag active = restored.getAspectSubscriptionManager().get(Aspect.all()).getEntities();
+        assertEquals(base.getAspectSubscriptionManager().get(Aspect.all()).getEntities().size(), active.size());
+        for(int i = 0; i < 200; i++){
+            boolean deleted = i % 7 == 0 || i == 199;
+            assertEquals(!deleted, active.contains(i));
+            if(deleted) continue;
+
+            assertEquals(stats.has(i), rstats.has(i));
+            if(stats.has(i)){
+                Stats expected = stats.get(i), actual = rstats.get(i);
+                assertEquals(expected.health, actual.health);
+                assertEquals(expected.speed, actual.speed, 0f);
+                assertEquals(expected.alive, actual.alive);
+                assertEquals(expected.seed, actual.seed);
+                assertEquals(expected.weight, actual.weight, 0d);
+                assertEquals(expected.level, actual.level);
+                assertEquals(expected.armor, actual.armor);
+                assertEquals(expected.letter, actual.letter);
+                assertEquals(expected.name, actual.name);
+            }
+
+            assertEquals(values.has(i), rvalues.has(i));
+            if(values.has(i)) assertEquals(i * 7, rvalues.get(i).get());
+
+            assertEquals(tags.has(i), rtags.has(i));
+            if(tags.has(i)) assertEquals("tag" + i + "!", rtags.get(i).label);
+        }
+    }
+
+    public static class Stats extends Component{
+        public int health;
+        public float speed;
+        public boolean alive;
+        public long seed;
+        public double weight;
+        public byte level;
+        public short armor;
+        public char letter;
+        public String name;
+    }
+
+    /** Holds a field reflection can't write, so it only round-trips through its codec. */
+    public static class Tag extends Component{
+        public String label;
+        public Object cache = new Object();
+    }
+
+    /** Marks what it reads, to show that the registered codec was used. */
+    static class TagCodec implements Snapshot.Codec<Tag>{
+        @Override
+        public void write(Tag component, Writes write){
+            write.str(component.label);
+        }
+
+        @Override
+        public void read(Tag component, Reads read){
+            component.label = read.str() + "!";
+        }
+    }
+}
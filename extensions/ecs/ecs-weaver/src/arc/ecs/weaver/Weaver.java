@@ -4,6 +4,7 @@ package arc.ecs.weaver;
 import arc.ecs.weaver.meta.*;
 import arc.ecs.weaver.meta.ClassMetadata.*;
 import arc.ecs.weaver.impl.*;
+import arc.ecs.weaver.impl.packed.*;
 import org.objectweb.asm.*;
 
 import java.io.*;
@@ -13,7 +14,9 @@ import java.util.concurrent.*;
 public class Weaver{
     public static final String PROFILER_ANNOTATION = "Larc/ecs/annotations/Profile;";
     public static final String POOLED_ANNOTATION = "Larc/ecs/annotations/PooledWeaver;";
+    public static final String PACKED_ANNOTATION = "Larc/ecs/annotations/PackedWeaver;";
     public static final String WOVEN_ANNOTATION = "Larc/ecs/annotations/internal/Transmuted";
+    public static final String PACKED_COMPONENT = "arc/ecs/PackedComponent";
     public static final String PRESERVE_VISIBILITY_ANNOTATION = "Larc/ecs/annotations/PreserveProcessVisiblity;";
 
     private Set<File> classesDirs;
@@ -31,6 +34,7 @@ public class Weaver{
 
         List<File> classes = ClassUtil.find(classesDirs);
         rewriteComponents(classes, log);
+        rewritePackedFieldAccess(classes, log);
         generateLinkMutators(classes, log);
         rewriteProfilers(classes);
 
@@ -97,6 +101,31 @@ public class Weaver{
         log.timeComponents = timer.duration();
     }
 
+    private static void rewritePackedFieldAccess(List<File> classes, WeaverLog log){
+        // packed components lose their annotation when woven, so components woven by an earlier
+        // run, e.g. of an incremental build, are recognized by their superclass instead
+        Map<String, ClassMetadata> packed = new HashMap<String, ClassMetadata>();
+        List<ClassReader> readers = new ArrayList<ClassReader>();
+        for(File f : classes){
+            ClassReader cr = classReaderFor(f.getAbsolutePath());
+            readers.add(cr);
+            if(PACKED_COMPONENT.equals(cr.getSuperName()))
+                packed.put(cr.getClassName(), PackedComponentWeaver.scanWoven(cr));
+        }
+
+        if(packed.isEmpty())
+            return;
+
+        ExecutorService threadPool = newThreadPool();
+        for(int i = 0; i < classes.size(); i++){
+            ClassReader cr = readers.get(i);
+            if(!packed.containsKey(cr.getClassName()))
+                threadPool.submit(new PackedFieldAccessTransmuter(classes.get(i).getAbsolutePath(), cr, packed));
+        }
+
+        awaitTermination(threadPool);
+    }
+
     private static void generateLinkMutators(List<File> classes, WeaverLog log){
         Timer timer = new Timer();
         ExecutorService threadPool = newThreadPool();
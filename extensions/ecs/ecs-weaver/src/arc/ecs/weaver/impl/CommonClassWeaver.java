@@ -23,7 +23,7 @@ class CommonClassWeaver extends ClassVisitor implements Opcodes{
 
     @Override
     public AnnotationVisitor visitAnnotation(String desc, boolean visible){
-        return (Weaver.POOLED_ANNOTATION.equals(desc))
+        return (Weaver.POOLED_ANNOTATION.equals(desc) || Weaver.PACKED_ANNOTATION.equals(desc))
         ? null
         : super.visitAnnotation(desc, visible);
     }
@@ -2,6 +2,7 @@ package arc.ecs.weaver.impl;
 
 import arc.ecs.weaver.*;
 import arc.ecs.weaver.meta.*;
+import arc.ecs.weaver.impl.packed.*;
 import arc.ecs.weaver.impl.pooled.*;
 import org.objectweb.asm.*;
 
@@ -32,6 +33,16 @@ public class ComponentTypeTransmuter extends CallableTransmuter<Void> implements
                 cv = new CommonClassWeaver(cv, meta);
                 cv = new PooledComponentWeaver(cv, meta);
                 break;
+            case PACKED:
+                if(!meta.foundReset){
+                    injectMethodStub("reset", "()V");
+                    cr.accept(cw, 0);
+                    cr = new ClassReader(cw.toByteArray());
+                    cv = cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+                }
+                cv = new CommonClassWeaver(cv, meta);
+                cv = new PackedComponentWeaver(cv, meta);
+                break;
             case NONE:
                 return null;
             default:
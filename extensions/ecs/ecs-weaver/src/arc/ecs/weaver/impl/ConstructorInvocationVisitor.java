@@ -31,6 +31,8 @@ public class ConstructorInvocationVisitor extends MethodVisitor implements Opcod
         switch(meta.annotation){
             case POOLED:
                 return "arc/ecs/PooledComponent";
+            case PACKED:
+                return "arc/ecs/PackedComponent";
             default:
                 return "FailedTransformingSuperConstructorInvocation";
         }
@@ -0,0 +1,36 @@
+package arc.ecs.weaver.impl;
+
+import arc.ecs.weaver.*;
+import arc.ecs.weaver.meta.*;
+import arc.ecs.weaver.impl.packed.*;
+import org.objectweb.asm.*;
+
+import java.util.*;
+
+/**
+ * Rewrites access to packed components so that other classes can
+ * access packed components with direct field access, syntactically.
+ */
+public class PackedFieldAccessTransmuter extends CallableTransmuter<Void> implements Opcodes{
+    private final ClassReader cr;
+    private final Map<String, ClassMetadata> packed;
+
+    public PackedFieldAccessTransmuter(String file, ClassReader cr, Map<String, ClassMetadata> packed){
+        super(file);
+        this.cr = cr;
+        this.packed = packed;
+    }
+
+    @Override
+    protected Void process(String file){
+        // operand stacks and locals are unchanged, so frames and maxs can be copied
+        ClassWriter cw = new ClassWriter(0);
+        PackedFieldAccessWeaver cv = new PackedFieldAccessWeaver(cw, packed);
+        cr.accept(cv, 0);
+
+        if(cv.isRewritten())
+            ClassUtil.writeClass(cw, file);
+
+        return null;
+    }
+}
@@ -51,6 +51,7 @@ public final class TypedOpcodes implements Opcodes{
     public int tRETURN(){
         switch(desc){
             case 'Z':
+            case 'B':
             case 'C':
             case 'S':
             case 'I':
@@ -70,6 +71,7 @@ public final class TypedOpcodes implements Opcodes{
     public int tALOAD(){
         switch(desc){
             case 'Z':
+            case 'B':
                 return BALOAD;
             case 'C':
                 return CALOAD;
@@ -92,6 +94,7 @@ public final class TypedOpcodes implements Opcodes{
     public int tLOAD(){
         switch(desc){
             case 'Z': // huh?
+            case 'B':
             case 'C':
             case 'S':
             case 'I':
@@ -130,6 +133,7 @@ public final class TypedOpcodes implements Opcodes{
     public int tASTORE(){
         switch(desc){
             case 'Z':
+            case 'B':
                 return BASTORE;
             case 'C':
                 return CASTORE;
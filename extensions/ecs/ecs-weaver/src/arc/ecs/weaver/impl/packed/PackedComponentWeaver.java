@@ -0,0 +1,192 @@
+package arc.ecs.weaver.impl.packed;
+
+import arc.ecs.weaver.*;
+import arc.ecs.weaver.meta.*;
+import arc.ecs.weaver.impl.*;
+import arc.ecs.weaver.impl.pooled.*;
+import org.objectweb.asm.*;
+
+import java.util.*;
+
+import static arc.ecs.weaver.meta.ClassMetadataUtil.instanceFields;
+
+/**
+ * Turns a component into a {@link arc.ecs.PackedComponent}. Each primitive instance field <code>x</code> is
+ * replaced by an array <code>$x</code> indexed by entity id, accessed through the generated <code>$get_x</code> and
+ * <code>$set_x</code> methods. Setters report the change to any {@link arc.ecs.ChangeTracker}. Also generates <code>ensureCapacity</code>, and makes <code>reset</code> clear the
+ * fields before running its original body.
+ */
+public class PackedComponentWeaver extends ClassVisitor implements Opcodes{
+    private static final String PACKED_COMPONENT = Weaver.PACKED_COMPONENT;
+
+    private final ClassMetadata meta;
+    private final Map<String, ClassMetadata> self;
+
+    public PackedComponentWeaver(ClassVisitor cv, ClassMetadata meta){
+        super(ASM5, cv);
+        this.meta = meta;
+        this.self = Collections.singletonMap(meta.type.getInternalName(), meta);
+
+        for(FieldDescriptor field : instanceFields(meta)){
+            if(field.desc.length() != 1)
+                throw new WeaverException(meta.type.getClassName() + "." + field.name + ": only primitive fields can be packed.");
+        }
+    }
+
+    /** @return whether the field of the component is stored in an array. */
+    public static boolean isPacked(ClassMetadata meta, String field){
+        for(FieldDescriptor fd : instanceFields(meta)){
+            if(fd.name.equals(field))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Reads the packed fields back from a woven component: every <code>$x</code> array with a generated getter. The
+     * metadata holds the original field names and types, enough to rewrite field access in other classes.
+     */
+    public static ClassMetadata scanWoven(ClassReader cr){
+        final ClassMetadata meta = new ClassMetadata();
+        meta.type = Type.getObjectType(cr.getClassName());
+        meta.annotation = ClassMetadata.WeaverType.PACKED;
+
+        final Map<String, String> arrays = new HashMap<String, String>();
+        final Set<String> getters = new HashSet<String>();
+        cr.accept(new ClassVisitor(ASM5){
+            @Override
+            public FieldVisitor visitField(int access, String name, String desc, String signature, Object value){
+                if((access & ACC_STATIC) == 0 && name.startsWith("$") && desc.length() == 2 && desc.charAt(0) == '[')
+                    arrays.put(name.substring(1), desc.substring(1));
+                return null;
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions){
+                getters.add(name + desc);
+                return null;
+            }
+        }, ClassReader.SKIP_CODE);
+
+        for(Map.Entry<String, String> array : arrays.entrySet()){
+            String name = array.getKey(), desc = array.getValue();
+            if(getters.contains(getter(name) + "()" + desc))
+                meta.field(name).set(ACC_PUBLIC, desc, null, null);
+        }
+
+        return meta;
+    }
+
+    public static String getter(String field){
+        return "$get_" + field;
+    }
+
+    public static String setter(String field){
+        return "$set_" + field;
+    }
+
+    @Override
+    public FieldVisitor visitField(int access, String name, String desc, String signature, Object value){
+        if(isPacked(meta, name))
+            return cv.visitField(ACC_PRIVATE, "$" + name, "[" + desc, null, null);
+
+        return super.visitField(access, name, desc, signature, value);
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions){
+        MethodVisitor method = cv.visitMethod(access, name, desc, signature, exceptions);
+        method = new PackedFieldAccessVisitor(method, self);
+
+        if("<init>".equals(name))
+            method = new CapacityInitializer(new ConstructorInvocationVisitor(method, meta));
+        if("reset".equals(name) && "()V".equals(desc))
+            method = new ResetMethodVisitor(method, meta);
+
+        return method;
+    }
+
+    @Override
+    public void visitEnd(){
+        String owner = meta.type.getInternalName();
+        for(FieldDescriptor field : instanceFields(meta)){
+            writeGetter(owner, field);
+            writeSetter(owner, field);
+        }
+        writeEnsureCapacity(owner);
+
+        super.visitEnd();
+    }
+
+    private void writeGetter(String owner, FieldDescriptor field){
+        TypedOpcodes opcodes = new TypedOpcodes(field);
+
+        MethodVisitor mv = cv.visitMethod(ACC_PUBLIC, getter(field.name), "()" + field.desc, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, owner, "$" + field.name, "[" + field.desc);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, owner, "entityId", "I");
+        mv.visitInsn(opcodes.tALOAD());
+        mv.visitInsn(opcodes.tRETURN());
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private void writeSetter(String owner, FieldDescriptor field){
+        TypedOpcodes opcodes = new TypedOpcodes(field);
+
+        MethodVisitor mv = cv.visitMethod(ACC_PUBLIC, setter(field.name), "(" + field.desc + ")V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, owner, "$" + field.name, "[" + field.desc);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, owner, "entityId", "I");
+        mv.visitVarInsn(opcodes.tLOAD(), 1);
+        mv.visitInsn(opcodes.tASTORE());
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKEVIRTUAL, owner, "changed", "()V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private void writeEnsureCapacity(String owner){
+        MethodVisitor mv = cv.visitMethod(ACC_PROTECTED, "ensureCapacity", "(I)V", null, null);
+        mv.visitCode();
+        for(FieldDescriptor field : instanceFields(meta)){
+            String array = "[" + field.desc;
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, owner, "$" + field.name, array);
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitMethodInsn(INVOKESTATIC, PACKED_COMPONENT, "grow", "(" + array + "I)" + array, false);
+            mv.visitFieldInsn(PUTFIELD, owner, "$" + field.name, array);
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /** Allocates the arrays right after the super constructor returns, before any field initializers run. */
+    private class CapacityInitializer extends MethodVisitor{
+        private boolean hasCalledSuper;
+
+        CapacityInitializer(MethodVisitor mv){
+            super(ASM5, mv);
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf){
+            super.visitMethodInsn(opcode, owner, name, desc, itf);
+
+            if(!hasCalledSuper && INVOKESPECIAL == opcode && "<init>".equals(name)){
+                hasCalledSuper = true;
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitInsn(ICONST_1);
+                mv.visitMethodInsn(INVOKEVIRTUAL, meta.type.getInternalName(), "ensureCapacity", "(I)V", false);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package arc.ecs.weaver.impl.packed;
+
+import arc.ecs.weaver.meta.*;
+import org.objectweb.asm.*;
+
+import java.util.*;
+
+/**
+ * Replaces reads and writes of packed component fields with calls to the accessors generated by
+ * {@link PackedComponentWeaver}. Both take the same operands off the stack, so nothing else changes.
+ */
+public class PackedFieldAccessVisitor extends MethodVisitor implements Opcodes{
+    private final Map<String, ClassMetadata> packed;
+
+    public PackedFieldAccessVisitor(MethodVisitor mv, Map<String, ClassMetadata> packed){
+        super(ASM5, mv);
+        this.packed = packed;
+    }
+
+    @Override
+    public void visitFieldInsn(int opcode, String owner, String name, String desc){
+        ClassMetadata meta = packed.get(owner);
+        if(meta != null && (opcode == GETFIELD || opcode == PUTFIELD) && PackedComponentWeaver.isPacked(meta, name)){
+            if(opcode == GETFIELD)
+                mv.visitMethodInsn(INVOKEVIRTUAL, owner, PackedComponentWeaver.getter(name), "()" + desc, false);
+            else
+                mv.visitMethodInsn(INVOKEVIRTUAL, owner, PackedComponentWeaver.setter(name), "(" + desc + ")V", false);
+
+            rewritten();
+        }else{
+            super.visitFieldInsn(opcode, owner, name, desc);
+        }
+    }
+
+    /** Called after a field access was replaced. */
+    protected void rewritten(){
+    }
+}
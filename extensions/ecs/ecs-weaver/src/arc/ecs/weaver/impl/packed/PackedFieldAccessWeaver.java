@@ -0,0 +1,33 @@
+package arc.ecs.weaver.impl.packed;
+
+import arc.ecs.weaver.meta.*;
+import org.objectweb.asm.*;
+
+import java.util.*;
+
+/** Rewrites packed component field access in every method of a class. */
+public class PackedFieldAccessWeaver extends ClassVisitor implements Opcodes{
+    private final Map<String, ClassMetadata> packed;
+    private boolean rewritten;
+
+    public PackedFieldAccessWeaver(ClassVisitor cv, Map<String, ClassMetadata> packed){
+        super(ASM5, cv);
+        this.packed = packed;
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions){
+        MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions);
+        return new PackedFieldAccessVisitor(mv, packed){
+            @Override
+            protected void rewritten(){
+                rewritten = true;
+            }
+        };
+    }
+
+    /** @return whether any field access was rewritten. */
+    public boolean isRewritten(){
+        return rewritten;
+    }
+}
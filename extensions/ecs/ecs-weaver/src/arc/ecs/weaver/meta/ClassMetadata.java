@@ -50,7 +50,7 @@ public final class ClassMetadata{
         return null;
     }
 
-    public enum WeaverType{NONE, POOLED}
+    public enum WeaverType{NONE, POOLED, PACKED}
 
     public enum OptimizationType{NOT_OPTIMIZABLE, SAFE, FULL}
 
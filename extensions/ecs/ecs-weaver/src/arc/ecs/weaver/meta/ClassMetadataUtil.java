@@ -61,6 +61,8 @@ public final class ClassMetadataUtil{
         switch(meta.annotation){
             case POOLED:
                 return "arc/ecs/PooledComponent";
+            case PACKED:
+                return "arc/ecs/PackedComponent";
             case NONE:
             default:
                 throw new RuntimeException("Missing case : " + meta.annotation);
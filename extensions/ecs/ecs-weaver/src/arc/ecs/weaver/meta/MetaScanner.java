@@ -58,6 +58,8 @@ public class MetaScanner extends ClassVisitor implements Opcodes{
         if(POOLED_ANNOTATION.equals(desc)){
             info.annotation = WeaverType.POOLED;
             av = new AnnotationReader(av, info);
+        }else if(PACKED_ANNOTATION.equals(desc)){
+            info.annotation = WeaverType.PACKED;
         }else if(PROFILER_ANNOTATION.equals(desc)){
             return new ProfileAnnotationReader(desc, info);
         }else if(WOVEN_ANNOTATION.equals(desc)){
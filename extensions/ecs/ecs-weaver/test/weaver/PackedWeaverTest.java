@@ -0,0 +1,124 @@
+package weaver;
+
+import arc.ecs.*;
+import arc.ecs.annotations.*;
+import arc.ecs.weaver.*;
+import org.junit.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/** Weaves the nested classes of this test into a temporary folder and runs them from there. */
+public class PackedWeaverTest{
+    private static final String[] classes = {"Pos", "Access"};
+
+    private File dir;
+
+    @Before
+    public void setup() throws IOException{
+        dir = Files.createTempDirectory("weaver").toFile();
+        for(String name : classes) copyClass(name);
+    }
+
+    @After
+    public void cleanup(){
+        delete(dir);
+    }
+
+    @Test
+    public void packsFields() throws Exception{
+        WeaverLog log = new Weaver(dir).execute();
+        assertEquals(1, log.components.size());
+
+        Class<?> pos = new Loader().loadClass(Pos.class.getName());
+        assertEquals(PackedComponent.class, pos.getSuperclass());
+        assertEquals(int[].class, pos.getDeclaredField("$x").getType());
+        assertEquals("50,2.0,true", run());
+    }
+
+    @Test
+    public void reweavesAccessors() throws Exception{
+        new Weaver(dir).execute();
+
+        //an incremental build only recompiles the accessor, the component stays woven
+        copyClass("Access");
+        WeaverLog log = new Weaver(dir).execute();
+        assertEquals(0, log.components.size());
+        assertEquals("50,2.0,true", run());
+    }
+
+    private String run() throws Exception{
+        Method method = new Loader().loadClass(Access.class.getName()).getMethod("run");
+        try{
+            return (String)method.invoke(null);
+        }catch(InvocationTargetException e){
+            throw new AssertionError("Woven code failed", e.getCause());
+        }
+    }
+
+    private void copyClass(String name) throws IOException{
+        String file = PackedWeaverTest.class.getSimpleName() + "$" + name + ".class";
+        File target = new File(dir, "weaver/" + file);
+        target.getParentFile().mkdirs();
+        try(InputStream in = PackedWeaverTest.class.getResourceAsStream(file)){
+            Files.copy(in, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void delete(File file){
+        File[] children = file.listFiles();
+        if(children != null){
+            for(File child : children) delete(child);
+        }
+        file.delete();
+    }
+
+    @PackedWeaver
+    public static class Pos extends Component{
+        public int x;
+        public float y = 2f;
+    }
+
+    public static class Access{
+        public static String run(){
+            Base base = new Base(new BaseConfig());
+            Mapper<Pos> mapper = base.getMapper(Pos.class);
+            for(int i = 0; i < 100; i++){
+                mapper.create(base.create()).x = i;
+            }
+
+            Pos pos = mapper.get(50);
+            return pos.x + "," + pos.y + "," + (mapper.get(0) == mapper.get(1));
+        }
+    }
+
+    /** Loads the woven classes from the temporary folder, and everything else from the parent. */
+    private class Loader extends ClassLoader{
+        private final Map<String, Class<?>> loaded = new HashMap<>();
+
+        Loader(){
+            super(PackedWeaverTest.class.getClassLoader());
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException{
+            File file = new File(dir, name.replace('.', '/') + ".class");
+            if(!file.exists()) return super.loadClass(name, resolve);
+
+            Class<?> type = loaded.get(name);
+            if(type == null){
+                try{
+                    byte[] bytes = Files.readAllBytes(file.toPath());
+                    loaded.put(name, type = defineClass(name, bytes, 0, bytes.length));
+                }catch(IOException e){
+                    throw new ClassNotFoundException(name, e);
+                }
+            }
+            return type;
+        }
+    }
+}